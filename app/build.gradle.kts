@@ -84,6 +84,9 @@ dependencies {
 
     // .jar-based libraries included in project
 
+    // Simulation engine (pure Java library module)
+    implementation(project(":engine"))
+
     // Basic Android components
     implementation(libs.app.compat)
     implementation(libs.constraint.layout)
@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+import android.content.Context;
+import androidx.test.platform.app.InstrumentationRegistry;
+import edu.cnm.deepdive.rps.model.domain.Ecosystem;
+import edu.cnm.deepdive.rps.model.domain.Engine;
+import edu.cnm.deepdive.rps.model.domain.Neighborhood;
+import edu.cnm.deepdive.rps.model.domain.RandomProviders;
+import io.reactivex.rxjava3.observers.TestObserver;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EcosystemRepositoryTest {
+
+  private static final long SEED = 0x5ca1ab1eL;
+  private static final int NUM_BREEDS = 5;
+  private static final int SIZE = 200;
+  private static final int ITERATIONS_PER_BATCH = 100_000;
+  private static final float SWAP_PROBABILITY = 0.05f;
+  private static final int BATCHES = 20;
+  private static final int ROUNDS = 5;
+  private static final long TIMEOUT_SECONDS = 30;
+
+  private EcosystemRepository repository;
+  private Ecosystem ecosystem;
+
+  @BeforeEach
+  void setUp() {
+    Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    repository = new EcosystemRepository(context, RandomProviders.create(SEED),
+        new SimulationMetrics(), new FrameTicker(context));
+    ecosystem = repository
+        .create(NUM_BREEDS, SIZE, true, Neighborhood.VON_NEUMANN, Engine.STANDARD)
+        .blockingGet();
+    // The LiveData value read by run() is posted to the main thread.
+    InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+  }
+
+  @Test
+  void save_fixedDelayRun_savesBetweenBatches() {
+    for (int round = 0; round < ROUNDS; round++) {
+      TestObserver<Integer> observer =
+          repository.run(ITERATIONS_PER_BATCH, SWAP_PROBABILITY, 0).test();
+      observer.awaitCount(2);
+      repository.save().blockingAwait();
+      // Restoring stops the run; a checkpoint written during a batch fails validation here.
+      Ecosystem restored = repository.restore().blockingGet();
+      observer.awaitDone(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+      int total = 0;
+      for (int population : restored.getPopulations()) {
+        total += population;
+      }
+      assertEquals(SIZE * SIZE, total);
+    }
+  }
+
+  @Test
+  void startRecording_fixedDelayRun_replaysSimulatedTerrain() {
+    repository.startRecording().blockingAwait();
+    TestObserver<Integer> observer =
+        repository.run(ITERATIONS_PER_BATCH, SWAP_PROBABILITY, 0).test();
+    observer.awaitCount(BATCHES);
+    repository.pause().blockingAwait();
+    observer.awaitDone(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    repository.stopRecording().blockingAwait();
+    long iterationCount = ecosystem.getIterationCount();
+    byte[] terrain = ecosystem.getFlatTerrain().clone();
+    repository.seek(iterationCount).blockingAwait();
+    InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    Ecosystem replayed = repository.getEcosystem().getValue();
+    assertNotSame(ecosystem, replayed);
+    assertEquals(iterationCount, replayed.getIterationCount());
+    assertArrayEquals(terrain, replayed.getFlatTerrain());
+  }
+
+}
@@ -29,11 +29,13 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 import androidx.lifecycle.Lifecycle.State;
 import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.navigation.Navigation;
 import dagger.hilt.android.AndroidEntryPoint;
 import edu.cnm.deepdive.rps.R;
 import edu.cnm.deepdive.rps.databinding.FragmentEcosystemBinding;
+import edu.cnm.deepdive.rps.service.SimulationMetrics.Sample;
 import edu.cnm.deepdive.rps.viewmodel.EcosystemViewModel;
 
 /**
@@ -48,6 +50,7 @@ public class EcosystemFragment extends Fragment implements MenuProvider {
   private EcosystemViewModel viewModel;
   private boolean running = false;
   private boolean absorbed = true;
+  private boolean recording = false;
 
   @Nullable
   @Override
@@ -67,6 +70,21 @@ public class EcosystemFragment extends Fragment implements MenuProvider {
     setupViewModel(owner, activity);
   }
 
+  @Override
+  public void onResume() {
+    super.onResume();
+    // The overlay preference may have been changed in the settings fragment; re-read it each time.
+    LiveData<Sample> metrics = viewModel.getMetrics();
+    LifecycleOwner owner = getViewLifecycleOwner();
+    metrics.removeObservers(owner);
+    if (viewModel.isMetricsOverlayEnabled()) {
+      binding.metrics.setVisibility(View.VISIBLE);
+      metrics.observe(owner, this::showMetrics);
+    } else {
+      binding.metrics.setVisibility(View.GONE);
+    }
+  }
+
   @Override
   public void onDestroyView() {
     binding = null;
@@ -83,6 +101,8 @@ public class EcosystemFragment extends Fragment implements MenuProvider {
     MenuProvider.super.onPrepareMenu(menu);
     menu.findItem(R.id.pause).setVisible(running && !absorbed);
     menu.findItem(R.id.run).setVisible(!running && !absorbed);
+    menu.findItem(R.id.start_recording).setVisible(!recording);
+    menu.findItem(R.id.stop_recording).setVisible(recording);
   }
 
   @Override
@@ -95,6 +115,16 @@ public class EcosystemFragment extends Fragment implements MenuProvider {
       viewModel.pause();
     } else if (itemId == R.id.restart) {
       viewModel.create();
+    } else if (itemId == R.id.start_recording) {
+      viewModel.startRecording();
+    } else if (itemId == R.id.stop_recording) {
+      viewModel.stopRecording();
+    } else if (itemId == R.id.replay) {
+      viewModel.replay();
+    } else if (itemId == R.id.save) {
+      viewModel.save();
+    } else if (itemId == R.id.restore) {
+      viewModel.restore();
     } else if (itemId == R.id.settings) {
       Navigation.findNavController(binding.getRoot())
           .navigate(EcosystemFragmentDirections.navigateToSettings());
@@ -107,17 +137,14 @@ public class EcosystemFragment extends Fragment implements MenuProvider {
   private void setupViewModel(LifecycleOwner owner, FragmentActivity activity) {
     viewModel = new ViewModelProvider(requireActivity()).get(EcosystemViewModel.class);
     getLifecycle().addObserver(viewModel);
-    // When we observe that a new terrain is created, pass it to the TerrainView.
-    viewModel
-        .getTerrain()
-        .observe(owner, (terrain) -> {
-          binding.terrain.setTerrain(terrain);
-          binding.terrain.invalidate();
-        });
-    // Any observed ecosystem updates indicate that the terrain content has changed; force redraw.
+    // The TerrainView acquires snapshots of the terrain on its own render thread.
+    binding.terrain.setSnapshotSource(viewModel::getRenderSnapshot);
+    binding.terrain.setDrawTimeListener(viewModel::recordDrawTime);
+    // Any observed ecosystem updates indicate that a new snapshot has been published; request a
+    // frame (requests are coalesced by the TerrainView, so it draws at most once per frame).
     viewModel
         .getEcosystem()
-        .observe(owner, (ignored) -> binding.terrain.invalidate());
+        .observe(owner, (ignored) -> binding.terrain.requestRender());
     // When the ecosystem moves into or out of the absorbed/absorbing state, the simulation has
     // either stopped (moved into the absorbing state) or restarted (new ecosystem, not in the
     // absorbing state); in either case, the menu mut be refreshed.
@@ -134,15 +161,19 @@ public class EcosystemFragment extends Fragment implements MenuProvider {
           this.running = running;
           activity.invalidateMenu();
         });
+    // When recording starts or stops, the menu must be refreshed.
+    viewModel
+        .getRecording()
+        .observe(owner, (recording) -> {
+          this.recording = recording;
+          activity.invalidateMenu();
+        });
     // When a new ecosystem is created, the LiveData<Integer> containing the number of breeds is
-    // updated; this information must be passed to the TerrainView, so that it can build an array of
-    // Paint instances (each with a different color), with a length equal to the number of breeds.
+    // updated; this information must be passed to the TerrainView, so that it can build a palette of
+    // colors, with a length equal to the number of breeds.
     viewModel
         .getInitialBreedCount()
-        .observe(owner, (numBreeds) -> {
-          binding.terrain.setNumBreeds(numBreeds);
-          binding.terrain.invalidate();
-        });
+        .observe(owner, (numBreeds) -> binding.terrain.setNumBreeds(numBreeds));
 
     viewModel
         .getIterationCount()
@@ -167,4 +198,13 @@ public class EcosystemFragment extends Fragment implements MenuProvider {
     //  display the population counts.
   }
 
+  private void showMetrics(Sample sample) {
+    binding.metrics.setText(getString(R.string.metrics_format,
+        sample.getIterationsPerSecond(), sample.getChangesPerSecond(), sample.getTicksPerSecond(),
+        sample.getMedianTickMillis(), sample.getTailTickMillis(),
+        sample.getMedianLagMillis(), sample.getTailLagMillis(),
+        sample.getMedianSnapshotMillis(),
+        sample.getMedianDrawMillis(), sample.getTailDrawMillis(), sample.getDrawsPerSecond()));
+  }
+
 }
@@ -4,10 +4,9 @@ import dagger.Module;
 import dagger.Provides;
 import dagger.hilt.InstallIn;
 import dagger.hilt.components.SingletonComponent;
+import edu.cnm.deepdive.rps.model.domain.RandomProviders;
 import java.security.SecureRandom;
-import java.util.Random;
-import org.apache.commons.rng.simple.JDKRandomBridge;
-import org.apache.commons.rng.simple.RandomSource;
+import org.apache.commons.rng.UniformRandomProvider;
 
 /**
  * Assist Hilt in satisfying dependencies on classes that it cannot otherwise instantiate.
@@ -17,12 +16,14 @@ import org.apache.commons.rng.simple.RandomSource;
 public final class RandomModule {
 
   /**
-   * Creates and returns an instance of {@link Random} (or a subclass) for use when a component
-   * requires a source of randomness as a dependency.
+   * Creates and returns an instance of {@link UniformRandomProvider} for use when a component
+   * requires a source of randomness as a dependency. The generator is returned directly (rather
+   * than wrapped in a {@link java.util.Random} adapter), to avoid an additional layer of virtual
+   * dispatch on every draw.
    */
   @Provides
-  public Random provideRandom() {
-    return new JDKRandomBridge(RandomSource.XO_RO_SHI_RO_128_PP, null);
+  public UniformRandomProvider provideRandom() {
+    return RandomProviders.create();
   }
 
 }
@@ -19,18 +19,37 @@ import android.content.Context;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import dagger.hilt.android.qualifiers.ApplicationContext;
+import edu.cnm.deepdive.rps.model.domain.CellChangeBatch;
+import edu.cnm.deepdive.rps.model.domain.CellChangeLog;
+import edu.cnm.deepdive.rps.model.domain.Checkpoint;
+import edu.cnm.deepdive.rps.model.domain.ClusterAnalyzer;
+import edu.cnm.deepdive.rps.model.domain.ClusterAnalyzer.Statistics;
 import edu.cnm.deepdive.rps.model.domain.Ecosystem;
+import edu.cnm.deepdive.rps.model.domain.Engine;
+import edu.cnm.deepdive.rps.model.domain.Neighborhood;
+import edu.cnm.deepdive.rps.model.domain.PopulationHistory;
+import edu.cnm.deepdive.rps.model.domain.Snapshot;
+import edu.cnm.deepdive.rps.model.domain.SnapshotBuffer;
+import edu.cnm.deepdive.rps.model.domain.StructureFactorAnalyzer;
+import edu.cnm.deepdive.rps.model.domain.StructureFactorAnalyzer.Spectrum;
+import edu.cnm.deepdive.rps.model.domain.TrajectoryRecorder;
+import edu.cnm.deepdive.rps.model.domain.TrajectoryReplay;
 import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Flowable;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Scheduler;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.processors.FlowableProcessor;
+import io.reactivex.rxjava3.processors.PublishProcessor;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import io.reactivex.rxjava3.subjects.BehaviorSubject;
 import io.reactivex.rxjava3.subjects.Subject;
-import java.util.Random;
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import org.apache.commons.rng.UniformRandomProvider;
 
 /**
  * Manages and choreographs creation of, and subsequent operations performed on (and results
@@ -41,21 +60,59 @@ import javax.inject.Singleton;
 @Singleton
 public class EcosystemRepository {
 
+  /** Change log capacity, as a multiple of the number of cells in the terrain. */
+  private static final int CHANGE_LOG_CAPACITY_FACTOR = 4;
+  private static final int MAX_CHANGE_LOG_CAPACITY = 1 << 24;
+  /** Fraction of each frame interval that a frame-paced batch of iterations may occupy. */
+  private static final double FRAME_BUDGET_FRACTION = 0.5;
+  private static final String CHECKPOINT_FILENAME = "ecosystem.checkpoint";
+  private static final String TRAJECTORY_FILENAME = "ecosystem.trajectory";
+  private static final String NO_ECOSYSTEM = "Ecosystem has not been created.";
   private static final String NO_ECOSYSTEM_OR_ABSORBING = "Ecosystem has not been created, or is already in the absorbing state (in which no further simulation is meaningful).";
 
-  private final Random rng;
+  private final UniformRandomProvider rng;
   private final Scheduler scheduler;
   private final MutableLiveData<Ecosystem> ecosystem;
   private final MutableLiveData<Boolean> running;
+  private final MutableLiveData<Boolean> recording;
+  private final MutableLiveData<Statistics> clusters;
+  private final MutableLiveData<Spectrum> structureFactor;
+  private final FlowableProcessor<CellChangeBatch> cellChanges;
+
+  private final SimulationMetrics metrics;
+  private final FrameTicker frameTicker;
+  private final File checkpointFile;
+  private final File trajectoryFile;
 
   private Subject<Integer> ticker;
+  private long tickDelayNanos;
+  private long previousTickEnd;
+  private volatile SnapshotBuffer snapshots;
+  private volatile SnapshotBuffer renderSnapshots;
+  private volatile PopulationHistory populationHistory;
+  private volatile long analysisIntervalNanos;
+  private volatile ClusterAnalyzer clusterAnalyzer;
+  private volatile StructureFactorAnalyzer structureFactorAnalyzer;
+  private long nextAnalysis;
+  // Accessed only on the simulation thread.
+  private TrajectoryRecorder recorder;
+  private TrajectoryReplay replay;
 
   @Inject
-  EcosystemRepository(@ApplicationContext Context context, Random rng) {
+  EcosystemRepository(@ApplicationContext Context context, UniformRandomProvider rng,
+      SimulationMetrics metrics, FrameTicker frameTicker) {
     this.rng = rng;
+    this.metrics = metrics;
+    this.frameTicker = frameTicker;
+    checkpointFile = new File(context.getFilesDir(), CHECKPOINT_FILENAME);
+    trajectoryFile = new File(context.getFilesDir(), TRAJECTORY_FILENAME);
     scheduler = Schedulers.single();
     ecosystem = new MutableLiveData<>();
     running = new MutableLiveData<>();
+    recording = new MutableLiveData<>(false);
+    clusters = new MutableLiveData<>();
+    structureFactor = new MutableLiveData<>();
+    cellChanges = PublishProcessor.<CellChangeBatch>create().toSerialized();
   }
 
   /**
@@ -68,22 +125,174 @@ public class EcosystemRepository {
    * {@code size}, and with each cell occupied by an individual of one of the breeds.</li>
    * <li>The terrain may be thought of as a square box with closed
    * sides, or as a torus with wrapping edges, depending on the value of the {@code toroidal}
-   * parameter.</li></ul>
+   * parameter.</li>
+   * <li>The opponent of each randomly selected individual is selected from the individual's
+   * neighbors, as defined by {@code neighborhood}.</li>
+   * <li>The simulation is performed by the implementation specified by {@code engine}.</li></ul>
    *
-   * @param numBreeds Initial number of breeds inhabiting the terrain of the ecosystem.
-   * @param size      Height and width of the terrain.
-   * @param toroidal  Flag specifying whether the terrain is a torus ({@code true}) or box
-   *                  ({@code false}.
+   * @param numBreeds    Initial number of breeds inhabiting the terrain of the ecosystem.
+   * @param size         Height and width of the terrain.
+   * @param toroidal     Flag specifying whether the terrain is a torus ({@code true}) or box
+   *                     ({@code false}.
+   * @param neighborhood Shape of the neighborhood from which opponents are selected.
+   * @param engine       Simulation implementation.
    * @return {@link Single Single&lt;Ecosystem&gt;} that can be subscribed to, to create an
    * {@link Ecosystem}.
    */
-  public Single<Ecosystem> create(int numBreeds, int size, boolean toroidal) {
+  public Single<Ecosystem> create(
+      int numBreeds, int size, boolean toroidal, Neighborhood neighborhood, Engine engine) {
+    clearTicker();
+    return Single.fromSupplier(() -> {
+          closeRecorder();
+          closeReplay();
+          Ecosystem ecosystem = engine.create(numBreeds, size, toroidal, neighborhood, rng);
+          createSnapshots(ecosystem);
+          return ecosystem;
+        })
+        .subscribeOn(scheduler)
+        .doOnSuccess(ecosystem::postValue);
+  }
+
+  /**
+   * Creates and returns a {@link Completable} which&mdash;when subscribed to&mdash;saves the
+   * complete state of the current ecosystem to the app's checkpoint file, replacing any previously
+   * saved checkpoint (see {@link Checkpoint}). The save is performed on the simulation thread,
+   * between batches of iterations, so it may be invoked while the simulation is running.
+   *
+   * @return {@link Completable} that can be subscribed to, to save a checkpoint.
+   */
+  public Completable save() {
+    return Completable.fromAction(() -> {
+          Ecosystem ecosystem = this.ecosystem.getValue();
+          if (ecosystem == null) {
+            throw new IllegalStateException(NO_ECOSYSTEM);
+          }
+          Checkpoint.write(ecosystem, checkpointFile);
+        })
+        .subscribeOn(scheduler);
+  }
+
+  /**
+   * Creates and returns a {@link Single Single&lt;Ecosystem&gt;} which&mdash;when subscribed
+   * to&mdash;stops any running simulation, restores an {@link Ecosystem} from the app's checkpoint
+   * file, and updates the value in the {@link LiveData LiveData&lt;Ecosystem&gt;} container
+   * returned by {@link #getEcosystem()}. The restored ecosystem uses the engine, size, and other
+   * settings with which it was saved, regardless of current preferences.
+   *
+   * @return {@link Single Single&lt;Ecosystem&gt;} that can be subscribed to, to restore an
+   * {@link Ecosystem}.
+   */
+  public Single<Ecosystem> restore() {
     clearTicker();
-    return Single.fromSupplier(() -> new Ecosystem(numBreeds, size, toroidal, rng))
+    return Single.fromCallable(() -> {
+          closeRecorder();
+          closeReplay();
+          Ecosystem ecosystem = Checkpoint.read(checkpointFile);
+          createSnapshots(ecosystem);
+          return ecosystem;
+        })
         .subscribeOn(scheduler)
         .doOnSuccess(ecosystem::postValue);
   }
 
+  /**
+   * Creates and returns a {@link Completable} which&mdash;when subscribed to&mdash;starts recording
+   * the trajectory of the current ecosystem to the app's trajectory file, replacing any previous
+   * recording (see {@link TrajectoryRecorder}). Recording continues until
+   * {@link #stopRecording()} is invoked, or a different ecosystem is created or restored.
+   *
+   * @return {@link Completable} that can be subscribed to, to start recording.
+   */
+  public Completable startRecording() {
+    return Completable.fromAction(() -> {
+          Ecosystem ecosystem = this.ecosystem.getValue();
+          if (ecosystem == null) {
+            throw new IllegalStateException(NO_ECOSYSTEM);
+          }
+          closeRecorder();
+          closeReplay();
+          recorder = new TrajectoryRecorder(ecosystem, trajectoryFile);
+          recording.postValue(true);
+        })
+        .subscribeOn(scheduler);
+  }
+
+  /**
+   * Creates and returns a {@link Completable} which&mdash;when subscribed to&mdash;stops recording,
+   * and completes the trajectory file with its index of keyframes. If recording is not in progress,
+   * this has no effect.
+   *
+   * @return {@link Completable} that can be subscribed to, to stop recording.
+   */
+  public Completable stopRecording() {
+    return Completable.fromAction(this::closeRecorder)
+        .subscribeOn(scheduler);
+  }
+
+  /**
+   * Creates and returns an {@link Observable Observable&lt;Long&gt;} which&mdash;when subscribed
+   * to&mdash;plays back the recorded trajectory (see {@link TrajectoryReplay}), one step per
+   * display frame, through the same {@link LiveData LiveData&lt;Ecosystem&gt;} and
+   * {@link Snapshot} pipeline as the simulation itself.
+   * <ul><li>If no replay is in progress, or the replay in progress has reached the end of the
+   * recording, playback starts from the beginning of the recording; otherwise, it resumes from the
+   * current position.</li>
+   * <li>The value passed to the subscribing
+   * {@link io.reactivex.rxjava3.functions.Consumer Consumer&lt;Long&gt;} is the iteration count
+   * reached in each frame.</li>
+   * <li>Playback is paused by {@link #pause()}, and completes automatically at the end of the
+   * recording. Running the simulation ends the replay, continuing instead from the replayed state
+   * (though not along the recorded path).</li></ul>
+   *
+   * @param stepsPerSecond Playback speed, in Monte Carlo steps per second (one step being a number
+   *                       of iterations equal to the number of cells in the terrain).
+   * @return {@link Observable Observable&lt;Long&gt;} that can be subscribed to, to start playback.
+   */
+  public Observable<Long> replay(double stepsPerSecond) {
+    clearTicker();
+    Subject<Integer> ticker = BehaviorSubject.create();
+    this.ticker = ticker;
+    long[] previousFrame = {0};
+    running.postValue(true);
+    return frameTicker
+        .getFrames()
+        .observeOn(scheduler, false, 1)
+        .map((frameTime) -> {
+          long elapsed = (previousFrame[0] != 0) ? frameTime - previousFrame[0] : 0;
+          previousFrame[0] = frameTime;
+          return advanceReplay(stepsPerSecond, elapsed);
+        })
+        .toObservable()
+        .takeUntil(ticker.ignoreElements().toObservable())
+        .doOnTerminate(() -> {
+          if (this.ticker == ticker) {
+            this.ticker = null;
+          }
+          running.postValue(false);
+        });
+  }
+
+  /**
+   * Creates and returns a {@link Completable} which&mdash;when subscribed to&mdash;moves the replay
+   * in progress (opening the recorded trajectory first, if necessary) to its recorded state at the
+   * specified iteration count, and updates the value in the
+   * {@link LiveData LiveData&lt;Ecosystem&gt;} container returned by {@link #getEcosystem()}.
+   *
+   * @param iterationCount Target iteration count.
+   * @return {@link Completable} that can be subscribed to, to seek in the recorded trajectory.
+   */
+  public Completable seek(long iterationCount) {
+    return Completable.fromAction(() -> {
+          TrajectoryReplay replay = openReplay();
+          replay.seek(iterationCount);
+          recordHistory(replay.getEcosystem());
+          analyzeTerrain(replay.getEcosystem());
+          publishSnapshots();
+          ecosystem.postValue(replay.getEcosystem());
+        })
+        .subscribeOn(scheduler);
+  }
+
   /**
    * Creates and returns an {@link Observable Observable&lt;Integer&gt;} which&mdash;when subscribed
    * to&mdash;starts execution of the ecosystem simulation.
@@ -117,6 +326,8 @@ public class EcosystemRepository {
     }
     clearTicker();
     ticker = BehaviorSubject.createDefault(0);
+    tickDelayNanos = TimeUnit.MILLISECONDS.toNanos(millisecondsBetweenBatches);
+    previousTickEnd = 0;
     running.postValue(true);
     return ticker
         .subscribeOn(scheduler)
@@ -124,15 +335,85 @@ public class EcosystemRepository {
           ticker = null;
           running.postValue(false);
         })
-        .delay(millisecondsBetweenBatches, TimeUnit.MILLISECONDS)
-        .map((ignored) -> tick(iterationsPerBatch, swapProbability));
+        // Without an explicit scheduler, delay would move every batch onto the computation
+        // scheduler, where it could run concurrently with saves and recorder operations.
+        .delay(millisecondsBetweenBatches, TimeUnit.MILLISECONDS, scheduler)
+        .map((ignored) -> tick(iterationsPerBatch, swapProbability,
+            (previousTickEnd != 0) ? previousTickEnd + tickDelayNanos : System.nanoTime(), null))
+        .doOnNext((ignored) -> {
+          if (ticker != null && !ticker.hasComplete()) {
+            ticker.onNext(0);
+          }
+        });
+  }
+
+  /**
+   * Creates and returns an {@link Observable Observable&lt;Integer&gt;} which&mdash;when subscribed
+   * to&mdash;starts execution of the ecosystem simulation, with batches of iterations aligned to
+   * display frames, and sized adaptively to fit a wall-clock budget per frame.
+   * <ul><li>One batch is performed for each frame at (approximately) {@code framesPerSecond};
+   * frames arriving while a batch is still executing are skipped, rather than queued.</li>
+   * <li>Each batch is sized so that it takes no more than half of the frame interval, based on the
+   * measured throughput of preceding batches; if {@code stepsPerSecond} is positive, the batch size
+   * is further limited so that the simulation proceeds at no more than that number of Monte Carlo
+   * steps (one step being a number of iterations equal to the number of cells in the terrain) per
+   * second.</li>
+   * <li>The value passed to the subscribing
+   * {@link io.reactivex.rxjava3.functions.Consumer Consumer&lt;Integer&gt;} is the number of
+   * iterations in the batch in which a competitive interaction resulted in replacement of the
+   * losing individual by a copy of the winning individual.</li>
+   * <li>At the end of each batch of iterations, if the ecosystem has reached the absorbing state,
+   * the {@code onComplete} event is triggered automatically.</li></ul>
+   *
+   * @param framesPerSecond Target number of batches per second; this is limited to the display
+   *                        refresh rate, which is also used if this value is not positive.
+   * @param stepsPerSecond  Maximum number of Monte Carlo steps per second; if this is not
+   *                        positive, throughput is limited only by the frame budget.
+   * @param swapProbability Probability that a randomly selected pair is swapped at the start of
+   *                        each iteration.
+   * @return {@link Observable Observable&lt;Integer&gt;} that can be subscribed to, to start
+   * execution of the simulation.
+   * @throws IllegalStateException If the {@link Ecosystem} has not yet been created, or if it is
+   *                               already in the absorbing state.
+   */
+  public Observable<Integer> run(float framesPerSecond, double stepsPerSecond,
+      float swapProbability) throws IllegalStateException {
+    Ecosystem ecosystem = this.ecosystem.getValue();
+    if (ecosystem == null || ecosystem.isAbsorbed()) {
+      throw new IllegalStateException(NO_ECOSYSTEM_OR_ABSORBING);
+    }
+    clearTicker();
+    Subject<Integer> ticker = BehaviorSubject.create();
+    this.ticker = ticker;
+    long refreshIntervalNanos = frameTicker.getRefreshIntervalNanos();
+    long frameIntervalNanos = (framesPerSecond > 0)
+        ? Math.max(refreshIntervalNanos, Math.round(TimeUnit.SECONDS.toNanos(1) / framesPerSecond))
+        : refreshIntervalNanos;
+    int numCells = ecosystem.getSize() * ecosystem.getSize();
+    FramePacer pacer = new FramePacer(frameIntervalNanos, refreshIntervalNanos,
+        Math.round(frameIntervalNanos * FRAME_BUDGET_FRACTION), stepsPerSecond * numCells,
+        ecosystem.getSize(), Integer.MAX_VALUE);
+    running.postValue(true);
+    return frameTicker
+        .getFrames()
+        .observeOn(scheduler, false, 1)
+        .filter((frameTime) -> pacer.isDue(frameTime))
+        .map((frameTime) -> tick(pacer.next(frameTime), swapProbability, frameTime, pacer))
+        .toObservable()
+        .takeUntil(ticker.ignoreElements().toObservable())
+        .doOnTerminate(() -> {
+          if (this.ticker == ticker) {
+            this.ticker = null;
+          }
+          running.postValue(false);
+        });
   }
 
   /**
    * Creates and returns a {@link Completable} which&mdash;when subscribed to&mdash;pauses execution
    * of the simulation. As a result of pausing the simulation, the {@code onComplete} event is
    * triggered for the {@link Observable Observable&lt;Integer&gt;} returned by the
-   * {@link #run(int, float, int)} method.
+   * {@link #run(int, float, int)} or {@link #run(float, double, float)} method.
    *
    * @return {@link Completable} that can be subscribed to, to pause execution of the simulation.
    */
@@ -149,6 +430,98 @@ public class EcosystemRepository {
     return ecosystem;
   }
 
+  /**
+   * Returns the most recent complete {@link Snapshot} of the state of the current ecosystem, or
+   * {@code null} if no ecosystem has been created. Unlike the accessors of {@link Ecosystem}
+   * itself, this is safe to invoke while the simulation is running; however, it must only be
+   * invoked on a single consumer thread (normally the main thread), and the returned snapshot is
+   * only valid until the next invocation. The snapshot does not include a copy of the terrain; see
+   * {@link #getRenderSnapshot()}.
+   */
+  public Snapshot getSnapshot() {
+    SnapshotBuffer snapshots = this.snapshots;
+    return (snapshots != null) ? snapshots.acquire() : null;
+  }
+
+  /**
+   * Returns the most recent complete {@link Snapshot} of the state of the current ecosystem, for
+   * rendering, or {@code null} if no ecosystem has been created. This is equivalent to
+   * {@link #getSnapshot()}, but the snapshot includes a copy of the terrain, and the snapshots are
+   * taken from a separate buffer, so that they may be acquired on a dedicated rendering thread,
+   * independently of the consumer of {@link #getSnapshot()}; this method must only be invoked on a
+   * single such thread.
+   */
+  public Snapshot getRenderSnapshot() {
+    SnapshotBuffer snapshots = renderSnapshots;
+    return (snapshots != null) ? snapshots.acquire() : null;
+  }
+
+  /**
+   * Returns the {@link PopulationHistory} of the current ecosystem (or of the replay in progress),
+   * or {@code null} if no ecosystem has been created. A sample is added to the history at the end
+   * of every batch of iterations, and every replayed frame; the history is replaced when an
+   * ecosystem is created or restored, or a replay is started. It may be queried on any thread.
+   */
+  public PopulationHistory getPopulationHistory() {
+    return populationHistory;
+  }
+
+  /**
+   * Returns a reference to a {@link LiveData LiveData&lt;Statistics&gt;} containing the most
+   * recent cluster statistics (cluster counts and size distributions of each breed) of the current
+   * ecosystem, or of the replay in progress. The statistics are computed by a
+   * {@link ClusterAnalyzer}, at the interval specified by {@link #setAnalysisInterval(long,
+   * TimeUnit)}: the terrain is copied on the simulation thread, between batches, and analyzed on
+   * the computation scheduler, while the simulation continues; if an analysis is still in progress
+   * when the next is due, the next is skipped. The value is {@code null} after an ecosystem is
+   * created or restored, until the first analysis of that ecosystem completes.
+   */
+  public LiveData<Statistics> getClusters() {
+    return clusters;
+  }
+
+  /**
+   * Returns a reference to a {@link LiveData LiveData&lt;Spectrum&gt;} containing the most recent
+   * radially averaged structure factor and characteristic domain length of each breed of the
+   * current ecosystem, or of the replay in progress. These are computed by a
+   * {@link StructureFactorAnalyzer}, at the same interval as&mdash;but independently of&mdash;the
+   * cluster statistics (see {@link #getClusters()}), and with the same treatment of analyses that
+   * are still in progress when the next is due. The value is {@code null} after an ecosystem is
+   * created or restored, until the first analysis of that ecosystem completes.
+   */
+  public LiveData<Spectrum> getStructureFactor() {
+    return structureFactor;
+  }
+
+  /**
+   * Sets the interval between analyses of the terrain (see {@link #getClusters()} and
+   * {@link #getStructureFactor()}). An interval of 0 disables the analyses, and releases the memory
+   * used by them on the next batch.
+   *
+   * @param interval Minimum time between the start of successive analyses.
+   * @param unit     Unit of {@code interval}.
+   */
+  public void setAnalysisInterval(long interval, TimeUnit unit) {
+    analysisIntervalNanos = unit.toNanos(interval);
+  }
+
+  /**
+   * Returns a {@link Flowable Flowable&lt;CellChangeBatch&gt;} of the changes made to the terrain of
+   * the current ecosystem, with one {@link CellChangeBatch} emitted after each batch of iterations
+   * in which at least one cell changed. Changes are only recorded while there is at least one
+   * subscriber, so this imposes no cost on the simulation otherwise.
+   * <p>A subscriber should take the full terrain as its baseline when subscribing, and
+   * resynchronize from the full terrain whenever it receives a batch for which
+   * {@link CellChangeBatch#isComplete()} returns {@code false} (including the first batch after
+   * creation of a new ecosystem, or after a period with no subscribers). If a subscriber falls
+   * behind, pending batches are coalesced into a single batch, rather than queued; a subscriber
+   * that observes on another thread should therefore limit its prefetch (e.g. with
+   * {@code observeOn(scheduler, false, 1)}) to take advantage of this.</p>
+   */
+  public Flowable<CellChangeBatch> getCellChanges() {
+    return cellChanges.onBackpressureReduce(CellChangeBatch::coalesce);
+  }
+
   /**
    * Returns a reference to a {@link LiveData LiveData&lt;Boolean&gt;} containing a flag indicating
    * whether the simulation is running or paused.
@@ -157,25 +530,205 @@ public class EcosystemRepository {
     return running;
   }
 
+  /**
+   * Returns a reference to a {@link LiveData LiveData&lt;Boolean&gt;} containing a flag indicating
+   * whether the trajectory of the simulation is being recorded.
+   */
+  public LiveData<Boolean> getRecording() {
+    return recording;
+  }
+
   private void clearTicker() {
     if (ticker != null && !ticker.hasComplete()) {
       ticker.onComplete();
     }
   }
 
-  private int tick(int numIterations, float swapProbability) {
+  private int tick(int numIterations, float swapProbability, long scheduledNanos,
+      FramePacer pacer) throws IOException {
+    long start = System.nanoTime();
+    // Simulating a replayed ecosystem diverges from the recording, so the replay ends here.
+    closeReplay();
     Ecosystem ecosystem = this.ecosystem.getValue();
     //noinspection DataFlowIssue
+    CellChangeLog changeLog = attachChangeLog(ecosystem);
+    long startIterationCount = ecosystem.getIterationCount();
     int changes = ecosystem.iterate(numIterations, swapProbability);
+    recordHistory(ecosystem);
+    analyzeTerrain(ecosystem);
+    if (changeLog != null) {
+      CellChangeBatch batch = changeLog.publish();
+      if (recorder != null) {
+        try {
+          recorder.record(batch);
+        } catch (IOException e) {
+          try {
+            closeRecorder();
+          } catch (IOException closeException) {
+            e.addSuppressed(closeException);
+          }
+          throw e;
+        }
+      }
+      if ((batch.size() > 0 || !batch.isComplete()) && cellChanges.hasSubscribers()) {
+        cellChanges.onNext(batch);
+      }
+    }
     if (changes > 0) {
+      long snapshotStart = System.nanoTime();
+      publishSnapshots();
+      metrics.recordSnapshot(System.nanoTime() - snapshotStart);
       this.ecosystem.postValue(ecosystem);
     }
+    long end = System.nanoTime();
+    long iterations = ecosystem.getIterationCount() - startIterationCount;
+    metrics.recordTick(iterations, changes, end - start, Math.max(0, start - scheduledNanos));
+    if (pacer != null) {
+      pacer.record(numIterations, iterations, end - start);
+    }
+    previousTickEnd = end;
     if (ecosystem.isAbsorbed()) {
       clearTicker();
-    } else if (ticker != null && !ticker.hasComplete()) {
-      ticker.onNext(0);
     }
     return changes;
   }
 
+  private long advanceReplay(double stepsPerSecond, long elapsedNanos) throws IOException {
+    TrajectoryReplay replay = openReplay();
+    Ecosystem ecosystem = replay.getEcosystem();
+    if (replay.isFinished() && elapsedNanos == 0) {
+      replay.seek(replay.getFirstIteration());
+    } else {
+      int numCells = ecosystem.getSize() * ecosystem.getSize();
+      replay.seek(ecosystem.getIterationCount()
+          + Math.round(stepsPerSecond * numCells * elapsedNanos / TimeUnit.SECONDS.toNanos(1)));
+    }
+    recordHistory(ecosystem);
+    analyzeTerrain(ecosystem);
+    publishSnapshots();
+    this.ecosystem.postValue(ecosystem);
+    if (replay.isFinished()) {
+      clearTicker();
+    }
+    return ecosystem.getIterationCount();
+  }
+
+  private void createSnapshots(Ecosystem ecosystem) {
+    renderSnapshots = new SnapshotBuffer(ecosystem);
+    // Only the renderer needs a copy of the terrain.
+    snapshots = new SnapshotBuffer(ecosystem, false);
+    PopulationHistory history = new PopulationHistory(ecosystem.getInitialBreedCount());
+    history.record(ecosystem.getIterationCount(), ecosystem.getPopulations());
+    populationHistory = history;
+    clusterAnalyzer = null;
+    structureFactorAnalyzer = null;
+    nextAnalysis = System.nanoTime();
+    clusters.postValue(null);
+    structureFactor.postValue(null);
+  }
+
+  private void publishSnapshots() {
+    snapshots.publish();
+    renderSnapshots.publish();
+  }
+
+  private void recordHistory(Ecosystem ecosystem) {
+    populationHistory.record(ecosystem.getIterationCount(), ecosystem.getPopulations());
+  }
+
+  private void analyzeTerrain(Ecosystem ecosystem) {
+    long interval = analysisIntervalNanos;
+    if (interval <= 0) {
+      clusterAnalyzer = null;
+      structureFactorAnalyzer = null;
+    } else {
+      long now = System.nanoTime();
+      if (now - nextAnalysis >= 0) {
+        if (clusterAnalyzer == null) {
+          clusterAnalyzer = new ClusterAnalyzer(ecosystem);
+          structureFactorAnalyzer = new StructureFactorAnalyzer(ecosystem);
+        }
+        // Each analyzer skips a capture only while its own previous analysis is in progress.
+        if (captureClusters() | captureStructureFactor()) {
+          nextAnalysis = now + interval;
+        }
+      }
+    }
+  }
+
+  private boolean captureClusters() {
+    ClusterAnalyzer analyzer = clusterAnalyzer;
+    boolean captured = analyzer.capture();
+    if (captured) {
+      //noinspection ResultOfMethodCallIgnored
+      Single.fromCallable(analyzer::analyze)
+          .subscribeOn(Schedulers.computation())
+          .subscribe((statistics) -> {
+            // Discard the results of an analysis that completes after the ecosystem changed.
+            if (analyzer == clusterAnalyzer) {
+              clusters.postValue(statistics);
+            }
+          }, (throwable) -> clusters.postValue(null));
+    }
+    return captured;
+  }
+
+  private boolean captureStructureFactor() {
+    StructureFactorAnalyzer analyzer = structureFactorAnalyzer;
+    boolean captured = analyzer.capture();
+    if (captured) {
+      //noinspection ResultOfMethodCallIgnored
+      Single.fromCallable(analyzer::analyze)
+          .subscribeOn(Schedulers.computation())
+          .subscribe((spectrum) -> {
+            if (analyzer == structureFactorAnalyzer) {
+              structureFactor.postValue(spectrum);
+            }
+          }, (throwable) -> structureFactor.postValue(null));
+    }
+    return captured;
+  }
+
+  private TrajectoryReplay openReplay() throws IOException {
+    if (replay == null) {
+      closeRecorder();
+      replay = TrajectoryReplay.open(trajectoryFile);
+      createSnapshots(replay.getEcosystem());
+    }
+    return replay;
+  }
+
+  private void closeReplay() throws IOException {
+    if (replay != null) {
+      TrajectoryReplay replay = this.replay;
+      this.replay = null;
+      replay.close();
+    }
+  }
+
+  private void closeRecorder() throws IOException {
+    if (recorder != null) {
+      TrajectoryRecorder recorder = this.recorder;
+      this.recorder = null;
+      recording.postValue(false);
+      recorder.close();
+    }
+  }
+
+  private CellChangeLog attachChangeLog(Ecosystem ecosystem) {
+    CellChangeLog changeLog = null;
+    if (cellChanges.hasSubscribers() || recorder != null) {
+      changeLog = ecosystem.getChangeLog();
+      if (changeLog == null) {
+        int size = ecosystem.getSize();
+        changeLog = new CellChangeLog(
+            (int) Math.min(MAX_CHANGE_LOG_CAPACITY, (long) CHANGE_LOG_CAPACITY_FACTOR * size * size));
+        ecosystem.setChangeLog(changeLog);
+      }
+    } else {
+      ecosystem.setChangeLog(null);
+    }
+    return changeLog;
+  }
+
 }
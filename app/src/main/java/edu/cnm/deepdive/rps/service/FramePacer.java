@@ -0,0 +1,136 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.service;
+
+/**
+ * Decides which display frames a frame-paced simulation run should use, and how many iterations to
+ * perform on each. The batch size is adapted to a wall-clock budget per frame, using a smoothed
+ * estimate of the measured cost of an iteration (including the per-batch overhead of snapshot
+ * publication, amortized over the batch); optionally, it is further limited to a requested rate of
+ * iterations per second, with unused allowance carried forward for no more than
+ * {@value #MAX_CREDIT_FRAMES} frames, so that a stall is not followed by a burst.
+ * <p>Batches too short to be timed reliably are accumulated until their total time is long enough
+ * for a sample; until the first sample is taken, the batch size is doubled after each such batch,
+ * so that small terrains quickly reach a measurable (and useful) batch size.</p>
+ * <p>Instances are not thread-safe; each should be confined to the thread executing the
+ * simulation.</p>
+ */
+final class FramePacer {
+
+  private static final double SMOOTHING = 0.25;
+  private static final long MIN_SAMPLE_NANOS = 50_000;
+  private static final int MAX_CREDIT_FRAMES = 2;
+
+  private final long frameIntervalNanos;
+  private final long budgetNanos;
+  private final long dueToleranceNanos;
+  private final double iterationsPerNano;
+  private final int maxBatch;
+
+  private double nanosPerIteration;
+  private int probeBatch;
+  private long pendingIterations;
+  private long pendingNanos;
+  private double credit;
+  private long previousFrameNanos;
+
+  /**
+   * Initializes this instance with the specified pacing targets.
+   *
+   * @param frameIntervalNanos   Requested interval between batches, in nanoseconds; this is
+   *                             normally a whole multiple of the display refresh interval.
+   * @param refreshIntervalNanos Display refresh interval, in nanoseconds.
+   * @param budgetNanos          Wall-clock time to be spent on each batch, in nanoseconds.
+   * @param iterationsPerSecond  Maximum rate of iterations per second; if this is not positive,
+   *                             the rate is limited only by {@code budgetNanos}.
+   * @param initialBatch         Number of iterations in the first batch, before any cost
+   *                             measurement is available; this is doubled after each batch too
+   *                             short to be timed, until a measurement is available.
+   * @param maxBatch             Upper limit on the number of iterations in any batch.
+   */
+  FramePacer(long frameIntervalNanos, long refreshIntervalNanos, long budgetNanos,
+      double iterationsPerSecond, int initialBatch, int maxBatch) {
+    this.frameIntervalNanos = frameIntervalNanos;
+    this.budgetNanos = budgetNanos;
+    dueToleranceNanos = refreshIntervalNanos / 2;
+    iterationsPerNano = (iterationsPerSecond > 0) ? iterationsPerSecond / 1e9 : 0;
+    this.maxBatch = maxBatch;
+    nanosPerIteration = Double.NaN;
+    probeBatch = Math.max(1, Math.min(initialBatch, maxBatch));
+  }
+
+  /**
+   * Returns {@code true} if a batch should be performed for the frame with the specified
+   * timestamp. Frames arriving sooner than the requested interval after the previous batch's frame
+   * (less half a refresh interval, to absorb jitter in the reported frame times) are skipped.
+   *
+   * @param frameTimeNanos Frame timestamp, in the {@link System#nanoTime()} time base.
+   */
+  boolean isDue(long frameTimeNanos) {
+    return previousFrameNanos == 0
+        || frameTimeNanos - previousFrameNanos >= frameIntervalNanos - dueToleranceNanos;
+  }
+
+  /**
+   * Returns the number of iterations to perform for the frame with the specified timestamp; this
+   * may be zero, if the requested rate has already been met.
+   *
+   * @param frameTimeNanos Frame timestamp, in the {@link System#nanoTime()} time base.
+   */
+  int next(long frameTimeNanos) {
+    long elapsed =
+        (previousFrameNanos != 0) ? frameTimeNanos - previousFrameNanos : frameIntervalNanos;
+    previousFrameNanos = frameTimeNanos;
+    double batch = Double.isNaN(nanosPerIteration)
+        ? probeBatch
+        : budgetNanos / nanosPerIteration;
+    if (iterationsPerNano > 0) {
+      credit = Math.min(credit + iterationsPerNano * elapsed,
+          iterationsPerNano * frameIntervalNanos * MAX_CREDIT_FRAMES);
+      batch = Math.min(batch, credit);
+    }
+    return (int) Math.max(0, Math.min(batch, maxBatch));
+  }
+
+  /**
+   * Updates the iteration cost estimate and rate allowance with the measured outcome of a batch.
+   * The cost estimate is based on the work actually done&mdash;at most the number of iterations
+   * requested&mdash;and not on any additional iterations skipped over by
+   * {@link edu.cnm.deepdive.rps.model.domain.Ecosystem#setFastForward(boolean) fast-forward}.
+   *
+   * @param requestedIterations Number of iterations requested for the batch.
+   * @param numIterations       Number of iterations by which the iteration count advanced.
+   * @param elapsedNanos        Elapsed time of the batch, in nanoseconds.
+   */
+  void record(long requestedIterations, long numIterations, long elapsedNanos) {
+    credit = Math.max(0, credit - numIterations);
+    pendingIterations += Math.min(requestedIterations, numIterations);
+    pendingNanos += elapsedNanos;
+    if (pendingNanos >= MIN_SAMPLE_NANOS) {
+      if (pendingIterations > 0) {
+        double sample = (double) pendingNanos / pendingIterations;
+        nanosPerIteration = Double.isNaN(nanosPerIteration)
+            ? sample
+            : nanosPerIteration + SMOOTHING * (sample - nanosPerIteration);
+      }
+      pendingIterations = 0;
+      pendingNanos = 0;
+    } else if (Double.isNaN(nanosPerIteration) && requestedIterations >= probeBatch) {
+      probeBatch = (int) Math.min(2L * probeBatch, maxBatch);
+    }
+  }
+
+}
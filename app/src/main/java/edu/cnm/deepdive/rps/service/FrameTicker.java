@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.service;
+
+import android.content.Context;
+import android.hardware.display.DisplayManager;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
+import android.view.Display;
+import dagger.hilt.android.qualifiers.ApplicationContext;
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Publishes the display's vertical synchronization (vsync) events, as reported by
+ * {@link Choreographer}, so that simulation batches can be aligned with the display refresh rather
+ * than with a fixed delay.
+ */
+@Singleton
+public class FrameTicker {
+
+  private static final float DEFAULT_REFRESH_RATE = 60;
+
+  private final DisplayManager displayManager;
+  private final Flowable<Long> frames;
+
+  @Inject
+  FrameTicker(@ApplicationContext Context context) {
+    displayManager = context.getSystemService(DisplayManager.class);
+    frames = Flowable.<Long>create((emitter) -> {
+          Choreographer choreographer = Choreographer.getInstance();
+          FrameCallback callback = new FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+              if (!emitter.isCancelled()) {
+                emitter.onNext(frameTimeNanos);
+                choreographer.postFrameCallback(this);
+              }
+            }
+          };
+          emitter.setCancellable(() -> choreographer.removeFrameCallback(callback));
+          choreographer.postFrameCallback(callback);
+        }, BackpressureStrategy.LATEST)
+        .subscribeOn(AndroidSchedulers.mainThread())
+        .share();
+  }
+
+  /**
+   * Returns a {@link Flowable Flowable&lt;Long&gt;} emitting the timestamp (in the
+   * {@link System#nanoTime()} time base) of each display frame, for as long as it is subscribed to.
+   * Frame callbacks are registered on the main thread, and only the most recent frame is retained
+   * for a subscriber that cannot keep up; a subscriber doing substantial work per frame should
+   * therefore observe on another thread with a prefetch of 1 (e.g.
+   * {@code observeOn(scheduler, false, 1)}), so that it skips the frames it misses rather than
+   * falling progressively further behind.
+   */
+  public Flowable<Long> getFrames() {
+    return frames;
+  }
+
+  /**
+   * Returns the current refresh interval of the default display, in nanoseconds.
+   */
+  public long getRefreshIntervalNanos() {
+    Display display =
+        (displayManager != null) ? displayManager.getDisplay(Display.DEFAULT_DISPLAY) : null;
+    float refreshRate = (display != null) ? display.getRefreshRate() : 0;
+    return Math.round(
+        TimeUnit.SECONDS.toNanos(1) / ((refreshRate > 0) ? refreshRate : DEFAULT_REFRESH_RATE));
+  }
+
+}
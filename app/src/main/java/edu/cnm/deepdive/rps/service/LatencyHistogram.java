@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations, with fixed log-linear buckets: durations below 1 &micro;s share
+ * a single bucket, and each power-of-2 range above that is divided into 4 equal buckets (for a
+ * relative precision of 25% or better), up to about 17 s. Recording a duration is a single atomic
+ * increment; reading is performed by taking the difference between the current counts and those
+ * read previously, so that each reading covers only the durations recorded since the last.
+ */
+final class LatencyHistogram {
+
+  private static final int MIN_EXPONENT = 10;
+  private static final int MAX_EXPONENT = 34;
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = 1 + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final long[] previous;
+  private final long[] window;
+
+  LatencyHistogram() {
+    counts = new AtomicLongArray(BUCKETS);
+    previous = new long[BUCKETS];
+    window = new long[BUCKETS];
+  }
+
+  void record(long nanos) {
+    counts.incrementAndGet(bucket(nanos));
+  }
+
+  /**
+   * Captures the counts recorded since the previous invocation, for subsequent use by
+   * {@link #getCount()} and {@link #getPercentile(double)}. This must only be invoked by a single
+   * thread at a time.
+   */
+  void capture() {
+    for (int i = 0; i < BUCKETS; i++) {
+      long count = counts.get(i);
+      window[i] = count - previous[i];
+      previous[i] = count;
+    }
+  }
+
+  /**
+   * Returns the number of durations in the most recently captured window.
+   */
+  long getCount() {
+    long total = 0;
+    for (long count : window) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the upper bound (in nanoseconds) of the bucket containing the specified percentile of
+   * the most recently captured window, or 0 if the window is empty.
+   *
+   * @param percentile Percentile, in the range from 0 to 100 (inclusive).
+   */
+  long getPercentile(double percentile) {
+    long total = getCount();
+    long result = 0;
+    if (total > 0) {
+      long threshold = (long) Math.ceil(total * percentile / 100);
+      long cumulative = 0;
+      int bucket = 0;
+      while (bucket < BUCKETS - 1 && (cumulative += window[bucket]) < threshold) {
+        bucket++;
+      }
+      result = upperBound(bucket);
+    }
+    return result;
+  }
+
+  private static int bucket(long nanos) {
+    int bucket;
+    if (nanos < (1L << MIN_EXPONENT)) {
+      bucket = 0;
+    } else if (nanos >= (1L << (MAX_EXPONENT + 1))) {
+      bucket = BUCKETS - 1;
+    } else {
+      int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+      int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      bucket = 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+    return bucket;
+  }
+
+  private static long upperBound(int bucket) {
+    long bound;
+    if (bucket == 0) {
+      bound = 1L << MIN_EXPONENT;
+    } else {
+      int exponent = (bucket - 1) / SUB_BUCKETS + MIN_EXPONENT;
+      int subBucket = (bucket - 1) % SUB_BUCKETS;
+      bound = (long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+    }
+    return bound;
+  }
+
+}
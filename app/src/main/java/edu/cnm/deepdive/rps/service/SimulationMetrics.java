@@ -0,0 +1,246 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Records runtime measures of the simulation and its presentation&mdash;iterations and changes
+ * performed, duration of each tick (batch of iterations), lateness of each tick relative to its
+ * scheduled start, duration of each snapshot copy, and duration of each terrain rendering&mdash;and
+ * summarizes them on demand. Recording is lock-free (using {@link LongAdder} counters and
+ * fixed-bucket histograms), and so may be performed on any thread, with negligible overhead.
+ */
+@Singleton
+public class SimulationMetrics {
+
+  private static final double NANOS_PER_MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final double MEDIAN = 50;
+  private static final double TAIL = 99;
+
+  private final LongAdder iterations;
+  private final LongAdder changes;
+  private final LatencyHistogram tickDurations;
+  private final LatencyHistogram tickLags;
+  private final LatencyHistogram snapshotDurations;
+  private final LatencyHistogram drawDurations;
+
+  private long previousSampleNanos;
+  private long previousIterations;
+  private long previousChanges;
+
+  @Inject
+  SimulationMetrics() {
+    iterations = new LongAdder();
+    changes = new LongAdder();
+    tickDurations = new LatencyHistogram();
+    tickLags = new LatencyHistogram();
+    snapshotDurations = new LatencyHistogram();
+    drawDurations = new LatencyHistogram();
+    previousSampleNanos = System.nanoTime();
+  }
+
+  /**
+   * Records the completion of a single tick of the simulation.
+   *
+   * @param numIterations Number of iterations performed in the tick.
+   * @param numChanges    Number of iterations in which the terrain changed.
+   * @param durationNanos Elapsed time of the tick, in nanoseconds.
+   * @param lagNanos      Time by which the start of the tick was later than scheduled, in
+   *                      nanoseconds.
+   */
+  public void recordTick(long numIterations, long numChanges, long durationNanos, long lagNanos) {
+    iterations.add(numIterations);
+    changes.add(numChanges);
+    tickDurations.record(durationNanos);
+    tickLags.record(lagNanos);
+  }
+
+  /**
+   * Records the duration of a copy of the simulation state for presentation.
+   *
+   * @param durationNanos Elapsed time of the copy, in nanoseconds.
+   */
+  public void recordSnapshot(long durationNanos) {
+    snapshotDurations.record(durationNanos);
+  }
+
+  /**
+   * Records the duration of a rendering of the terrain.
+   *
+   * @param durationNanos Elapsed time of the rendering, in nanoseconds.
+   */
+  public void recordDraw(long durationNanos) {
+    drawDurations.record(durationNanos);
+  }
+
+  /**
+   * Summarizes the measures recorded since the previous invocation of this method. Rates are
+   * computed over the elapsed time since the previous invocation; percentiles are computed from the
+   * durations recorded in that time, with a relative precision of 25% or better.
+   */
+  public synchronized Sample sample() {
+    long now = System.nanoTime();
+    double elapsedSeconds = (now - previousSampleNanos) / NANOS_PER_SECOND;
+    long totalIterations = iterations.sum();
+    long totalChanges = changes.sum();
+    tickDurations.capture();
+    tickLags.capture();
+    snapshotDurations.capture();
+    drawDurations.capture();
+    Sample sample = new Sample(
+        (totalIterations - previousIterations) / elapsedSeconds,
+        (totalChanges - previousChanges) / elapsedSeconds,
+        tickDurations.getCount() / elapsedSeconds,
+        toMillis(tickDurations.getPercentile(MEDIAN)),
+        toMillis(tickDurations.getPercentile(TAIL)),
+        toMillis(tickLags.getPercentile(MEDIAN)),
+        toMillis(tickLags.getPercentile(TAIL)),
+        toMillis(snapshotDurations.getPercentile(MEDIAN)),
+        drawDurations.getCount() / elapsedSeconds,
+        toMillis(drawDurations.getPercentile(MEDIAN)),
+        toMillis(drawDurations.getPercentile(TAIL))
+    );
+    previousSampleNanos = now;
+    previousIterations = totalIterations;
+    previousChanges = totalChanges;
+    return sample;
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / NANOS_PER_MILLISECOND;
+  }
+
+  /**
+   * Immutable summary of the measures recorded by {@link SimulationMetrics} over a single sampling
+   * interval. All durations are in milliseconds; all rates are per second.
+   */
+  public static final class Sample {
+
+    private final double iterationsPerSecond;
+    private final double changesPerSecond;
+    private final double ticksPerSecond;
+    private final double medianTickMillis;
+    private final double tailTickMillis;
+    private final double medianLagMillis;
+    private final double tailLagMillis;
+    private final double medianSnapshotMillis;
+    private final double drawsPerSecond;
+    private final double medianDrawMillis;
+    private final double tailDrawMillis;
+
+    Sample(double iterationsPerSecond, double changesPerSecond, double ticksPerSecond,
+        double medianTickMillis, double tailTickMillis, double medianLagMillis,
+        double tailLagMillis, double medianSnapshotMillis, double drawsPerSecond,
+        double medianDrawMillis, double tailDrawMillis) {
+      this.iterationsPerSecond = iterationsPerSecond;
+      this.changesPerSecond = changesPerSecond;
+      this.ticksPerSecond = ticksPerSecond;
+      this.medianTickMillis = medianTickMillis;
+      this.tailTickMillis = tailTickMillis;
+      this.medianLagMillis = medianLagMillis;
+      this.tailLagMillis = tailLagMillis;
+      this.medianSnapshotMillis = medianSnapshotMillis;
+      this.drawsPerSecond = drawsPerSecond;
+      this.medianDrawMillis = medianDrawMillis;
+      this.tailDrawMillis = tailDrawMillis;
+    }
+
+    /**
+     * Returns the number of simulation iterations performed per second.
+     */
+    public double getIterationsPerSecond() {
+      return iterationsPerSecond;
+    }
+
+    /**
+     * Returns the number of iterations per second in which the terrain changed.
+     */
+    public double getChangesPerSecond() {
+      return changesPerSecond;
+    }
+
+    /**
+     * Returns the number of ticks (batches of iterations) completed per second.
+     */
+    public double getTicksPerSecond() {
+      return ticksPerSecond;
+    }
+
+    /**
+     * Returns the median duration of a tick.
+     */
+    public double getMedianTickMillis() {
+      return medianTickMillis;
+    }
+
+    /**
+     * Returns the 99th percentile duration of a tick.
+     */
+    public double getTailTickMillis() {
+      return tailTickMillis;
+    }
+
+    /**
+     * Returns the median time by which the start of a tick was later than scheduled.
+     */
+    public double getMedianLagMillis() {
+      return medianLagMillis;
+    }
+
+    /**
+     * Returns the 99th percentile of the time by which the start of a tick was later than
+     * scheduled.
+     */
+    public double getTailLagMillis() {
+      return tailLagMillis;
+    }
+
+    /**
+     * Returns the median duration of a snapshot copy.
+     */
+    public double getMedianSnapshotMillis() {
+      return medianSnapshotMillis;
+    }
+
+    /**
+     * Returns the number of terrain renderings per second.
+     */
+    public double getDrawsPerSecond() {
+      return drawsPerSecond;
+    }
+
+    /**
+     * Returns the median duration of a terrain rendering.
+     */
+    public double getMedianDrawMillis() {
+      return medianDrawMillis;
+    }
+
+    /**
+     * Returns the 99th percentile duration of a terrain rendering.
+     */
+    public double getTailDrawMillis() {
+      return tailDrawMillis;
+    }
+
+  }
+
+}
@@ -16,27 +16,117 @@
 package edu.cnm.deepdive.rps.view;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.util.AttributeSet;
-import android.view.View;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
+import android.view.GestureDetector;
+import android.view.GestureDetector.SimpleOnGestureListener;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.ScaleGestureDetector.OnScaleGestureListener;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import edu.cnm.deepdive.rps.model.domain.Snapshot;
+import edu.cnm.deepdive.rps.model.domain.TerrainPyramid;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 /**
  * Custom view that renders the terrain of an intransitive ecosystem (e.g. Rock-Paper-Scissors) as a
  * lattice or grid. All cells in the grid are occupied by members of the competing breeds, and each
- * is displayed as a circle filled with a color specific to that breed.
+ * is displayed in a color specific to that breed.
+ * <p>Rendering is performed on a dedicated thread, rather than the UI thread, into the surface of
+ * this {@link SurfaceView}. The terrain is read from the {@link Snapshot} instances supplied by the
+ * source set with {@link #setSnapshotSource(Supplier)}; when {@link #requestRender()} is invoked, the
+ * most recent snapshot is acquired and drawn in the next vsync frame. Any number of requests made
+ * before that frame are coalesced, so that the terrain is drawn at most once per frame.</p>
+ * <p>The terrain may be zoomed (with a pinch gesture) and panned (by dragging); a double tap
+ * returns to the initial view, in which the entire terrain fits the view. Only the visible portion
+ * of the terrain is drawn, from the finest level of an incrementally maintained
+ * {@link TerrainPyramid} that has no more than one cell per screen pixel; thus, the cost of
+ * rendering depends on the number of pixels on screen, rather than the size of the terrain.</p>
+ * <p>When cells are small on screen, each visible cell is a single pixel of a {@link Bitmap},
+ * written from a palette of breed colors into a reusable {@code int[]} buffer; the bitmap is then
+ * drawn scaled to the view, without filtering (so that cells are rendered as sharp squares), in a
+ * single draw call. Only the rows flagged as changed in each snapshot are rewritten, unless the
+ * visible portion of the terrain changes. When cells are large enough for their shape to be
+ * visible, each visible cell is drawn as a circle.</p>
  */
-public class TerrainView extends View {
+public class TerrainView extends SurfaceView implements SurfaceHolder.Callback, FrameCallback {
 
   private static final float COLOR_SATURATION = 1f;
   private static final float COLOR_VALUE = 1f;
+  /** Minimum size (in pixels) of a cell on screen, for it to be drawn as a circle. */
+  private static final float MIN_SHAPED_CELL_SIZE = 20;
+  /** Maximum size (in pixels) of a cell on screen, limiting the zoom of small terrains. */
+  private static final float MAX_CELL_SIZE = 100;
+  private static final String RENDER_THREAD_NAME = "TerrainRenderer";
 
+  private final Paint pixelPaint = new Paint();
+  private final Rect source = new Rect();
+  private final RectF destination = new RectF();
+  private final AtomicBoolean frameRequested = new AtomicBoolean();
+  private final Runnable frameScheduler = () -> Choreographer.getInstance().postFrameCallback(this);
+  private final ScaleGestureDetector scaleDetector;
+  private final GestureDetector gestureDetector;
+  private final int backgroundColor;
+
+  {
+    pixelPaint.setFilterBitmap(false);
+    TypedValue value = new TypedValue();
+    getContext().getTheme().resolveAttribute(android.R.attr.colorBackground, value, true);
+    backgroundColor = (value.type >= TypedValue.TYPE_FIRST_COLOR_INT
+        && value.type <= TypedValue.TYPE_LAST_COLOR_INT) ? value.data : Color.BLACK;
+    GestureListener listener = new GestureListener();
+    scaleDetector = new ScaleGestureDetector(getContext(), listener);
+    gestureDetector = new GestureDetector(getContext(), listener);
+    getHolder().addCallback(this);
+  }
+
+  // Written on the UI thread; read on the render thread.
+  private volatile Supplier<Snapshot> snapshotSource;
+  private volatile int[] palette;
+  private volatile Viewport viewport = Viewport.FIT;
+  private volatile LongConsumer drawTimeListener;
+  private volatile Handler renderHandler;
+  private HandlerThread renderThread;
+
+  // Written on the render thread; read on the UI thread.
+  private volatile int terrainSize;
+
+  // Accessed only on the render thread.
+  private int[] renderedPalette;
   private Paint[] breedPaints;
-  private int[][] terrain;
+  private Viewport renderedViewport;
+  private TerrainPyramid pyramid;
+  private boolean pyramidUpdated;
+  private int level = -1;
+  private boolean[] pendingRows;
+  private boolean fullRepaint;
+  private boolean surfaceStale;
+  private int surfaceWidth;
+  private int surfaceHeight;
+  private Bitmap pixelBitmap;
+  private int[] pixels;
+  private int regionLeft;
+  private int regionTop;
+  private int regionRight;
+  private int regionBottom;
 
   /**
    * Chains to the corresponding superclass constructor to initialize the inherited state.
@@ -104,42 +194,174 @@ public class TerrainView extends View {
   }
 
   /**
-   * Iterates over the terrain (specified as an argument to {@link #setTerrain(int[][])}, rendering
-   * its contents to the {@code canvas}. Each row of the terrain array is rendered as a row of
-   * circles, squares, or rounded rectangles, each drawn with the {@link Paint} instance
-   * corresponding to the breed number of the corresponding element in the terrain.
+   * Starts the render thread, on which all drawing to the surface of this view is performed, and
+   * requests the rendering of the current terrain.
    *
-   * @param canvas Drawing surface.
+   * @param holder Holder of the newly created surface.
    */
   @Override
-  protected void onDraw(@NonNull Canvas canvas) {
-    super.onDraw(canvas);
-
-    if (terrain != null && breedPaints != null) {
+  public void surfaceCreated(@NonNull SurfaceHolder holder) {
+    renderThread = new HandlerThread(RENDER_THREAD_NAME);
+    renderThread.start();
+    frameRequested.set(false);
+    renderHandler = new Handler(renderThread.getLooper());
+    requestRender();
+  }
 
-      float cellSize =
-          Math.min((float) getWidth() / terrain[0].length, (float) getHeight() / terrain.length);
+  /**
+   * Passes the new dimensions of the surface to the render thread, and requests the rendering of
+   * the current terrain at those dimensions.
+   *
+   * @param holder Holder of the changed surface.
+   * @param format Pixel format of the surface.
+   * @param width  Width of the surface, in pixels.
+   * @param height Height of the surface, in pixels.
+   */
+  @Override
+  public void surfaceChanged(@NonNull SurfaceHolder holder, int format, int width, int height) {
+    Handler handler = renderHandler;
+    if (handler != null) {
+      handler.post(() -> resize(width, height));
+      requestRender();
+    }
+  }
 
-      ShapePainter painter = (cellSize < 20) ? Canvas::drawRect : Canvas::drawOval;
+  /**
+   * Stops the render thread, releasing its offscreen bitmaps; this method does not return until any
+   * frame in progress has been posted to the surface.
+   *
+   * @param holder Holder of the surface being destroyed.
+   */
+  @Override
+  public void surfaceDestroyed(@NonNull SurfaceHolder holder) {
+    Handler handler = renderHandler;
+    renderHandler = null;
+    if (handler != null) {
+      handler.post(this::release);
+      renderThread.quitSafely();
+      boolean interrupted = false;
+      while (renderThread.isAlive()) {
+        try {
+          renderThread.join();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      renderThread = null;
+    }
+  }
 
-      for (int rowIndex = 0; rowIndex < terrain.length; rowIndex++) {
-        float rowOffset = rowIndex * cellSize;
-        for (int colIndex = 0; colIndex < terrain[rowIndex].length; colIndex++) {
-          float colOffset = colIndex * cellSize;
-          painter.paint(canvas, colOffset, rowOffset, colOffset + cellSize, rowOffset + cellSize,
-              breedPaints[terrain[rowIndex][colIndex]]);
+  /**
+   * Acquires the most recent snapshot from the source set with
+   * {@link #setSnapshotSource(Supplier)}, and updates the level-of-detail pyramid from it; then
+   * draws the visible portion of the terrain to the surface. Each visible row of the selected level
+   * of the pyramid is rendered either as a row of pixels, colored from the palette entry
+   * corresponding to the breed number of each cell, or (if the cells are large enough) as a row of
+   * circles, each drawn with the {@link Paint} instance corresponding to that breed number. This is
+   * invoked on the render thread, in response to {@link #requestRender()}.
+   *
+   * @param frameTimeNanos Start time of the vsync frame, in nanoseconds.
+   */
+  @Override
+  public void doFrame(long frameTimeNanos) {
+    // Cleared before the snapshot is acquired, so that any later request schedules another frame.
+    frameRequested.set(false);
+    long start = System.nanoTime();
+    Supplier<Snapshot> source = snapshotSource;
+    Snapshot snapshot = (source != null) ? source.get() : null;
+    if (snapshot != null && snapshot.getCells() != null) {
+      update(snapshot);
+    }
+    int[] palette = this.palette;
+    if (palette != renderedPalette) {
+      renderedPalette = palette;
+      breedPaints = (palette != null)
+          ? IntStream.of(palette)
+              .mapToObj((color) -> {
+                Paint paint = new Paint();
+                paint.setColor(color);
+                return paint;
+              })
+              .toArray(Paint[]::new)
+          : null;
+      fullRepaint = true;
+    }
+    Viewport viewport = this.viewport;
+    if (viewport != renderedViewport) {
+      renderedViewport = viewport;
+      surfaceStale = true;
+    }
+    if (surfaceWidth > 0 && surfaceHeight > 0 && (surfaceStale || isRepaintPending())) {
+      Canvas canvas = getHolder().lockHardwareCanvas();
+      if (canvas != null) {
+        try {
+          render(canvas, viewport);
+        } finally {
+          getHolder().unlockCanvasAndPost(canvas);
+        }
+        surfaceStale = false;
+        LongConsumer listener = drawTimeListener;
+        if (listener != null) {
+          listener.accept(System.nanoTime() - start);
         }
       }
+    }
+  }
+
+  /**
+   * Passes touch events to the detectors of the pinch (zoom), drag (pan), and double-tap (reset)
+   * gestures.
+   *
+   * @param event Touch event.
+   * @return Flag indicating whether {@code event} was handled.
+   */
+  @Override
+  public boolean onTouchEvent(MotionEvent event) {
+    boolean handled = scaleDetector.onTouchEvent(event);
+    handled |= gestureDetector.onTouchEvent(event);
+    return handled || super.onTouchEvent(event);
+  }
 
+  @Override
+  public boolean performClick() {
+    return super.performClick();
+  }
+
+  /**
+   * Requests that the most recent snapshot of the terrain be rendered in the next vsync frame of
+   * the render thread. Requests made before that frame are coalesced; this may be invoked any
+   * number of times, on any thread, at negligible cost.
+   */
+  public void requestRender() {
+    Handler handler = renderHandler;
+    if (handler != null && frameRequested.compareAndSet(false, true)) {
+      handler.post(frameScheduler);
     }
   }
 
   /**
-   * Constructs an array of {@link Paint} instances with a length equal to {@code numBreeds}. The
-   * instance at a given position in of the array will be used when drawing each individual of the
-   * breed identified by the same number as that position. For example, the {@link Paint} instance
-   * in position 2 will be used to draw all members of breed 2 in the grid.
-   * <p>All of the color values in the array are specified using the Hue-Saturation-Value (HSV)
+   * Sets the source of the {@link Snapshot} instances from which the terrain is rendered, or (if
+   * {@code source} is {@code null}) removes the current source. The source is invoked only on the
+   * render thread, once in each frame rendered; it must therefore be safe to invoke from that
+   * thread (e.g. {@link edu.cnm.deepdive.rps.service.EcosystemRepository#getRenderSnapshot()}), and
+   * the snapshots it returns must include a copy of the terrain.
+   *
+   * @param source Supplier of the most recent snapshot, or {@code null} if none is available.
+   */
+  public void setSnapshotSource(@Nullable Supplier<Snapshot> source) {
+    snapshotSource = source;
+    requestRender();
+  }
+
+  /**
+   * Constructs a palette of colors with a length equal to {@code numBreeds}. The color at a given
+   * position in the palette will be used when drawing each individual of the breed identified by
+   * the same number as that position. For example, the color in position 2 will be used to draw all
+   * members of breed 2 in the grid.
+   * <p>All of the color values in the palette are specified using the Hue-Saturation-Value (HSV)
    * color model: all have the same saturation and value, while the hues are distributed evenly
    * around the 360&#176; of the color wheel, {@code (360 / numBreeds)}&#176; apart.</p>
    *
@@ -147,31 +369,275 @@ public class TerrainView extends View {
    */
   public void setNumBreeds(int numBreeds) {
     float colorWidth = 360f / numBreeds;
-    breedPaints = IntStream.range(0, numBreeds)
-        .mapToObj((breed) -> {
-          Paint paint = new Paint();
-          paint.setColor(
-              Color.HSVToColor(new float[]{colorWidth * breed, COLOR_SATURATION, COLOR_VALUE}));
-          return paint;
-        })
-        .toArray(Paint[]::new);
+    palette = IntStream.range(0, numBreeds)
+        .map((breed) ->
+            Color.HSVToColor(new float[]{colorWidth * breed, COLOR_SATURATION, COLOR_VALUE}))
+        .toArray();
+    requestRender();
   }
 
   /**
-   * Sets the {@code int[][]} terrain to be rendered, as described in {@link #onDraw(Canvas)}. The
-   * value of each element in the terrain is the breed number of the individual occupying that
-   * position in the terrain.
+   * Sets the listener to which the elapsed time (in nanoseconds) of each rendering of the terrain in
+   * {@link #doFrame(long)} is passed, or (if {@code listener} is {@code null}) removes the current
+   * listener. The listener is invoked on the render thread.
    *
-   * @param terrain {@code int[][]} to be rendered.
+   * @param listener Consumer of rendering durations.
    */
-  public void setTerrain(int[][] terrain) {
-    this.terrain = terrain;
+  public void setDrawTimeListener(@Nullable LongConsumer listener) {
+    drawTimeListener = listener;
+  }
+
+  private void setViewport(Viewport viewport) {
+    this.viewport = viewport;
+    requestRender();
+  }
+
+  private float getMaxZoom() {
+    return Math.max(1, MAX_CELL_SIZE * terrainSize / Math.min(getWidth(), getHeight()));
+  }
+
+  private void zoom(float factor, float focusX, float focusY) {
+    Viewport current = viewport;
+    float extent = Math.min(getWidth(), getHeight());
+    float zoom = Math.max(1, Math.min(current.zoom * factor, getMaxZoom()));
+    // Keep the point of the terrain under the focus of the gesture in place.
+    float offsetX = focusX - getWidth() / 2f;
+    float offsetY = focusY - getHeight() / 2f;
+    float centerX = current.centerX + offsetX / (extent * current.zoom) - offsetX / (extent * zoom);
+    float centerY = current.centerY + offsetY / (extent * current.zoom) - offsetY / (extent * zoom);
+    setViewport(constrain(zoom, centerX, centerY));
+  }
+
+  private void pan(float distanceX, float distanceY) {
+    Viewport current = viewport;
+    float extent = Math.min(getWidth(), getHeight()) * current.zoom;
+    setViewport(constrain(current.zoom,
+        current.centerX + distanceX / extent, current.centerY + distanceY / extent));
   }
 
-  @FunctionalInterface
-  private interface ShapePainter {
+  private Viewport constrain(float zoom, float centerX, float centerY) {
+    float extent = Math.min(getWidth(), getHeight()) * zoom;
+    return new Viewport(zoom,
+        constrain(centerX, getWidth() / (2 * extent)), constrain(centerY, getHeight() / (2 * extent)));
+  }
+
+  private static float constrain(float center, float halfSpan) {
+    return (halfSpan >= 0.5f) ? 0.5f : Math.max(halfSpan, Math.min(center, 1 - halfSpan));
+  }
+
+  private void update(Snapshot snapshot) {
+    int size = snapshot.getSize();
+    if (pyramid == null || pyramid.getSize(0) != size) {
+      pyramid = new TerrainPyramid(size);
+      terrainSize = size;
+      level = -1;
+    }
+    pyramid.update(snapshot);
+    pyramidUpdated = true;
+  }
+
+  private boolean isRepaintPending() {
+    return pyramid != null && breedPaints != null && (fullRepaint || pyramidUpdated);
+  }
+
+  private void resize(int width, int height) {
+    surfaceWidth = width;
+    surfaceHeight = height;
+    fullRepaint = true;
+    surfaceStale = true;
+  }
+
+  private void release() {
+    Choreographer.getInstance().removeFrameCallback(this);
+    resize(0, 0);
+    if (pixelBitmap != null) {
+      pixelBitmap.recycle();
+      pixelBitmap = null;
+      pixels = null;
+    }
+  }
+
+  private void render(Canvas canvas, Viewport viewport) {
+    // The contents of the surface are not preserved between frames; every frame is drawn in full.
+    canvas.drawColor(backgroundColor);
+    if (pyramid != null && breedPaints != null) {
+      int size = pyramid.getSize(0);
+      float fit = (float) Math.min(surfaceWidth, surfaceHeight) / size;
+      float scale = Math.min(fit * viewport.zoom, Math.max(fit, MAX_CELL_SIZE));
+      float originX = viewport.centerX * size - surfaceWidth / (2 * scale);
+      float originY = viewport.centerY * size - surfaceHeight / (2 * scale);
+      if (scale < MIN_SHAPED_CELL_SIZE) {
+        drawPixels(canvas, scale, originX, originY);
+      } else {
+        drawShapes(canvas, scale, originX, originY);
+      }
+      fullRepaint = false;
+      pyramidUpdated = false;
+    }
+  }
+
+  private void selectLevel(int level) {
+    if (level != this.level) {
+      this.level = level;
+      pendingRows = new boolean[pyramid.getSize(level)];
+      fullRepaint = true;
+    } else if (pyramidUpdated) {
+      boolean[] dirtyRows = pyramid.getDirtyRows(level);
+      for (int rowIndex = 0; rowIndex < dirtyRows.length; rowIndex++) {
+        pendingRows[rowIndex] |= dirtyRows[rowIndex];
+      }
+    }
+  }
+
+  private void drawPixels(Canvas canvas, float scale, float originX, float originY) {
+    // Select the finest level with no more than one cell per pixel on screen.
+    int level = 0;
+    while (level + 1 < pyramid.getLevelCount() && scale * (1 << level) < 1) {
+      level++;
+    }
+    selectLevel(level);
+    int span = 1 << level;
+    int levelSize = pyramid.getSize(level);
+    int left = Math.max(0, (int) Math.floor(originX / span));
+    int top = Math.max(0, (int) Math.floor(originY / span));
+    int right = Math.min(levelSize, (int) Math.ceil((originX + surfaceWidth / scale) / span));
+    int bottom = Math.min(levelSize, (int) Math.ceil((originY + surfaceHeight / scale) / span));
+    if (right <= left || bottom <= top) {
+      return;
+    }
+    int columns = right - left;
+    int rows = bottom - top;
+    if (pixelBitmap == null || pixelBitmap.getWidth() < columns || pixelBitmap.getHeight() < rows) {
+      int width = Math.max(columns, (pixelBitmap != null) ? pixelBitmap.getWidth() : 0);
+      int height = Math.max(rows, (pixelBitmap != null) ? pixelBitmap.getHeight() : 0);
+      if (pixelBitmap != null) {
+        pixelBitmap.recycle();
+      }
+      pixelBitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+      pixels = new int[width * height];
+      fullRepaint = true;
+    }
+    boolean regionChanged = fullRepaint || left != regionLeft || top != regionTop
+        || right != regionRight || bottom != regionBottom;
+    regionLeft = left;
+    regionTop = top;
+    regionRight = right;
+    regionBottom = bottom;
+    byte[] cells = pyramid.getCells(level);
+    int[] palette = renderedPalette;
+    int stride = pixelBitmap.getWidth();
+    // Consecutive changed rows are uploaded to the bitmap together.
+    int firstPending = -1;
+    for (int rowIndex = top; rowIndex <= bottom; rowIndex++) {
+      if (rowIndex < bottom && (regionChanged || pendingRows[rowIndex])) {
+        for (int colIndex = left, offset = rowIndex * levelSize + left,
+            pixel = (rowIndex - top) * stride; colIndex < right; colIndex++, offset++, pixel++) {
+          pixels[pixel] = palette[cells[offset]];
+        }
+        if (firstPending < 0) {
+          firstPending = rowIndex;
+        }
+      } else if (firstPending >= 0) {
+        pixelBitmap.setPixels(pixels, (firstPending - top) * stride, stride,
+            0, firstPending - top, columns, rowIndex - firstPending);
+        firstPending = -1;
+      }
+    }
+    // Rows outside the region are rewritten in full when they become visible.
+    Arrays.fill(pendingRows, false);
+    source.set(0, 0, columns, rows);
+    destination.set((left * span - originX) * scale, (top * span - originY) * scale,
+        (right * span - originX) * scale, (bottom * span - originY) * scale);
+    int size = pyramid.getSize(0);
+    canvas.save();
+    // The last cells of a coarse level may extend past the edges of the terrain.
+    canvas.clipRect(-originX * scale, -originY * scale,
+        (size - originX) * scale, (size - originY) * scale);
+    // With filtering disabled, scaling uses nearest-neighbor sampling.
+    canvas.drawBitmap(pixelBitmap, source, destination, pixelPaint);
+    canvas.restore();
+  }
+
+  private void drawShapes(Canvas canvas, float scale, float originX, float originY) {
+    selectLevel(0);
+    int size = pyramid.getSize(0);
+    int left = Math.max(0, (int) Math.floor(originX));
+    int top = Math.max(0, (int) Math.floor(originY));
+    int right = Math.min(size, (int) Math.ceil(originX + surfaceWidth / scale));
+    int bottom = Math.min(size, (int) Math.ceil(originY + surfaceHeight / scale));
+    byte[] cells = pyramid.getCells(0);
+    for (int rowIndex = top; rowIndex < bottom; rowIndex++) {
+      float rowOffset = (rowIndex - originY) * scale;
+      for (int colIndex = left, offset = rowIndex * size + left; colIndex < right;
+          colIndex++, offset++) {
+        float colOffset = (colIndex - originX) * scale;
+        canvas.drawOval(colOffset, rowOffset, colOffset + scale, rowOffset + scale,
+            breedPaints[cells[offset]]);
+      }
+    }
+    // The pixel region is not maintained while cells are drawn as shapes; force it to be rewritten.
+    regionRight = 0;
+  }
+
+  private static final class Viewport {
+
+    static final Viewport FIT = new Viewport(1, 0.5f, 0.5f);
+
+    /** Magnification, relative to the scale at which the entire terrain fits the view. */
+    final float zoom;
+    /** Horizontal position of the center of the view, as a fraction of the terrain width. */
+    final float centerX;
+    /** Vertical position of the center of the view, as a fraction of the terrain height. */
+    final float centerY;
+
+    Viewport(float zoom, float centerX, float centerY) {
+      this.zoom = zoom;
+      this.centerX = centerX;
+      this.centerY = centerY;
+    }
+
+  }
 
-    void paint(Canvas canvas, float left, float top, float right, float bottom, Paint paint);
+  private final class GestureListener extends SimpleOnGestureListener
+      implements OnScaleGestureListener {
+
+    @Override
+    public boolean onDown(@NonNull MotionEvent e) {
+      return true;
+    }
+
+    @Override
+    public boolean onSingleTapConfirmed(@NonNull MotionEvent e) {
+      return performClick();
+    }
+
+    @Override
+    public boolean onDoubleTap(@NonNull MotionEvent e) {
+      setViewport(Viewport.FIT);
+      return true;
+    }
+
+    @Override
+    public boolean onScroll(@Nullable MotionEvent e1, @NonNull MotionEvent e2, float distanceX,
+        float distanceY) {
+      pan(distanceX, distanceY);
+      return true;
+    }
+
+    @Override
+    public boolean onScale(@NonNull ScaleGestureDetector detector) {
+      zoom(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+      return true;
+    }
+
+    @Override
+    public boolean onScaleBegin(@NonNull ScaleGestureDetector detector) {
+      return true;
+    }
+
+    @Override
+    public void onScaleEnd(@NonNull ScaleGestureDetector detector) {
+    }
 
   }
 
@@ -28,15 +28,25 @@ import androidx.lifecycle.ViewModel;
 import dagger.hilt.android.lifecycle.HiltViewModel;
 import dagger.hilt.android.qualifiers.ApplicationContext;
 import edu.cnm.deepdive.rps.R;
+import edu.cnm.deepdive.rps.model.domain.ClusterAnalyzer.Statistics;
 import edu.cnm.deepdive.rps.model.domain.Ecosystem;
+import edu.cnm.deepdive.rps.model.domain.Engine;
+import edu.cnm.deepdive.rps.model.domain.Neighborhood;
+import edu.cnm.deepdive.rps.model.domain.PopulationHistory;
+import edu.cnm.deepdive.rps.model.domain.Snapshot;
+import edu.cnm.deepdive.rps.model.domain.StructureFactorAnalyzer.Spectrum;
 import edu.cnm.deepdive.rps.service.EcosystemRepository;
 import edu.cnm.deepdive.rps.service.PreferencesRepository;
+import edu.cnm.deepdive.rps.service.SimulationMetrics;
+import edu.cnm.deepdive.rps.service.SimulationMetrics.Sample;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.functions.Action;
 import io.reactivex.rxjava3.functions.Consumer;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 
 /**
@@ -50,14 +60,24 @@ import javax.inject.Inject;
 public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObserver {
 
   private static final int TICK_MILLISECONDS = 10;
+  private static final int METRICS_SAMPLE_SECONDS = 1;
+  /**
+   * Monte Carlo steps per second for each unit of run speed, under step-rate pacing; this matches
+   * the nominal rate of fixed-delay pacing, in which each unit of run speed is 1/25 of a step per
+   * {@link #TICK_MILLISECONDS}.
+   */
+  private static final double STEPS_PER_SECOND_PER_SPEED = 1000d / TICK_MILLISECONDS / 25;
 
   private final EcosystemRepository ecosystemRepository;
   private final PreferencesRepository preferencesRepository;
-  private final LiveData<int[][]> terrain;
+  private final SimulationMetrics simulationMetrics;
+  private final LiveData<Sample> metrics;
+  private final LiveData<Snapshot> snapshot;
   private final LiveData<Integer> size;
   private final LiveData<Integer> initialBreedCount;
   private final LiveData<Integer> currentBreedCount;
   private final LiveData<int[]> populations;
+  private final LiveData<Double> interfaceDensity;
   private final LiveData<Long> iterationCount;
   private final LiveData<Boolean> absorbed;
   private final MutableLiveData<Throwable> throwable;
@@ -68,6 +88,10 @@ public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObs
   private final int terrainSizeDefault;
   private final String toroidalTopologyKey;
   private final boolean toroidalTopologyDefault;
+  private final String neighborhoodKey;
+  private final String neighborhoodDefault;
+  private final String engineKey;
+  private final String engineDefault;
 
   private final String runSpeedKey;
   private final int runSpeedDefault;
@@ -75,22 +99,37 @@ public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObs
   private final String swapLikelihoodKey;
   private final int swapLikelihoodDefault;
 
-  private int currentTerrainSize;
+  private final String pacingKey;
+  private final String pacingDefault;
+  private final String targetFrameRateKey;
+  private final int targetFrameRateDefault;
+
+  private final String showMetricsKey;
+  private final boolean showMetricsDefault;
+
+  private final String analysisIntervalKey;
+  private final int analysisIntervalDefault;
 
   @Inject
   EcosystemViewModel(@ApplicationContext Context context,
-      EcosystemRepository ecosystemRepository, PreferencesRepository preferencesRepository) {
+      EcosystemRepository ecosystemRepository, PreferencesRepository preferencesRepository,
+      SimulationMetrics simulationMetrics) {
     this.ecosystemRepository = ecosystemRepository;
     this.preferencesRepository = preferencesRepository;
+    this.simulationMetrics = simulationMetrics;
+    metrics = new MetricsLiveData(simulationMetrics);
 
     LiveData<Ecosystem> source = ecosystemRepository.getEcosystem();
-    terrain = Transformations.map(source, Ecosystem::getTerrain);
+    // Mutable state is read from snapshots published by the simulation thread, never from the live
+    // ecosystem.
+    snapshot = Transformations.map(source, (ignored) -> ecosystemRepository.getSnapshot());
     size = Transformations.map(source, Ecosystem::getSize);
     initialBreedCount = Transformations.map(source, Ecosystem::getInitialBreedCount);
-    currentBreedCount = Transformations.map(source, Ecosystem::getCurrentBreedCount);
-    populations = Transformations.map(source, Ecosystem::getPopulations);
-    iterationCount = Transformations.map(source, Ecosystem::getIterationCount);
-    absorbed = Transformations.map(source, Ecosystem::isAbsorbed);
+    currentBreedCount = Transformations.map(snapshot, Snapshot::getCurrentBreedCount);
+    populations = Transformations.map(snapshot, Snapshot::getPopulations);
+    interfaceDensity = Transformations.map(snapshot, Snapshot::getInterfaceDensity);
+    iterationCount = Transformations.map(snapshot, Snapshot::getIterationCount);
+    absorbed = Transformations.map(snapshot, Snapshot::isAbsorbed);
     throwable = new MutableLiveData<>();
     pending = new CompositeDisposable();
 
@@ -101,6 +140,10 @@ public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObs
     terrainSizeDefault = res.getInteger(R.integer.terrain_size_default);
     toroidalTopologyKey = res.getString(R.string.toroidal_topology_key);
     toroidalTopologyDefault = res.getBoolean(R.bool.toroidal_topology_default);
+    neighborhoodKey = res.getString(R.string.neighborhood_key);
+    neighborhoodDefault = res.getString(R.string.neighborhood_default);
+    engineKey = res.getString(R.string.engine_key);
+    engineDefault = res.getString(R.string.engine_default);
 
     runSpeedKey = res.getString(R.string.run_speed_key);
     runSpeedDefault = res.getInteger(R.integer.run_speed_default);
@@ -108,33 +151,116 @@ public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObs
     swapLikelihoodKey = res.getString(R.string.swap_likelihood_key);
     swapLikelihoodDefault = res.getInteger(R.integer.run_speed_default);
 
+    pacingKey = res.getString(R.string.pacing_key);
+    pacingDefault = res.getString(R.string.pacing_default);
+    targetFrameRateKey = res.getString(R.string.target_frame_rate_key);
+    targetFrameRateDefault = res.getInteger(R.integer.target_frame_rate_default);
+
+    showMetricsKey = res.getString(R.string.show_metrics_key);
+    showMetricsDefault = res.getBoolean(R.bool.show_metrics_default);
+
+    analysisIntervalKey = res.getString(R.string.analysis_interval_key);
+    analysisIntervalDefault = res.getInteger(R.integer.analysis_interval_default);
+
     create();
   }
 
   /**
    * Creates a new instance of the intransitive ecosystem simulation, using the number of breeds,
-   * terrain size, and topology specified in the corresponding property values stored in
-   * {@link android.content.SharedPreferences}.
+   * terrain size, topology, neighborhood, and simulation engine specified in the corresponding
+   * property values stored in {@link android.content.SharedPreferences}.
    */
   public void create() {
     int numBreeds = preferencesRepository.get(numBreedsKey, numBreedsDefault);
     int terrainSize = preferencesRepository.get(terrainSizeKey, terrainSizeDefault);
     boolean toroidal = preferencesRepository.get(toroidalTopologyKey, toroidalTopologyDefault);
-    execute(ecosystemRepository.create(numBreeds, terrainSize, toroidal),
-        (ecosystem) -> currentTerrainSize = ecosystem.getSize());
+    Neighborhood neighborhood =
+        Neighborhood.valueOf(preferencesRepository.get(neighborhoodKey, neighborhoodDefault));
+    Engine engine = Engine.valueOf(preferencesRepository.get(engineKey, engineDefault));
+    execute(ecosystemRepository.create(numBreeds, terrainSize, toroidal, neighborhood, engine),
+        (ignored) -> {});
+  }
+
+  /**
+   * Saves the complete state of the current ecosystem as a checkpoint, replacing any previously
+   * saved checkpoint.
+   */
+  public void save() {
+    execute(ecosystemRepository.save(), () -> {});
+  }
+
+  /**
+   * Replaces the current ecosystem with the one saved in the most recent checkpoint.
+   */
+  public void restore() {
+    execute(ecosystemRepository.restore(),
+        (ignored) -> {});
+  }
+
+  /**
+   * Starts recording the trajectory of the current ecosystem, replacing any previous recording.
+   */
+  public void startRecording() {
+    execute(ecosystemRepository.startRecording(), () -> {});
+  }
+
+  /**
+   * Stops recording the trajectory of the current ecosystem.
+   */
+  public void stopRecording() {
+    execute(ecosystemRepository.stopRecording(), () -> {});
   }
 
   /**
-   * Starts (or resumes) execution of the simulation. The speed of execution and the probability
-   * of random element swaps in each iteration are derived from property values stored in
+   * Starts (or resumes) playback of the recorded trajectory, at the speed derived from the run
+   * speed property value stored in {@link android.content.SharedPreferences}. As when running the
+   * simulation, the terrain is analyzed at the interval specified in the preferences.
+   */
+  public void replay() {
+    int runSpeed = preferencesRepository.get(runSpeedKey, runSpeedDefault);
+    updateAnalysisInterval();
+    execute(ecosystemRepository.replay(runSpeed * STEPS_PER_SECOND_PER_SPEED),
+        (ignored) -> {}, () -> {});
+  }
+
+  /**
+   * Moves the replay of the recorded trajectory to the specified iteration count.
+   *
+   * @param iterationCount Target iteration count.
+   */
+  public void seek(long iterationCount) {
+    execute(ecosystemRepository.seek(iterationCount), () -> {});
+  }
+
+  /**
+   * Starts (or resumes) execution of the simulation. The pacing of batches, the speed of execution,
+   * the probability of random element swaps in each iteration, and the interval between terrain
+   * analyses are derived from property values stored in
    * {@link android.content.SharedPreferences}.
    */
   public void run() {
     int runSpeed = preferencesRepository.get(runSpeedKey, runSpeedDefault);
-    int iterationsPerTick = runSpeed * currentTerrainSize * currentTerrainSize / 25;
-    int swapLikelihood = preferencesRepository.get(swapLikelihoodKey, swapLikelihoodDefault);
-    execute(ecosystemRepository.run(
-        iterationsPerTick, swapLikelihood / 100f, TICK_MILLISECONDS), (ignored) -> {}, () -> {});
+    float swapProbability =
+        preferencesRepository.get(swapLikelihoodKey, swapLikelihoodDefault) / 100f;
+    int targetFrameRate = preferencesRepository.get(targetFrameRateKey, targetFrameRateDefault);
+    updateAnalysisInterval();
+    Observable<Integer> task;
+    switch (Pacing.valueOf(preferencesRepository.get(pacingKey, pacingDefault))) {
+      case FRAME_RATE:
+        task = ecosystemRepository.run(targetFrameRate, 0, swapProbability);
+        break;
+      case STEP_RATE:
+        task = ecosystemRepository.run(
+            targetFrameRate, runSpeed * STEPS_PER_SECOND_PER_SPEED, swapProbability);
+        break;
+      default:
+        Ecosystem ecosystem = ecosystemRepository.getEcosystem().getValue();
+        int terrainSize = (ecosystem != null) ? ecosystem.getSize() : 0;
+        int iterationsPerTick = runSpeed * terrainSize * terrainSize / 25;
+        task = ecosystemRepository.run(iterationsPerTick, swapProbability, TICK_MILLISECONDS);
+        break;
+    }
+    execute(task, (ignored) -> {}, () -> {});
   }
 
   /**
@@ -153,11 +279,23 @@ public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObs
   }
 
   /**
-   * Returns a reference to a {@link LiveData LiveData&lt;int[][]&gt;} containing the ecosystem's
-   * terrain contents.
+   * Returns a reference to a {@link LiveData LiveData&lt;Snapshot&gt;} containing the most recent
+   * consistent snapshot of the ecosystem's populations and counts, along with flags indicating the
+   * terrain rows that changed since the previous snapshot. To avoid copying a potentially large
+   * terrain for the UI thread, these snapshots do not include the terrain itself; that is rendered
+   * from the snapshots returned by {@link #getRenderSnapshot()}.
+   */
+  public LiveData<Snapshot> getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Returns the most recent consistent snapshot of the ecosystem, for rendering on a dedicated
+   * thread (see {@link EcosystemRepository#getRenderSnapshot()}), or {@code null} if no ecosystem
+   * has been created. This must only be invoked on a single rendering thread.
    */
-  public LiveData<int[][]> getTerrain() {
-    return terrain;
+  public Snapshot getRenderSnapshot() {
+    return ecosystemRepository.getRenderSnapshot();
   }
 
   /**
@@ -195,6 +333,49 @@ public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObs
     return populations;
   }
 
+  /**
+   * Returns a reference to a {@link LiveData LiveData&lt;Double&gt;} containing the ecosystem's
+   * current interface density: the fraction of pairs of neighboring cells occupied by different
+   * breeds. This is maintained incrementally by the ecosystem, so it may be observed on every batch
+   * at negligible cost.
+   */
+  public LiveData<Double> getInterfaceDensity() {
+    return Transformations.distinctUntilChanged(interfaceDensity);
+  }
+
+  /**
+   * Returns a reference to a {@link LiveData LiveData&lt;Statistics&gt;} containing the most
+   * recent cluster statistics of the ecosystem (see {@link EcosystemRepository#getClusters()}), or
+   * {@code null} if none are available. Clusters are only analyzed while the simulation is running
+   * (or a recording is replaying), and the terrain analysis interval property value stored in
+   * {@link android.content.SharedPreferences} is non-zero.
+   */
+  public LiveData<Statistics> getClusters() {
+    return ecosystemRepository.getClusters();
+  }
+
+  /**
+   * Returns a reference to a {@link LiveData LiveData&lt;Spectrum&gt;} containing the most recent
+   * structure factor and characteristic domain lengths of the ecosystem (see
+   * {@link EcosystemRepository#getStructureFactor()}), or {@code null} if none are available. As
+   * with {@link #getClusters()}, these are only computed while the terrain analysis interval
+   * property value is non-zero.
+   */
+  public LiveData<Spectrum> getStructureFactor() {
+    return ecosystemRepository.getStructureFactor();
+  }
+
+  /**
+   * Returns the history of the ecosystem's breed populations since it was created, restored, or
+   * opened for replay, or {@code null} if no ecosystem has been created. The history occupies a
+   * fixed amount of memory, regardless of the length of the run; a chart of the populations should
+   * query it (see {@link PopulationHistory#query(long, long, int, PopulationHistory.Series)}) for
+   * no more points than it has pixels across, whenever {@link #getSnapshot()} changes.
+   */
+  public PopulationHistory getPopulationHistory() {
+    return ecosystemRepository.getPopulationHistory();
+  }
+
   /**
    * Returns a reference to a {@link LiveData LiveData&lt;Long&gt;} containing the ecosystem's
    * current iteration count.
@@ -211,6 +392,14 @@ public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObs
     return Transformations.distinctUntilChanged(absorbed);
   }
 
+  /**
+   * Returns a reference to a {@link LiveData LiveData&lt;Boolean&gt;} containing a flag indicating
+   * whether the trajectory of the simulation is being recorded.
+   */
+  public LiveData<Boolean> getRecording() {
+    return ecosystemRepository.getRecording();
+  }
+
   /**
    * Returns a reference to a {@link LiveData LiveData&lt;Boolean&gt;} containing a flag indicating
    * whether the simulation is running or paused.
@@ -227,6 +416,32 @@ public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObs
     return throwable;
   }
 
+  /**
+   * Returns a reference to a {@link LiveData LiveData&lt;Sample&gt;} containing the most recent
+   * sample of simulation throughput and latency metrics. Samples are taken (once per second) only
+   * while this {@link LiveData} has active observers.
+   */
+  public LiveData<Sample> getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Returns a flag indicating whether the metrics overlay should be displayed, as specified by the
+   * corresponding property value stored in {@link android.content.SharedPreferences}.
+   */
+  public boolean isMetricsOverlayEnabled() {
+    return preferencesRepository.get(showMetricsKey, showMetricsDefault);
+  }
+
+  /**
+   * Records the time taken to render the terrain in a single frame.
+   *
+   * @param nanos Rendering duration, in nanoseconds.
+   */
+  public void recordDrawTime(long nanos) {
+    simulationMetrics.recordDraw(nanos);
+  }
+
   /**
    * If the lifecycle being observed by this viewmodel reaches the PAUSED state, the simulation is
    * paused.
@@ -253,6 +468,11 @@ public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObs
     DefaultLifecycleObserver.super.onStop(owner);
   }
 
+  private void updateAnalysisInterval() {
+    ecosystemRepository.setAnalysisInterval(
+        preferencesRepository.get(analysisIntervalKey, analysisIntervalDefault), TimeUnit.SECONDS);
+  }
+
   private void execute(Completable task, Action action) {
     throwable.postValue(null);
     task.subscribe(action, this::postThrowable, pending);
@@ -273,4 +493,42 @@ public class EcosystemViewModel extends ViewModel implements DefaultLifecycleObs
     this.throwable.postValue(throwable);
   }
 
+  private enum Pacing {
+    /** Fixed batch size, with a fixed delay between batches. */
+    FIXED_DELAY,
+    /** Batches aligned to display frames, each as large as fits in the frame budget. */
+    FRAME_RATE,
+    /** Batches aligned to display frames, sized to achieve the run speed in steps per second. */
+    STEP_RATE
+  }
+
+  private static class MetricsLiveData extends LiveData<Sample> {
+
+    private final SimulationMetrics metrics;
+
+    private Disposable sampler;
+
+    MetricsLiveData(SimulationMetrics metrics) {
+      this.metrics = metrics;
+    }
+
+    @Override
+    protected void onActive() {
+      super.onActive();
+      metrics.sample(); // Discard the window accumulated while nobody was observing.
+      sampler = Observable.interval(METRICS_SAMPLE_SECONDS, TimeUnit.SECONDS)
+          .subscribe((tick) -> postValue(metrics.sample()));
+    }
+
+    @Override
+    protected void onInactive() {
+      if (sampler != null) {
+        sampler.dispose();
+        sampler = null;
+      }
+      super.onInactive();
+    }
+
+  }
+
 }
@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class FramePacerTest {
+
+  private static final long FRAME_INTERVAL_NANOS = 16_666_667;
+  private static final long BUDGET_NANOS = 8_000_000;
+  private static final long NANOS_PER_ITERATION = 1_000;
+  private static final int INITIAL_BATCH = 20;
+  private static final int FRAMES = 120;
+
+  @Test
+  void next_shortBatches_growToBudget() {
+    FramePacer pacer = new FramePacer(FRAME_INTERVAL_NANOS, FRAME_INTERVAL_NANOS, BUDGET_NANOS,
+        0, INITIAL_BATCH, Integer.MAX_VALUE);
+    int batch = run(pacer);
+    assertEquals(BUDGET_NANOS / NANOS_PER_ITERATION, batch, 1);
+  }
+
+  @Test
+  void next_shortBatches_growToRate() {
+    // 80 iterations per frame: a quarter of a Monte Carlo step of a 20 x 20 terrain.
+    double iterationsPerSecond = 80 * 1e9 / FRAME_INTERVAL_NANOS;
+    FramePacer pacer = new FramePacer(FRAME_INTERVAL_NANOS, FRAME_INTERVAL_NANOS, BUDGET_NANOS,
+        iterationsPerSecond, INITIAL_BATCH, Integer.MAX_VALUE);
+    int batch = run(pacer);
+    assertEquals(80, batch, 1);
+  }
+
+  @Test
+  void record_fastForward_doesNotInflateBatch() {
+    FramePacer pacer = new FramePacer(FRAME_INTERVAL_NANOS, FRAME_INTERVAL_NANOS, BUDGET_NANOS,
+        0, INITIAL_BATCH, Integer.MAX_VALUE);
+    run(pacer);
+    long frameTime = (FRAMES + 1) * FRAME_INTERVAL_NANOS;
+    int batch = pacer.next(frameTime);
+    // The iteration count jumps far beyond the requested batch, at no extra cost.
+    pacer.record(batch, 1_000_000_000L, batch * NANOS_PER_ITERATION);
+    assertEquals(BUDGET_NANOS / NANOS_PER_ITERATION,
+        pacer.next(frameTime + FRAME_INTERVAL_NANOS), 1);
+  }
+
+  /** Runs the pacer with a fixed cost per iteration, and returns the size of the final batch. */
+  private static int run(FramePacer pacer) {
+    int batch = 0;
+    for (int frame = 1; frame <= FRAMES; frame++) {
+      long frameTime = frame * FRAME_INTERVAL_NANOS;
+      if (pacer.isDue(frameTime)) {
+        batch = pacer.next(frameTime);
+        pacer.record(batch, batch, batch * NANOS_PER_ITERATION);
+      }
+    }
+    return batch;
+  }
+
+}
@@ -19,4 +19,5 @@ plugins {
     alias(libs.plugins.hilt).apply(false)
     alias(libs.plugins.schema.parser).apply(false)
     alias(libs.plugins.junit).apply(false)
+    alias(libs.plugins.jmh).apply(false)
 }
@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.valueOf("VERSION_${libs.versions.java.get()}")
+    targetCompatibility = JavaVersion.valueOf("VERSION_${libs.versions.java.get()}")
+}
+
+dependencies {
+
+    // Apache Commons RNG Simple
+    api(libs.commons.rng.simple)
+    // Libraries for Reactive streams
+    api(libs.rx.java)
+
+    // Libraries for JVM-based testing.
+    testImplementation(libs.junit.api)
+    testImplementation(libs.junit.params)
+    testRuntimeOnly(libs.junit.engine)
+    testRuntimeOnly(libs.junit.launcher)
+
+}
+
+// Benchmarks (in src/jmh) are run with ./gradlew :engine:jmh; to run a subset, or override
+// benchmark parameters, set includes or benchmarkParameters in the jmh block below.
+jmh {
+    jmhVersion = libs.versions.jmh.core.get()
+    // Report allocation rate (bytes/op and MB/sec) alongside each result.
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+tasks.javadoc {
+    with(options as StandardJavadocDocletOptions) {
+        links(
+            "https://docs.oracle.com/en/java/javase/${libs.versions.java.get()}/docs/api/",
+            "https://reactivex.io/RxJava/3.x/javadoc/",
+            "https://commons.apache.org/proper/commons-rng/commons-rng-client-api/apidocs/"
+        )
+        addBooleanOption("html5", true)
+        addStringOption("Xdoclint:none", "-quiet")
+    }
+}
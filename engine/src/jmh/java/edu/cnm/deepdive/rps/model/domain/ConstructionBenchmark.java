@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.rng.UniformRandomProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of creating an ecosystem (allocation and randomization of the terrain, and
+ * construction of any engine-specific structures), and of resetting an existing one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConstructionBenchmark {
+
+  private static final long SEED = 20240601L;
+
+  @Param({"20", "200", "2000"})
+  private int size;
+
+  @Param({"3", "12"})
+  private int numBreeds;
+
+  @Param({"true", "false"})
+  private boolean toroidal;
+
+  @Param({"STANDARD", "ACTIVE_EDGE", "PARALLEL"})
+  private Engine engine;
+
+  private UniformRandomProvider rng;
+  private Ecosystem ecosystem;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    rng = RandomProviders.create(SEED);
+    ecosystem = engine.create(numBreeds, size, toroidal, Neighborhood.VON_NEUMANN, rng);
+  }
+
+  @Benchmark
+  public Ecosystem create() {
+    return engine.create(numBreeds, size, toroidal, Neighborhood.VON_NEUMANN, rng);
+  }
+
+  @Benchmark
+  public void reset() {
+    ecosystem.reset();
+  }
+
+}
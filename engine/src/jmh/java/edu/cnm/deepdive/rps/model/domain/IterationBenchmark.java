@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput (iterations per second) of the simulation hot paths: complete iterations
+ * via {@link Ecosystem#iterate(int, float)}, and the competitive interaction and swap steps
+ * individually. When an ecosystem reaches the absorbing state, it is reset, so that absorbed
+ * (no-op) iterations are never measured. Other terrain representations may be compared by
+ * overriding the {@code storage} parameter (e.g. {@code -p storage=HEAP,PACKED,DIRECT}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IterationBenchmark {
+
+  private static final int BATCH_SIZE = 10_000;
+  private static final long SEED = 20240601L;
+
+  @Param({"20", "200", "2000"})
+  private int size;
+
+  @Param({"3", "12"})
+  private int numBreeds;
+
+  @Param({"true", "false"})
+  private boolean toroidal;
+
+  @Param({"0", "0.01", "0.1"})
+  private float swapProbability;
+
+  @Param({"STANDARD"})
+  private Engine engine;
+
+  @Param({"VON_NEUMANN"})
+  private Neighborhood neighborhood;
+
+  @Param({"HEAP"})
+  private Storage storage;
+
+  private Ecosystem ecosystem;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ecosystem = engine.create(
+        numBreeds, size, toroidal, neighborhood, RandomProviders.create(SEED), storage);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public int iterate() {
+    if (ecosystem.isAbsorbed()) {
+      ecosystem.reset();
+    }
+    return ecosystem.iterate(BATCH_SIZE, swapProbability);
+  }
+
+  @Benchmark
+  public boolean compete() {
+    if (ecosystem.isAbsorbed()) {
+      ecosystem.reset();
+    }
+    return ecosystem.competeRandomPair();
+  }
+
+  @Benchmark
+  public void swap() {
+    ecosystem.swapRandomPair();
+  }
+
+}
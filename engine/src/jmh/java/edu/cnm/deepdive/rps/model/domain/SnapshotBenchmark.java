@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of copying the state of the simulation for consumers: a full copy of the
+ * terrain (as after creation or reset, when every row is dirty), and the incremental copy after a
+ * typical UI tick of iterations, both via {@link Ecosystem#getTerrain()} and via
+ * {@link SnapshotBuffer#publish()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+
+  /** Iterations per tick, as a fraction of the number of cells (matching the app's default). */
+  private static final int CELLS_PER_TICK_ITERATION = 5;
+  private static final long SEED = 20240601L;
+
+  @Param({"20", "200", "2000"})
+  private int size;
+
+  @Param({"3", "12"})
+  private int numBreeds;
+
+  private Ecosystem ecosystem;
+  private SnapshotBuffer snapshots;
+  private int tickIterations;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ecosystem = new Ecosystem(
+        numBreeds, size, true, Neighborhood.VON_NEUMANN, RandomProviders.create(SEED));
+    snapshots = new SnapshotBuffer(ecosystem);
+    tickIterations = Math.max(1, size * size / CELLS_PER_TICK_ITERATION);
+  }
+
+  /**
+   * Advances the simulation by one tick; this is excluded from the measurement.
+   */
+  @State(Scope.Thread)
+  public static class Tick {
+
+    @Setup(Level.Invocation)
+    public void setUp(SnapshotBenchmark benchmark) {
+      Ecosystem ecosystem = benchmark.ecosystem;
+      if (ecosystem.isAbsorbed()) {
+        ecosystem.reset();
+      }
+      ecosystem.iterate(benchmark.tickIterations, 0);
+    }
+
+  }
+
+  /**
+   * Dirties every row of the terrain, by resetting it; this is excluded from the measurement.
+   */
+  @State(Scope.Thread)
+  public static class Reset {
+
+    @Setup(Level.Invocation)
+    public void setUp(SnapshotBenchmark benchmark) {
+      benchmark.ecosystem.reset();
+    }
+
+  }
+
+  @Benchmark
+  public int[][] getTerrainFull(Reset reset) {
+    return ecosystem.getTerrain();
+  }
+
+  @Benchmark
+  public int[][] getTerrainAfterTick(Tick tick) {
+    return ecosystem.getTerrain();
+  }
+
+  @Benchmark
+  public byte[] getFlatTerrainAfterTick(Tick tick) {
+    return ecosystem.getFlatTerrain();
+  }
+
+  @Benchmark
+  public void publishAfterTick(Tick tick) {
+    snapshots.publish();
+  }
+
+}
@@ -0,0 +1,186 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+import edu.cnm.deepdive.rps.model.domain.Ecosystem;
+import edu.cnm.deepdive.rps.model.domain.Engine;
+import edu.cnm.deepdive.rps.model.domain.Neighborhood;
+import edu.cnm.deepdive.rps.model.domain.RandomProviders;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.ObservableEmitter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.rng.JumpableUniformRandomProvider;
+import org.apache.commons.rng.UniformRandomProvider;
+
+/**
+ * Runs ensembles of independent replicas of an {@link Ecosystem} simulation, each to absorption (or
+ * to an iteration cap), for the purpose of measuring the distributions of absorption time and
+ * surviving breed. Replicas are distributed over a fixed number of worker threads; each worker
+ * creates a single {@link Ecosystem}, with its own independent random number stream (obtained by
+ * jumping a generator seeded from the ensemble seed), and then reuses it for all of its replicas
+ * via {@link Ecosystem#reset()}.
+ * <p>The assignment of replicas to workers depends on thread scheduling; thus, an ensemble run is
+ * statistically&mdash;but not exactly&mdash;reproducible from its seed.</p>
+ * <p>Replicas are numbered in the order in which workers start them, and their results are
+ * accumulated in that order, rather than in order of completion: a replica that completes before
+ * one started earlier is held until the earlier one completes. Since the replicas still in progress
+ * at any time are disproportionately the longest-running ones, this ensures that the replicas
+ * counted (and in particular, those counted when the run stops early) are not selected by their
+ * absorption times.</p>
+ */
+public class EnsembleRunner {
+
+  private static final int MIN_REPLICAS_FOR_EARLY_STOP = 30;
+
+  private final int numBreeds;
+  private final int size;
+  private final boolean toroidal;
+  private final Neighborhood neighborhood;
+  private final Engine engine;
+  private final float swapProbability;
+  private final int workerCount;
+
+  /**
+   * Initializes this instance with the parameters of the ecosystem to be simulated, using one
+   * worker thread per available processor.
+   *
+   * @param numBreeds       Number of distinct breeds to populate each replica.
+   * @param size            Terrain height and width.
+   * @param toroidal        Flag specifying whether terrain is toroidal (with wrapping edges) or a
+   *                        box (with closed edges).
+   * @param neighborhood    Shape of the neighborhood from which each opponent is selected.
+   * @param engine          Simulation implementation.
+   * @param swapProbability Probability that a randomly selected pair is swapped at the start of
+   *                        each iteration.
+   */
+  public EnsembleRunner(int numBreeds, int size, boolean toroidal,
+      Neighborhood neighborhood, Engine engine, float swapProbability) {
+    this(numBreeds, size, toroidal, neighborhood, engine, swapProbability,
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Initializes this instance with the parameters of the ecosystem to be simulated, and the number
+   * of worker threads to use.
+   *
+   * @param numBreeds       Number of distinct breeds to populate each replica.
+   * @param size            Terrain height and width.
+   * @param toroidal        Flag specifying whether terrain is toroidal (with wrapping edges) or a
+   *                        box (with closed edges).
+   * @param neighborhood    Shape of the neighborhood from which each opponent is selected.
+   * @param engine          Simulation implementation.
+   * @param swapProbability Probability that a randomly selected pair is swapped at the start of
+   *                        each iteration.
+   * @param workerCount     Number of replicas simulated concurrently.
+   */
+  public EnsembleRunner(int numBreeds, int size, boolean toroidal,
+      Neighborhood neighborhood, Engine engine, float swapProbability,
+      int workerCount) {
+    this.numBreeds = numBreeds;
+    this.size = size;
+    this.toroidal = toroidal;
+    this.neighborhood = neighborhood;
+    this.engine = engine;
+    this.swapProbability = swapProbability;
+    this.workerCount = Math.max(1, workerCount);
+  }
+
+  /**
+   * Creates and returns an {@link Observable Observable&lt;EnsembleStatistics&gt;} which&mdash;when
+   * subscribed to&mdash;starts the ensemble run.
+   * <ul><li>Each {@code onNext} event is emitted (on one of the worker threads) as a replica is
+   * accumulated, and contains the statistics of all replicas accumulated so far; a replica is
+   * accumulated when it and all replicas started before it have completed.</li>
+   * <li>The {@code onComplete} event is emitted when {@code replicas} replicas have been
+   * accumulated, or (if {@code targetRelativeHalfWidth} is positive) as soon as at least 30 of the
+   * replicas accumulated have been absorbed, and the half-width of the 95% confidence interval for
+   * the mean absorption time is no more than {@code targetRelativeHalfWidth} times the mean.
+   * Replicas started after the last one accumulated, whether completed or still in progress, are
+   * then discarded.</li>
+   * <li>Disposing of the subscription stops the run.</li></ul>
+   *
+   * @param replicas                Maximum number of replicas to run.
+   * @param iterationCap            Maximum number of iterations of each replica.
+   * @param targetRelativeHalfWidth Target precision of the mean absorption time, relative to the
+   *                                mean (e.g. 0.01 for &plusmn;1%), or 0 to run all replicas.
+   * @param seed                    Seed of the random number streams of the workers.
+   * @return {@link Observable Observable&lt;EnsembleStatistics&gt;} that can be subscribed to, to
+   * start the ensemble run.
+   */
+  public Observable<EnsembleStatistics> run(
+      int replicas, long iterationCap, double targetRelativeHalfWidth, long seed) {
+    return Observable.create((emitter) -> {
+      ObservableEmitter<EnsembleStatistics> serialized = emitter.serialize();
+      JumpableUniformRandomProvider source = RandomProviders.create(seed);
+      StatisticsAccumulator accumulator = new StatisticsAccumulator(numBreeds);
+      AtomicInteger claimed = new AtomicInteger();
+      AtomicInteger active = new AtomicInteger(workerCount);
+      AtomicBoolean stopped = new AtomicBoolean();
+      ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+      serialized.setCancellable(() -> stopped.set(true));
+      Map<Integer, long[]> completed = new HashMap<>();
+      int[] accumulated = {0};
+      for (int i = 0; i < workerCount; i++) {
+        UniformRandomProvider rng = source.jump();
+        executor.execute(() -> {
+          try {
+            Ecosystem ecosystem = null;
+            int replica;
+            while (!stopped.get() && (replica = claimed.getAndIncrement()) < replicas) {
+              if (ecosystem == null) {
+                ecosystem = engine.create(numBreeds, size, toroidal, neighborhood, rng);
+              } else {
+                ecosystem.reset();
+              }
+              if (ReplicaSimulator.simulate(ecosystem, swapProbability, iterationCap, stopped)) {
+                synchronized (accumulator) {
+                  completed.put(replica, new long[]{
+                      ecosystem.getIterationCount(), ReplicaSimulator.getWinner(ecosystem)});
+                  long[] result;
+                  while (!stopped.get()
+                      && (result = completed.remove(accumulated[0])) != null) {
+                    accumulated[0]++;
+                    EnsembleStatistics statistics = accumulator.add(result[0], (int) result[1]);
+                    serialized.onNext(statistics);
+                    if (targetRelativeHalfWidth > 0
+                        && statistics.getAbsorbedCount() >= MIN_REPLICAS_FOR_EARLY_STOP
+                        && statistics.getRelativeHalfWidth() <= targetRelativeHalfWidth) {
+                      stopped.set(true);
+                    }
+                  }
+                }
+              }
+            }
+          } catch (Throwable e) {
+            stopped.set(true);
+            serialized.tryOnError(e);
+          } finally {
+            if (active.decrementAndGet() == 0) {
+              serialized.onComplete();
+            }
+          }
+        });
+      }
+      executor.shutdown();
+    });
+  }
+
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+import java.util.Arrays;
+
+/**
+ * Immutable summary of the replicas completed so far in an ensemble run by
+ * {@link EnsembleRunner}. Absorption statistics (mean, standard deviation, confidence interval, and
+ * quantiles) are computed only over the replicas that reached the absorbing state; replicas that
+ * reached the iteration cap first are counted as censored.
+ */
+public final class EnsembleStatistics {
+
+  /** Cumulative probabilities of the absorption iteration quantiles reported. */
+  public static final double[] QUANTILE_PROBABILITIES = {0.1, 0.25, 0.5, 0.75, 0.9};
+
+  private final int replicaCount;
+  private final int absorbedCount;
+  private final double meanAbsorption;
+  private final double standardDeviation;
+  private final double confidenceHalfWidth;
+  private final double[] quantiles;
+  private final int[] winnerCounts;
+
+  EnsembleStatistics(int replicaCount, int absorbedCount, double meanAbsorption,
+      double standardDeviation, double confidenceHalfWidth, double[] quantiles,
+      int[] winnerCounts) {
+    this.replicaCount = replicaCount;
+    this.absorbedCount = absorbedCount;
+    this.meanAbsorption = meanAbsorption;
+    this.standardDeviation = standardDeviation;
+    this.confidenceHalfWidth = confidenceHalfWidth;
+    this.quantiles = quantiles;
+    this.winnerCounts = winnerCounts;
+  }
+
+  /**
+   * Returns the number of replicas completed.
+   */
+  public int getReplicaCount() {
+    return replicaCount;
+  }
+
+  /**
+   * Returns the number of replicas that reached the absorbing state.
+   */
+  public int getAbsorbedCount() {
+    return absorbedCount;
+  }
+
+  /**
+   * Returns the number of replicas that reached the iteration cap without being absorbed.
+   */
+  public int getCensoredCount() {
+    return replicaCount - absorbedCount;
+  }
+
+  /**
+   * Returns the mean iteration count at absorption, or {@link Double#NaN} if no replicas have been
+   * absorbed.
+   */
+  public double getMeanAbsorption() {
+    return meanAbsorption;
+  }
+
+  /**
+   * Returns the sample standard deviation of the iteration count at absorption, or
+   * {@link Double#NaN} if fewer than 2 replicas have been absorbed.
+   */
+  public double getStandardDeviation() {
+    return standardDeviation;
+  }
+
+  /**
+   * Returns the half-width of the 95% confidence interval for the mean iteration count at
+   * absorption (using the normal approximation), or {@link Double#NaN} if fewer than 2 replicas
+   * have been absorbed.
+   */
+  public double getConfidenceHalfWidth() {
+    return confidenceHalfWidth;
+  }
+
+  /**
+   * Returns the ratio of {@link #getConfidenceHalfWidth()} to {@link #getMeanAbsorption()}.
+   */
+  public double getRelativeHalfWidth() {
+    return confidenceHalfWidth / meanAbsorption;
+  }
+
+  /**
+   * Returns estimates of the quantiles of the iteration count at absorption, at the cumulative
+   * probabilities in {@link #QUANTILE_PROBABILITIES} (in the same order). These are streaming
+   * estimates, which are exact for 5 or fewer absorbed replicas.
+   */
+  public double[] getQuantiles() {
+    return Arrays.copyOf(quantiles, quantiles.length);
+  }
+
+  /**
+   * Returns the number of absorbed replicas in which each breed was the survivor, indexed by breed.
+   */
+  public int[] getWinnerCounts() {
+    return Arrays.copyOf(winnerCounts, winnerCounts.length);
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+import java.util.Arrays;
+
+/**
+ * Streaming estimator of a single quantile, using the P<sup>2</sup> algorithm of Jain and
+ * Chlamtac. Only 5 markers are maintained, regardless of the number of observations; the estimate
+ * is exact for 5 or fewer observations, and converges to the true quantile as the number of
+ * observations increases.
+ */
+final class P2Quantile {
+
+  private static final int MARKERS = 5;
+
+  private final double probability;
+  private final double[] heights;
+  private final double[] positions;
+  private final double[] desired;
+  private final double[] increments;
+
+  private int count;
+
+  P2Quantile(double probability) {
+    this.probability = probability;
+    heights = new double[MARKERS];
+    positions = new double[MARKERS];
+    desired = new double[MARKERS];
+    increments = new double[]{0, probability / 2, probability, (1 + probability) / 2, 1};
+  }
+
+  void add(double value) {
+    if (count < MARKERS) {
+      heights[count++] = value;
+      if (count == MARKERS) {
+        Arrays.sort(heights);
+        for (int i = 0; i < MARKERS; i++) {
+          positions[i] = i;
+          desired[i] = 4 * increments[i];
+        }
+      }
+      return;
+    }
+    int cell;
+    if (value < heights[0]) {
+      heights[0] = value;
+      cell = 0;
+    } else if (value >= heights[MARKERS - 1]) {
+      heights[MARKERS - 1] = value;
+      cell = MARKERS - 2;
+    } else {
+      cell = 0;
+      while (value >= heights[cell + 1]) {
+        cell++;
+      }
+    }
+    for (int i = cell + 1; i < MARKERS; i++) {
+      positions[i]++;
+    }
+    for (int i = 0; i < MARKERS; i++) {
+      desired[i] += increments[i];
+    }
+    for (int i = 1; i < MARKERS - 1; i++) {
+      double offset = desired[i] - positions[i];
+      if ((offset >= 1 && positions[i + 1] - positions[i] > 1)
+          || (offset <= -1 && positions[i - 1] - positions[i] < -1)) {
+        int step = (offset > 0) ? 1 : -1;
+        double height = parabolic(i, step);
+        heights[i] = (heights[i - 1] < height && height < heights[i + 1])
+            ? height
+            : linear(i, step);
+        positions[i] += step;
+      }
+    }
+    count++;
+  }
+
+  double get() {
+    double estimate;
+    if (count == 0) {
+      estimate = Double.NaN;
+    } else if (count <= MARKERS) {
+      double[] sorted = Arrays.copyOf(heights, count);
+      Arrays.sort(sorted);
+      estimate = sorted[(int) Math.round(probability * (count - 1))];
+    } else {
+      estimate = heights[MARKERS / 2];
+    }
+    return estimate;
+  }
+
+  private double parabolic(int i, int step) {
+    return heights[i] + step / (positions[i + 1] - positions[i - 1])
+        * ((positions[i] - positions[i - 1] + step) * (heights[i + 1] - heights[i])
+        / (positions[i + 1] - positions[i])
+        + (positions[i + 1] - positions[i] - step) * (heights[i] - heights[i - 1])
+        / (positions[i] - positions[i - 1]));
+  }
+
+  private double linear(int i, int step) {
+    return heights[i]
+        + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+import edu.cnm.deepdive.rps.model.domain.Ecosystem;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Simulation of a single replica to absorption (or to an iteration cap), as performed by both
+ * {@link EnsembleRunner} and {@link SweepRunner}.
+ */
+final class ReplicaSimulator {
+
+  private ReplicaSimulator() {
+    // Not instantiable.
+  }
+
+  /**
+   * Iterates {@code ecosystem} until it is absorbed, its iteration count reaches
+   * {@code iterationCap}, or {@code stopped} is set; the flag is checked roughly once per Monte
+   * Carlo step. In {@link Ecosystem#setFastForward(boolean) fast-forward} mode, the iteration count
+   * may exceed the cap.
+   *
+   * @param ecosystem       Replica to simulate.
+   * @param swapProbability Probability that a randomly selected pair is swapped at the start of
+   *                        each iteration.
+   * @param iterationCap    Maximum iteration count.
+   * @param stopped         Flag set when the replica should be abandoned.
+   * @return {@code true} if the replica was simulated to absorption or to the cap; {@code false} if
+   * it was abandoned.
+   */
+  static boolean simulate(Ecosystem ecosystem, float swapProbability, long iterationCap,
+      AtomicBoolean stopped) {
+    int chunk = ecosystem.getSize() * ecosystem.getSize();
+    long remaining = iterationCap - ecosystem.getIterationCount();
+    while (!ecosystem.isAbsorbed() && remaining > 0 && !stopped.get()) {
+      ecosystem.iterate((int) Math.min(remaining, chunk), swapProbability);
+      remaining = iterationCap - ecosystem.getIterationCount();
+    }
+    return !stopped.get();
+  }
+
+  /**
+   * Returns the surviving breed of {@code ecosystem}, or -1 if it has not been absorbed.
+   */
+  static int getWinner(Ecosystem ecosystem) {
+    int winner = -1;
+    if (ecosystem.isAbsorbed()) {
+      int[] populations = ecosystem.getPopulations();
+      for (int breed = 0; breed < populations.length; breed++) {
+        if (populations[breed] > 0) {
+          winner = breed;
+          break;
+        }
+      }
+    }
+    return winner;
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+/**
+ * Accumulates the outcomes of ensemble replicas in constant space, producing an
+ * {@link EnsembleStatistics} summary after each. The mean and variance are accumulated with
+ * Welford's algorithm, and quantiles with {@link P2Quantile} estimators.
+ */
+final class StatisticsAccumulator {
+
+  private static final double Z_95 = 1.959964;
+
+  private final P2Quantile[] quantiles;
+  private final int[] winnerCounts;
+
+  private int replicaCount;
+  private int absorbedCount;
+  private double mean;
+  private double sumSquaredDeviations;
+
+  StatisticsAccumulator(int numBreeds) {
+    quantiles = new P2Quantile[EnsembleStatistics.QUANTILE_PROBABILITIES.length];
+    for (int i = 0; i < quantiles.length; i++) {
+      quantiles[i] = new P2Quantile(EnsembleStatistics.QUANTILE_PROBABILITIES[i]);
+    }
+    winnerCounts = new int[numBreeds];
+  }
+
+  /**
+   * Adds the outcome of a single replica.
+   *
+   * @param iterations Iteration count at absorption, or at the iteration cap.
+   * @param winner     Surviving breed, or -1 if the replica was not absorbed.
+   * @return Summary of all replicas added so far.
+   */
+  EnsembleStatistics add(long iterations, int winner) {
+    replicaCount++;
+    if (winner >= 0) {
+      absorbedCount++;
+      winnerCounts[winner]++;
+      double deviation = iterations - mean;
+      mean += deviation / absorbedCount;
+      sumSquaredDeviations += deviation * (iterations - mean);
+      for (P2Quantile quantile : quantiles) {
+        quantile.add(iterations);
+      }
+    }
+    double standardDeviation = (absorbedCount > 1)
+        ? Math.sqrt(sumSquaredDeviations / (absorbedCount - 1))
+        : Double.NaN;
+    double[] estimates = new double[quantiles.length];
+    for (int i = 0; i < estimates.length; i++) {
+      estimates[i] = quantiles[i].get();
+    }
+    return new EnsembleStatistics(replicaCount, absorbedCount,
+        (absorbedCount > 0) ? mean : Double.NaN, standardDeviation,
+        Z_95 * standardDeviation / Math.sqrt(absorbedCount), estimates, winnerCounts.clone());
+  }
+
+}
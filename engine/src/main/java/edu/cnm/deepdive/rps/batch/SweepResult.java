@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+/**
+ * Immutable outcome of a single task (one replica at one point) of a parameter sweep run by
+ * {@link SweepRunner}.
+ */
+public final class SweepResult {
+
+  static final String COLUMNS =
+      "breeds,size,toroidal,swap_probability,replica,iterations,winner,elapsed_nanos";
+
+  private static final int FIELD_COUNT = 8;
+  private static final String INVALID_RECORD_FORMAT = "Invalid sweep result record: \"%s\".";
+
+  private final int numBreeds;
+  private final int size;
+  private final boolean toroidal;
+  private final float swapProbability;
+  private final int replica;
+  private final long iterationCount;
+  private final int winner;
+  private final long elapsedNanos;
+
+  SweepResult(int numBreeds, int size, boolean toroidal, float swapProbability, int replica,
+      long iterationCount, int winner, long elapsedNanos) {
+    this.numBreeds = numBreeds;
+    this.size = size;
+    this.toroidal = toroidal;
+    this.swapProbability = swapProbability;
+    this.replica = replica;
+    this.iterationCount = iterationCount;
+    this.winner = winner;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /**
+   * Parses a result from a single line of a results file, in the format produced by
+   * {@link #toRecord()}.
+   *
+   * @param record Comma-separated fields of a result.
+   * @throws IllegalArgumentException If {@code record} is not a valid result.
+   */
+  static SweepResult parse(String record) throws IllegalArgumentException {
+    String[] fields = record.split(",", -1);
+    if (fields.length != FIELD_COUNT
+        || !(fields[2].equals("true") || fields[2].equals("false"))) {
+      throw new IllegalArgumentException(String.format(INVALID_RECORD_FORMAT, record));
+    }
+    return new SweepResult(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+        Boolean.parseBoolean(fields[2]), Float.parseFloat(fields[3]), Integer.parseInt(fields[4]),
+        Long.parseLong(fields[5]), Integer.parseInt(fields[6]), Long.parseLong(fields[7]));
+  }
+
+  /**
+   * Returns this result as a single line (without terminator) of comma-separated fields, in the
+   * order given by {@link #COLUMNS}.
+   */
+  String toRecord() {
+    return getKey() + "," + iterationCount + "," + winner + "," + elapsedNanos;
+  }
+
+  String getKey() {
+    return SweepTask.key(numBreeds, size, toroidal, swapProbability, replica);
+  }
+
+  String getPointKey() {
+    return SweepTask.pointKey(numBreeds, size, toroidal, swapProbability);
+  }
+
+  /**
+   * Returns the number of breeds of the replica.
+   */
+  public int getNumBreeds() {
+    return numBreeds;
+  }
+
+  /**
+   * Returns the terrain height and width of the replica.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns {@code true} if the terrain of the replica was toroidal, or {@code false} if it was a
+   * box.
+   */
+  public boolean isToroidal() {
+    return toroidal;
+  }
+
+  /**
+   * Returns the swap probability of the replica.
+   */
+  public float getSwapProbability() {
+    return swapProbability;
+  }
+
+  /**
+   * Returns the index of the replica, among the replicas at the same point of the sweep.
+   */
+  public int getReplica() {
+    return replica;
+  }
+
+  /**
+   * Returns the iteration count at absorption, or at the iteration cap if the replica was not
+   * absorbed.
+   */
+  public long getIterationCount() {
+    return iterationCount;
+  }
+
+  /**
+   * Returns {@code true} if the replica reached the absorbing state within the iteration cap.
+   */
+  public boolean isAbsorbed() {
+    return winner >= 0;
+  }
+
+  /**
+   * Returns the surviving breed, or -1 if the replica was not absorbed.
+   */
+  public int getWinner() {
+    return winner;
+  }
+
+  /**
+   * Returns the wall-clock time taken to simulate the replica, in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+}
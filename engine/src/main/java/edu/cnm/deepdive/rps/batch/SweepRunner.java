@@ -0,0 +1,302 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+import edu.cnm.deepdive.rps.model.domain.Ecosystem;
+import edu.cnm.deepdive.rps.model.domain.Engine;
+import edu.cnm.deepdive.rps.model.domain.Neighborhood;
+import edu.cnm.deepdive.rps.model.domain.RandomProviders;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.ObservableEmitter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a parameter sweep: one replica of an {@link Ecosystem} simulation, to absorption (or to an
+ * iteration cap), for every task of a {@link SweepSpec}, recording the outcome of each in a results
+ * file as it completes.
+ * <p>Since run times vary by orders of magnitude across a typical sweep, tasks are submitted to a
+ * work-stealing {@link ForkJoinPool} in decreasing order of expected cost (estimated from the
+ * terrain size and breed count, or&mdash;when a sweep is resumed&mdash;measured from the replicas
+ * of the same point already recorded), so that the longest tasks start first, and the shortest
+ * fill the gaps at the end; no thread is tied to a fixed share of the sweep.</p>
+ * <p>The results file is a CSV file, with a comment line identifying the sweep configuration (seed,
+ * neighborhood, engine, and iteration cap), a header line (see {@link SweepResult}), and one line
+ * per completed task, appended and flushed as each task completes. If the file already exists, the
+ * tasks recorded in it are skipped; thus, an interrupted sweep resumes from the tasks it had
+ * finished (an incomplete final line, left by an interruption during a write, is discarded). The
+ * random number stream of each task is seeded from the sweep seed and the parameters of the task,
+ * so that its result is the same regardless of scheduling, interruption, or the other points of the
+ * sweep; a resumed sweep (or a sweep extended with additional parameter values) thus produces
+ * exactly the results of a single uninterrupted run.</p>
+ * <p>Each replica is simulated with {@link Ecosystem#setFastForward(boolean) fast-forward} enabled,
+ * which leaves the distributions of absorption time and surviving breed unchanged. A replica that
+ * fast-forwards past the iteration cap is recorded as censored at the cap, exactly as if it had
+ * been simulated in full.</p>
+ */
+public class SweepRunner {
+
+  private static final String CONFIGURATION_FORMAT =
+      "# seed=%d neighborhood=%s engine=%s iteration_cap=%d";
+  private static final String CONFIGURATION_MISMATCH_FORMAT =
+      "Results file %s was written by a different sweep configuration: \"%s\".";
+  private static final String INVALID_FORMAT_FORMAT = "Not a valid sweep results file: %s.";
+
+  private final SweepSpec spec;
+  private final Neighborhood neighborhood;
+  private final Engine engine;
+  private final long iterationCap;
+  private final ForkJoinPool pool;
+
+  /**
+   * Initializes this instance with the sweep specification and the fixed parameters of every
+   * replica. Each run uses its own {@link ForkJoinPool}, with one thread per available processor,
+   * which is shut down when the run's tasks have completed (or been abandoned); since tasks may run
+   * for hours, the {@link ForkJoinPool#commonPool() common pool} is not used.
+   *
+   * @param spec         Values of the varied parameters, and replicas per point.
+   * @param neighborhood Shape of the neighborhood from which each opponent is selected.
+   * @param engine       Simulation implementation.
+   * @param iterationCap Maximum number of iterations of each replica.
+   */
+  public SweepRunner(SweepSpec spec, Neighborhood neighborhood, Engine engine, long iterationCap) {
+    this(spec, neighborhood, engine, iterationCap, null);
+  }
+
+  /**
+   * Initializes this instance with the sweep specification and the fixed parameters of every
+   * replica, using the specified pool.
+   *
+   * @param spec         Values of the varied parameters, and replicas per point.
+   * @param neighborhood Shape of the neighborhood from which each opponent is selected.
+   * @param engine       Simulation implementation.
+   * @param iterationCap Maximum number of iterations of each replica.
+   * @param pool         Pool in which tasks are run, or {@code null} for a pool owned by each
+   *                     run (see {@link #SweepRunner(SweepSpec, Neighborhood, Engine, long)}).
+   */
+  public SweepRunner(SweepSpec spec, Neighborhood neighborhood, Engine engine, long iterationCap,
+      ForkJoinPool pool) {
+    this.spec = spec;
+    this.neighborhood = neighborhood;
+    this.engine = engine;
+    this.iterationCap = iterationCap;
+    this.pool = pool;
+  }
+
+  /**
+   * Creates and returns an {@link Observable Observable&lt;SweepResult&gt;} which&mdash;when
+   * subscribed to&mdash;reads the tasks already recorded in {@code resultsFile} (if it exists), and
+   * starts running the remaining tasks.
+   * <ul><li>Each {@code onNext} event is emitted (on one of the pool threads) as a task completes,
+   * after its result has been appended to {@code resultsFile}. Results read from an existing file
+   * are not emitted; see {@link #read(File)}.</li>
+   * <li>The {@code onComplete} event is emitted when all tasks have been recorded.</li>
+   * <li>The {@code onError} event is emitted if {@code resultsFile} cannot be read or written, or
+   * was written by a sweep with a different seed, neighborhood, engine, or iteration cap.</li>
+   * <li>Disposing of the subscription stops the run; tasks in progress are abandoned without being
+   * recorded, and run again when the sweep is resumed.</li></ul>
+   *
+   * @param seed        Seed from which the random number stream of each task is derived.
+   * @param resultsFile File in which results are recorded.
+   * @return {@link Observable Observable&lt;SweepResult&gt;} that can be subscribed to, to start
+   * (or resume) the sweep.
+   */
+  public Observable<SweepResult> run(long seed, File resultsFile) {
+    return Observable.create((emitter) -> {
+      ObservableEmitter<SweepResult> serialized = emitter.serialize();
+      String configuration = String.format(
+          CONFIGURATION_FORMAT, seed, neighborhood, engine, iterationCap);
+      List<SweepResult> recorded = read(resultsFile, configuration, true);
+      Set<String> finished = new HashSet<>();
+      for (SweepResult result : recorded) {
+        finished.add(result.getKey());
+      }
+      List<SweepTask> tasks = new ArrayList<>(spec.expand());
+      tasks.removeIf((task) -> finished.contains(task.getKey()));
+      sort(tasks, recorded, iterationCap);
+      Writer writer = Files.newBufferedWriter(resultsFile.toPath(), StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      if (finished.isEmpty() && resultsFile.length() == 0) {
+        writer.write(configuration);
+        writer.write('\n');
+        writer.write(SweepResult.COLUMNS);
+        writer.write('\n');
+        writer.flush();
+      }
+      if (tasks.isEmpty()) {
+        writer.close();
+        serialized.onComplete();
+      } else {
+        AtomicInteger pending = new AtomicInteger(tasks.size());
+        AtomicBoolean stopped = new AtomicBoolean();
+        serialized.setCancellable(() -> stopped.set(true));
+        ForkJoinPool pool = (this.pool != null)
+            ? this.pool
+            : new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        for (SweepTask task : tasks) {
+          pool.execute(() -> {
+            try {
+              SweepResult result = stopped.get() ? null : simulate(task, seed, stopped);
+              if (result != null) {
+                synchronized (writer) {
+                  writer.write(result.toRecord());
+                  writer.write('\n');
+                  writer.flush();
+                }
+                serialized.onNext(result);
+              }
+            } catch (Throwable e) {
+              stopped.set(true);
+              serialized.tryOnError(e);
+            } finally {
+              if (pending.decrementAndGet() == 0) {
+                try {
+                  writer.close();
+                  serialized.onComplete();
+                } catch (IOException e) {
+                  serialized.tryOnError(e);
+                }
+              }
+            }
+          });
+        }
+        if (pool != this.pool) {
+          // Tasks already submitted still run; the threads terminate when they have finished.
+          pool.shutdown();
+        }
+      }
+    });
+  }
+
+  /**
+   * Sorts the specified tasks in decreasing order of expected cost. For a point of the sweep with
+   * replicas already recorded, the cost of each remaining replica is the mean elapsed time of the
+   * recorded ones. For any other point, it is the estimate of
+   * {@link SweepTask#getExpectedCost(long)}, converted to nanoseconds by the ratio of the total
+   * elapsed time of the recorded results to their total estimated cost. Ties (such as between
+   * points expected to reach the iteration cap) are broken in favor of larger terrains.
+   */
+  static void sort(List<SweepTask> tasks, List<SweepResult> recorded, long iterationCap) {
+    Map<String, double[]> measured = new HashMap<>();
+    double measuredNanos = 0;
+    double measuredEstimate = 0;
+    for (SweepResult result : recorded) {
+      double[] point = measured.computeIfAbsent(result.getPointKey(), (key) -> new double[2]);
+      point[0] += result.getElapsedNanos();
+      point[1]++;
+      measuredNanos += result.getElapsedNanos();
+      measuredEstimate += new SweepTask(result.getNumBreeds(), result.getSize(),
+          result.isToroidal(), result.getSwapProbability(), result.getReplica())
+          .getExpectedCost(iterationCap);
+    }
+    double nanosPerEstimate =
+        (measuredNanos > 0 && measuredEstimate > 0) ? measuredNanos / measuredEstimate : 1;
+    Map<SweepTask, Double> costs = new HashMap<>();
+    for (SweepTask task : tasks) {
+      double[] point = measured.get(task.getPointKey());
+      costs.put(task, (point != null)
+          ? point[0] / point[1]
+          : task.getExpectedCost(iterationCap) * nanosPerEstimate);
+    }
+    tasks.sort(Comparator.comparingDouble((SweepTask task) -> costs.get(task))
+        .thenComparingInt(SweepTask::getSize)
+        .reversed());
+  }
+
+  /**
+   * Reads and returns the results recorded in the specified results file, in the order in which
+   * they were recorded. An incomplete final line is ignored.
+   *
+   * @param resultsFile File written by {@link #run(long, File)}.
+   * @return Recorded results.
+   * @throws IOException If the file cannot be read, or is not a valid results file.
+   */
+  public static List<SweepResult> read(File resultsFile) throws IOException {
+    return read(resultsFile, null, false);
+  }
+
+  private static List<SweepResult> read(File resultsFile, String configuration, boolean repair)
+      throws IOException {
+    List<SweepResult> results = new ArrayList<>();
+    if (resultsFile.exists()) {
+      byte[] contents = Files.readAllBytes(resultsFile.toPath());
+      int end = contents.length;
+      while (end > 0 && contents[end - 1] != '\n') {
+        end--;
+      }
+      if (repair && end < contents.length) {
+        try (FileChannel channel =
+            FileChannel.open(resultsFile.toPath(), StandardOpenOption.WRITE)) {
+          channel.truncate(end);
+        }
+      }
+      String[] lines = new String(contents, 0, end, StandardCharsets.UTF_8).split("\n");
+      if (end > 0) {
+        if (configuration != null && !lines[0].equals(configuration)) {
+          throw new IOException(
+              String.format(CONFIGURATION_MISMATCH_FORMAT, resultsFile, lines[0]));
+        }
+        if (lines.length < 2 || !lines[1].equals(SweepResult.COLUMNS)) {
+          throw new IOException(String.format(INVALID_FORMAT_FORMAT, resultsFile));
+        }
+        try {
+          for (int i = 2; i < lines.length; i++) {
+            results.add(SweepResult.parse(lines[i]));
+          }
+        } catch (IllegalArgumentException e) {
+          throw new IOException(String.format(INVALID_FORMAT_FORMAT, resultsFile), e);
+        }
+      } else if (repair && contents.length > 0) {
+        // Only part of the configuration line was written; start over.
+        Files.write(resultsFile.toPath(), new byte[0]);
+      }
+    }
+    return results;
+  }
+
+  private SweepResult simulate(SweepTask task, long seed, AtomicBoolean stopped) {
+    long start = System.nanoTime();
+    Ecosystem ecosystem = engine.create(task.getNumBreeds(), task.getSize(), task.isToroidal(),
+        neighborhood, RandomProviders.create(task.getSeed(seed)));
+    ecosystem.setFastForward(true);
+    float swapProbability = task.getSwapProbability();
+    SweepResult result = null;
+    if (ReplicaSimulator.simulate(ecosystem, swapProbability, iterationCap, stopped)) {
+      boolean absorbed = ecosystem.isAbsorbed() && ecosystem.getIterationCount() <= iterationCap;
+      result = new SweepResult(task.getNumBreeds(), task.getSize(), task.isToroidal(),
+          swapProbability, task.getReplica(),
+          absorbed ? ecosystem.getIterationCount() : iterationCap,
+          absorbed ? ReplicaSimulator.getWinner(ecosystem) : -1, System.nanoTime() - start);
+    }
+    return result;
+  }
+
+}
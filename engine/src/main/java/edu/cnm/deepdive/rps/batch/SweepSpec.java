@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable specification of a parameter sweep: the values of each varied parameter of the
+ * simulation, and the number of replicas to run at each point of the grid they span. A sweep
+ * consists of one task for every combination of breed count, terrain size, topology, swap
+ * probability, and replica; see {@link SweepRunner}.
+ */
+public final class SweepSpec {
+
+  private static final String EMPTY_PARAMETER = "Every parameter must have at least one value.";
+  private static final String INVALID_REPLICAS = "Number of replicas must be positive.";
+
+  private final int[] breedCounts;
+  private final int[] sizes;
+  private final boolean[] topologies;
+  private final float[] swapProbabilities;
+  private final int replicas;
+
+  /**
+   * Initializes this instance with the values of each parameter, and the number of replicas per
+   * point.
+   *
+   * @param breedCounts       Numbers of breeds.
+   * @param sizes             Terrain heights and widths.
+   * @param topologies        Terrain topologies ({@code true} for toroidal, {@code false} for box).
+   * @param swapProbabilities Probabilities that a randomly selected pair is swapped at the start of
+   *                          each iteration.
+   * @param replicas          Number of replicas at each point of the grid.
+   * @throws IllegalArgumentException If any parameter has no values, or {@code replicas} is not
+   *                                  positive.
+   */
+  public SweepSpec(int[] breedCounts, int[] sizes, boolean[] topologies,
+      float[] swapProbabilities, int replicas) throws IllegalArgumentException {
+    if (breedCounts.length == 0 || sizes.length == 0 || topologies.length == 0
+        || swapProbabilities.length == 0) {
+      throw new IllegalArgumentException(EMPTY_PARAMETER);
+    }
+    if (replicas <= 0) {
+      throw new IllegalArgumentException(INVALID_REPLICAS);
+    }
+    this.breedCounts = breedCounts.clone();
+    this.sizes = sizes.clone();
+    this.topologies = topologies.clone();
+    this.swapProbabilities = swapProbabilities.clone();
+    this.replicas = replicas;
+  }
+
+  /**
+   * Returns the numbers of breeds swept.
+   */
+  public int[] getBreedCounts() {
+    return breedCounts.clone();
+  }
+
+  /**
+   * Returns the terrain sizes swept.
+   */
+  public int[] getSizes() {
+    return sizes.clone();
+  }
+
+  /**
+   * Returns the terrain topologies swept ({@code true} for toroidal, {@code false} for box).
+   */
+  public boolean[] getTopologies() {
+    return topologies.clone();
+  }
+
+  /**
+   * Returns the swap probabilities swept.
+   */
+  public float[] getSwapProbabilities() {
+    return swapProbabilities.clone();
+  }
+
+  /**
+   * Returns the number of replicas at each point of the grid.
+   */
+  public int getReplicas() {
+    return replicas;
+  }
+
+  /**
+   * Returns the total number of tasks (points of the grid, times replicas per point).
+   */
+  public int getTaskCount() {
+    return breedCounts.length * sizes.length * topologies.length * swapProbabilities.length
+        * replicas;
+  }
+
+  List<SweepTask> expand() {
+    List<SweepTask> tasks = new ArrayList<>(getTaskCount());
+    for (int numBreeds : breedCounts) {
+      for (int size : sizes) {
+        for (boolean toroidal : topologies) {
+          for (float swapProbability : swapProbabilities) {
+            for (int replica = 0; replica < replicas; replica++) {
+              tasks.add(new SweepTask(numBreeds, size, toroidal, swapProbability, replica));
+            }
+          }
+        }
+      }
+    }
+    return tasks;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("breeds=%s sizes=%s toroidal=%s swap=%s replicas=%d",
+        Arrays.toString(breedCounts), Arrays.toString(sizes), Arrays.toString(topologies),
+        Arrays.toString(swapProbabilities), replicas);
+  }
+
+}
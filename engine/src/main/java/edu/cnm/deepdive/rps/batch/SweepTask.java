@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+/**
+ * A single replica at a single point of a parameter sweep. Each task has a key derived from its
+ * parameters (not its position in the sweep), which identifies its result in a results file, and
+ * from which&mdash;combined with the sweep seed&mdash;the seed of its random number stream is
+ * derived; thus, the result of a task does not depend on the order in which tasks are run, or on
+ * the other points of the sweep.
+ */
+final class SweepTask {
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private final int numBreeds;
+  private final int size;
+  private final boolean toroidal;
+  private final float swapProbability;
+  private final int replica;
+  private final String key;
+
+  SweepTask(int numBreeds, int size, boolean toroidal, float swapProbability, int replica) {
+    this.numBreeds = numBreeds;
+    this.size = size;
+    this.toroidal = toroidal;
+    this.swapProbability = swapProbability;
+    this.replica = replica;
+    key = key(numBreeds, size, toroidal, swapProbability, replica);
+  }
+
+  static String key(int numBreeds, int size, boolean toroidal, float swapProbability,
+      int replica) {
+    return pointKey(numBreeds, size, toroidal, swapProbability) + "," + replica;
+  }
+
+  /**
+   * Returns a key identifying the point of the sweep (that is, the parameters other than the
+   * replica number) with the specified parameters.
+   */
+  static String pointKey(int numBreeds, int size, boolean toroidal, float swapProbability) {
+    return numBreeds + "," + size + "," + toroidal + "," + swapProbability;
+  }
+
+  int getNumBreeds() {
+    return numBreeds;
+  }
+
+  int getSize() {
+    return size;
+  }
+
+  boolean isToroidal() {
+    return toroidal;
+  }
+
+  float getSwapProbability() {
+    return swapProbability;
+  }
+
+  int getReplica() {
+    return replica;
+  }
+
+  String getKey() {
+    return key;
+  }
+
+  String getPointKey() {
+    return pointKey(numBreeds, size, toroidal, swapProbability);
+  }
+
+  /**
+   * Returns a rough estimate of the relative cost of this task. Absorption takes a number of Monte
+   * Carlo steps (of <em>L</em><sup>2</sup> iterations each) that grows at least as fast as the
+   * area of the terrain, and more breeds take longer to be eliminated; the estimate is thus
+   * <em>L</em><sup>4</sup> iterations per breed, capped at {@code iterationCap}. The swap
+   * probability and topology are not modeled: their effect on absorption time can be large, and of
+   * either sign, so that it is better measured (see {@link SweepRunner}) than guessed. Only the
+   * order of the estimates matters.
+   */
+  double getExpectedCost(long iterationCap) {
+    double cells = (double) size * size;
+    return Math.min(iterationCap, cells * cells * numBreeds);
+  }
+
+  /**
+   * Returns the seed of the random number stream of this task in a sweep with the specified seed,
+   * by hashing the sweep seed with the parameters of this task.
+   */
+  long getSeed(long sweepSeed) {
+    long hash = mix(sweepSeed);
+    hash = mix(hash + numBreeds);
+    hash = mix(hash + size);
+    hash = mix(hash + (toroidal ? 1 : 0));
+    hash = mix(hash + Float.floatToIntBits(swapProbability));
+    return mix(hash + replica);
+  }
+
+  /** SplitMix64 finalizer, applied after a Weyl increment. */
+  private static long mix(long value) {
+    long z = value + GOLDEN_GAMMA;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+}
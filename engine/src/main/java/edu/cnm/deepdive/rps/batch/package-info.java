@@ -0,0 +1,6 @@
+/**
+ * Headless batch execution of the simulation, for statistical measurement of its outcomes over many
+ * independent replicas, at a single point ({@link edu.cnm.deepdive.rps.batch.EnsembleRunner}) or
+ * across a grid of parameter values ({@link edu.cnm.deepdive.rps.batch.SweepRunner}).
+ */
+package edu.cnm.deepdive.rps.batch;
@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import org.apache.commons.rng.UniformRandomProvider;
+
+/**
+ * Samples the number of iterations until absorption of a terrain occupied by two mutually
+ * interacting breeds. In that state, one breed (the winner) beats the other (the loser) in every
+ * interaction, so each eventful iteration converts one losing cell adjacent to a winning cell; the
+ * outcome is certain, and only its timing is random.
+ * <p>Rather than simulating the full ecosystem, this tracks only the losing cells on the interface.
+ * The weight of a losing cell is its probability (in units of 1 /
+ * ({@link ActiveEdgeIndex#WEIGHT_UNIT} &times; <em>N</em>), for a terrain of <em>N</em> cells) of
+ * being converted in a single iteration of the standard simulation: the sum, over its winning
+ * neighbors, of the probabilities of selecting the edge between them in either direction. Each
+ * eventful iteration selects a losing cell with probability proportional to its weight (by uniform
+ * selection from the interface, with rejection), and the intervening uneventful iterations are
+ * skipped by sampling from the geometric distribution, exactly as in {@link ActiveEdgeEcosystem}.
+ * The absorption time thus has the same distribution as in the standard simulation, but each
+ * conversion costs only a few operations on the neighbors of the converted cell.</p>
+ * <p>Memory use is 3 {@code int} values per cell, i.e. {@code 12 * size * size} bytes.</p>
+ */
+final class AbsorptionSampler {
+
+  private static final int NOT_LOSING = -1;
+  private static final int ABSENT = -1;
+
+  private final NeighborTable neighbors;
+  private final int size;
+  private final int[] classWeights;
+  private final int[] weights;
+  private final int[] positions;
+  private final int[] frontier;
+
+  private int frontierSize;
+  private long totalWeight;
+
+  AbsorptionSampler(NeighborTable neighbors, int size) {
+    this.neighbors = neighbors;
+    this.size = size;
+    classWeights = new int[ActiveEdgeIndex.CLASS_COUNT];
+    for (int neighborClass = 0; neighborClass < classWeights.length; neighborClass++) {
+      int count = neighbors.getNeighborCount(neighborClass);
+      classWeights[neighborClass] = (count > 0) ? ActiveEdgeIndex.WEIGHT_UNIT / count : 0;
+    }
+    int cellCount = size * size;
+    weights = new int[cellCount];
+    positions = new int[cellCount];
+    frontier = new int[cellCount];
+  }
+
+  /**
+   * Simulates the conversion of every cell occupied by {@code losingBreed} in the specified
+   * terrain, and returns the number of iterations it took. The terrain itself is not modified;
+   * every other cell must be occupied by a single breed that beats {@code losingBreed}.
+   *
+   * @param cells       Terrain in its current state.
+   * @param losingBreed Breed to be absorbed.
+   * @param rng         Source of randomness.
+   * @return Number of iterations until absorption.
+   */
+  long sample(CellStorage cells, int losingBreed, UniformRandomProvider rng) {
+    frontierSize = 0;
+    totalWeight = 0;
+    int maxWeight = 1;
+    for (int row = 0, cell = 0; row < size; row++) {
+      for (int column = 0; column < size; column++, cell++) {
+        positions[cell] = ABSENT;
+        if (cells.get(cell) == losingBreed) {
+          int neighborClass = neighbors.getNeighborClass(row, column);
+          int count = neighbors.getNeighborCount(neighborClass);
+          int cellWeight = classWeights[neighborClass];
+          // The weight of a losing cell can never exceed that of the edges to all its neighbors.
+          int bound = 0;
+          int weight = 0;
+          for (int slot = 0; slot < count; slot++) {
+            int edgeWeight = cellWeight
+                + classWeights[neighbors.getNeighborClass(row, column, neighborClass, slot)];
+            bound += edgeWeight;
+            if (cells.get(cell + neighbors.getDelta(neighborClass, slot)) != losingBreed) {
+              weight += edgeWeight;
+            }
+          }
+          maxWeight = Math.max(maxWeight, bound);
+          weights[cell] = 0;
+          add(cell, weight);
+        } else {
+          weights[cell] = NOT_LOSING;
+        }
+      }
+    }
+    double scale = 1d / ((double) ActiveEdgeIndex.WEIGHT_UNIT * weights.length);
+    long iterations = 0;
+    while (frontierSize > 0) {
+      iterations += ActiveEdgeEcosystem.skip(rng, totalWeight * scale) + 1;
+      int cell;
+      do {
+        cell = frontier[rng.nextInt(frontierSize)];
+      } while (rng.nextInt(maxWeight) >= weights[cell]);
+      convert(cell);
+    }
+    return iterations;
+  }
+
+  private void convert(int cell) {
+    int weight = weights[cell];
+    int position = positions[cell];
+    int last = frontier[--frontierSize];
+    frontier[position] = last;
+    positions[last] = position;
+    positions[cell] = ABSENT;
+    weights[cell] = NOT_LOSING;
+    totalWeight -= weight;
+    int row = cell / size;
+    int column = cell - row * size;
+    int neighborClass = neighbors.getNeighborClass(row, column);
+    int count = neighbors.getNeighborCount(neighborClass);
+    int cellWeight = classWeights[neighborClass];
+    for (int slot = 0; slot < count; slot++) {
+      int neighbor = cell + neighbors.getDelta(neighborClass, slot);
+      if (weights[neighbor] != NOT_LOSING) {
+        add(neighbor, cellWeight
+            + classWeights[neighbors.getNeighborClass(row, column, neighborClass, slot)]);
+      }
+    }
+  }
+
+  private void add(int cell, int weight) {
+    if (weight > 0) {
+      if (positions[cell] == ABSENT) {
+        positions[cell] = frontierSize;
+        frontier[frontierSize++] = cell;
+      }
+      weights[cell] += weight;
+      totalWeight += weight;
+    }
+  }
+
+}
@@ -0,0 +1,189 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.Arrays;
+import org.apache.commons.rng.UniformRandomProvider;
+
+/**
+ * Indexed set of the active directed edges of an {@link Ecosystem} terrain, where an edge is a
+ * (cell, neighbor) pair that could be selected for a competitive interaction, and an active edge is
+ * one in which the interaction would result in a replacement. Supports constant-time insertion,
+ * removal, and uniform sampling, as well as tracking of the total probability (in a single
+ * iteration of the standard simulation) of selecting an active edge.
+ * <p>Each edge is identified by {@code cell * degree + slot}, where {@code slot} is the position of
+ * the neighbor in the {@link NeighborTable} list for the cell. Memory use is 2 {@code int} values
+ * per potential edge, i.e. {@code 8 * size * size * degree} bytes.</p>
+ */
+final class ActiveEdgeIndex {
+
+  /**
+   * Least common multiple of all possible neighbor counts (1 to 8); the weight of an edge from a
+   * cell with {@code n} neighbors is {@code WEIGHT_UNIT / n}, which is thus always an integer.
+   */
+  static final int WEIGHT_UNIT = 840;
+  static final int CLASS_COUNT = 9;
+
+  private final Ecosystem ecosystem;
+  private final NeighborTable neighbors;
+  private final int size;
+  private final int degree;
+  private final int minNeighborCount;
+  private final int[] classWeights;
+  private final double totalWeight;
+  private final int[] edges;
+  private final int[] positions;
+
+  private int edgeCount;
+  private long weight;
+  private int sampledAttacker;
+  private int sampledDefender;
+
+  ActiveEdgeIndex(Ecosystem ecosystem) {
+    this.ecosystem = ecosystem;
+    neighbors = ecosystem.getNeighbors();
+    size = ecosystem.getSize();
+    degree = neighbors.getDegree();
+    classWeights = new int[CLASS_COUNT];
+    for (int neighborClass = 0; neighborClass < CLASS_COUNT; neighborClass++) {
+      int count = neighbors.getNeighborCount(neighborClass);
+      classWeights[neighborClass] = (count > 0) ? WEIGHT_UNIT / count : 0;
+    }
+    int min = degree;
+    for (int row = 0; row < Math.min(size, 2); row++) {
+      for (int column = 0; column < Math.min(size, 2); column++) {
+        int count = neighbors.getNeighborCount(neighbors.getNeighborClass(row, column));
+        if (count > 0) {
+          min = Math.min(min, count);
+        }
+      }
+    }
+    minNeighborCount = min;
+    int cellCount = size * size;
+    totalWeight = (double) WEIGHT_UNIT * cellCount;
+    edges = new int[cellCount * degree];
+    positions = new int[cellCount * degree];
+    rebuild();
+  }
+
+  /**
+   * Re-evaluates every edge of the terrain, discarding the current contents of this index. This
+   * must be invoked after any wholesale change to the terrain.
+   */
+  void rebuild() {
+    Arrays.fill(positions, -1);
+    edgeCount = 0;
+    weight = 0;
+    for (int row = 0, cell = 0; row < size; row++) {
+      for (int column = 0; column < size; column++, cell++) {
+        int neighborClass = neighbors.getNeighborClass(row, column);
+        int count = neighbors.getNeighborCount(neighborClass);
+        int breed = ecosystem.getBreed(cell);
+        for (int slot = 0; slot < count; slot++) {
+          int neighbor = cell + neighbors.getDelta(neighborClass, slot);
+          set(cell * degree + slot, ecosystem.interacts(breed, ecosystem.getBreed(neighbor)),
+              classWeights[neighborClass]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of active directed edges.
+   */
+  int getEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Returns the probability that a single competitive interaction in the standard simulation (i.e.
+   * random selection of an individual, followed by random selection of one of its neighbors) would
+   * select an active edge.
+   */
+  double getRate() {
+    return weight / totalWeight;
+  }
+
+  /**
+   * Selects an active edge, with probability proportional to the likelihood of it being selected in
+   * the standard simulation. The endpoints of the selected edge are then available from
+   * {@link #getSampledAttacker()} and {@link #getSampledDefender()}. This must not be invoked when
+   * {@link #getEdgeCount()} is 0.
+   */
+  void sample(UniformRandomProvider rng) {
+    int attacker;
+    int neighborClass;
+    int slot;
+    do {
+      int edge = edges[rng.nextInt(edgeCount)];
+      attacker = edge / degree;
+      slot = edge - attacker * degree;
+      int row = attacker / size;
+      neighborClass = neighbors.getNeighborClass(row, attacker - row * size);
+      // Edges from cells with fewer neighbors are more likely to be selected; correct for this by
+      // rejection.
+    } while (rng.nextInt(neighbors.getNeighborCount(neighborClass)) >= minNeighborCount);
+    sampledAttacker = attacker;
+    sampledDefender = attacker + neighbors.getDelta(neighborClass, slot);
+  }
+
+  int getSampledAttacker() {
+    return sampledAttacker;
+  }
+
+  int getSampledDefender() {
+    return sampledDefender;
+  }
+
+  /**
+   * Re-evaluates all edges (in both directions) between the specified cell and its neighbors. This
+   * must be invoked after every change to the breed occupying a cell.
+   *
+   * @param cell Row-major index of the changed cell.
+   */
+  void refresh(int cell) {
+    int row = cell / size;
+    int column = cell - row * size;
+    int neighborClass = neighbors.getNeighborClass(row, column);
+    int count = neighbors.getNeighborCount(neighborClass);
+    int weight = classWeights[neighborClass];
+    int breed = ecosystem.getBreed(cell);
+    for (int slot = 0; slot < count; slot++) {
+      int neighbor = cell + neighbors.getDelta(neighborClass, slot);
+      boolean active = ecosystem.interacts(breed, ecosystem.getBreed(neighbor));
+      set(cell * degree + slot, active, weight);
+      int reverseClass = neighbors.getNeighborClass(row, column, neighborClass, slot);
+      int reverseSlot = neighbors.getReverseSlot(neighborClass, slot, reverseClass);
+      set(neighbor * degree + reverseSlot, active, classWeights[reverseClass]);
+    }
+  }
+
+  private void set(int edge, boolean active, int edgeWeight) {
+    int position = positions[edge];
+    if (active && position < 0) {
+      positions[edge] = edgeCount;
+      edges[edgeCount++] = edge;
+      weight += edgeWeight;
+    } else if (!active && position >= 0) {
+      int last = edges[--edgeCount];
+      edges[position] = last;
+      positions[last] = position;
+      positions[edge] = -1;
+      weight -= edgeWeight;
+    }
+  }
+
+}
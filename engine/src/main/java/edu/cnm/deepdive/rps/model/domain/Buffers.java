@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Positioning helpers for {@link ByteBuffer} instances, shared by the storage, checkpoint, and
+ * trajectory classes. The {@link Buffer} methods are invoked through the {@code Buffer} type, for
+ * compatibility with older Android runtimes, which lack the covariant {@code ByteBuffer} overrides.
+ */
+final class Buffers {
+
+  private Buffers() {
+    // Not instantiable.
+  }
+
+  static void clear(ByteBuffer buffer) {
+    ((Buffer) buffer).clear();
+  }
+
+  static void flip(ByteBuffer buffer) {
+    ((Buffer) buffer).flip();
+  }
+
+  static void limit(ByteBuffer buffer, int limit) {
+    ((Buffer) buffer).limit(limit);
+  }
+
+  static void position(ByteBuffer buffer, int position) {
+    ((Buffer) buffer).position(position);
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+/**
+ * Contiguous range of records in a {@link CellChangeLog}, published once per batch of iterations.
+ * A batch does not copy the records, but reads them from the ring buffer of the log; if the
+ * consumer of a batch falls too far behind the producer, those records may be overwritten, in
+ * which case {@link #isComplete()} returns {@code false}, and the consumer should resynchronize
+ * from the full terrain.
+ */
+public final class CellChangeBatch {
+
+  private static final int BREED_MASK = 0xff;
+
+  private final CellChangeLog log;
+  private final long from;
+  private final long to;
+  private final boolean complete;
+
+  CellChangeBatch(CellChangeLog log, long from, long to, boolean complete) {
+    this.log = log;
+    this.from = from;
+    this.to = to;
+    this.complete = complete;
+  }
+
+  /**
+   * Returns the number of records in this batch.
+   */
+  public int size() {
+    return (int) (to - from);
+  }
+
+  /**
+   * Returns {@code true} if this batch contains all of the changes made since the previous batch
+   * (i.e. no changes were omitted, and none of the records have been overwritten), and
+   * {@code false} otherwise. Since records may be overwritten while they are being read, this
+   * should be checked <em>after</em> reading the records.
+   */
+  public boolean isComplete() {
+    return complete && log.isRetained(from);
+  }
+
+  /**
+   * Returns the packed record at the specified position in this batch.
+   *
+   * @param position Position (from 0 to {@link #size()} - 1) of the record in this batch.
+   */
+  public long get(int position) {
+    return log.get(from + position);
+  }
+
+  /**
+   * Passes the unpacked contents of each record in this batch, in order, to {@code consumer}.
+   *
+   * @param consumer Recipient of the records.
+   * @return Value of {@link #isComplete()} after all records have been read.
+   */
+  public boolean forEach(Consumer consumer) {
+    for (long sequence = from; sequence < to; sequence++) {
+      long record = log.get(sequence);
+      consumer.accept(getIndex(record), getOldBreed(record), getNewBreed(record));
+    }
+    return isComplete();
+  }
+
+  /**
+   * Combines this batch with the one following it, returning a batch spanning the records of both.
+   * If {@code next} was not published by the same log as this batch, the ranges cannot be combined,
+   * and the result is {@code next}, flagged as incomplete. This is suitable as the reducer for
+   * coalescing batches in a reactive stream, when the consumer cannot keep up with the producer.
+   *
+   * @param next Batch published after this one.
+   * @return Combined batch.
+   */
+  public CellChangeBatch coalesce(CellChangeBatch next) {
+    return (next.log == log)
+        ? new CellChangeBatch(log, from, next.to, complete && next.complete)
+        : new CellChangeBatch(next.log, next.from, next.to, false);
+  }
+
+  /**
+   * Returns the row-major index of the cell changed in the specified packed record.
+   */
+  public static int getIndex(long record) {
+    return (int) (record >>> 16);
+  }
+
+  /**
+   * Returns the breed previously occupying the cell changed in the specified packed record.
+   */
+  public static int getOldBreed(long record) {
+    return (int) (record >>> 8) & BREED_MASK;
+  }
+
+  /**
+   * Returns the breed now occupying the cell changed in the specified packed record.
+   */
+  public static int getNewBreed(long record) {
+    return (int) record & BREED_MASK;
+  }
+
+  /**
+   * Recipient of the unpacked records of a {@link CellChangeBatch}.
+   */
+  @FunctionalInterface
+  public interface Consumer {
+
+    /**
+     * Processes a single cell change.
+     *
+     * @param index    Row-major index of the changed cell.
+     * @param oldBreed Breed previously occupying the cell.
+     * @param newBreed Breed now occupying the cell.
+     */
+    void accept(int index, int oldBreed, int newBreed);
+
+  }
+
+}
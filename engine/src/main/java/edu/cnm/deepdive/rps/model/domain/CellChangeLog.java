@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+/**
+ * Reusable ring buffer of cell-change records, attached to an {@link Ecosystem} with
+ * {@link Ecosystem#setChangeLog(CellChangeLog)}. While attached, every change in the breed
+ * occupying a cell of the terrain is appended to this log as a single packed {@code long} (see
+ * {@link CellChangeBatch#getIndex(long)}, {@link CellChangeBatch#getOldBreed(long)}, and
+ * {@link CellChangeBatch#getNewBreed(long)}); no objects are allocated per change.
+ * <p>Records are grouped into batches by {@link #publish()}, which is typically invoked once after
+ * each batch of iterations. The producer never runs more than half the capacity of the ring ahead
+ * of the most recently published batch; if more changes than that occur between two invocations of
+ * {@link #publish()}, the excess changes are not recorded, and the resulting batch is flagged as
+ * incomplete. Similarly, a consumer that falls more than half the capacity of the ring behind the
+ * producer will find that the records of the batch it is reading have been overwritten, and that
+ * batch will report itself as incomplete. In either case, the consumer should resynchronize from
+ * the full terrain (e.g. {@link Ecosystem#getTerrain()}).</p>
+ * <p>Recording and publishing must be performed on a single thread (the thread performing the
+ * simulation); batches may be read from any thread.</p>
+ */
+public final class CellChangeLog {
+
+  private static final int MIN_CAPACITY = 1 << 10;
+  private static final int MAX_CAPACITY = 1 << 30;
+  private static final String CAPACITY_TOO_LARGE = "Capacity must not exceed 2^30 records.";
+
+  private final long[] records;
+  private final int mask;
+  private final int limit;
+
+  private long sequence;
+  private long batchStart;
+  private boolean incomplete;
+  private volatile long cursor;
+
+  /**
+   * Initializes this instance with the capacity for at least the specified number of records. The
+   * actual capacity is rounded up to a power of 2 (with a minimum of 2<sup>10</sup>), and half of
+   * the actual capacity is the maximum number of changes that can be recorded in a single batch.
+   *
+   * @param capacity Minimum capacity of the ring, in records.
+   * @throws IllegalArgumentException If {@code capacity} is greater than 2<sup>30</sup>.
+   */
+  public CellChangeLog(int capacity) throws IllegalArgumentException {
+    if (capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException(CAPACITY_TOO_LARGE);
+    }
+    int actualCapacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(capacity - 1) << 1);
+    records = new long[actualCapacity];
+    mask = actualCapacity - 1;
+    limit = actualCapacity >> 1;
+    // No baseline has been established for the first batch.
+    incomplete = true;
+  }
+
+  /**
+   * Returns the maximum number of changes that can be recorded in a single batch.
+   */
+  public int getBatchLimit() {
+    return limit;
+  }
+
+  /**
+   * Ends the current batch of records and returns it; subsequent records are added to a new batch.
+   * The first batch published by a log is always flagged as incomplete, since it does not follow
+   * from a previous batch.
+   *
+   * @return Batch of the changes recorded since the previous invocation.
+   */
+  public CellChangeBatch publish() {
+    CellChangeBatch batch = new CellChangeBatch(this, batchStart, sequence, !incomplete);
+    batchStart = sequence;
+    incomplete = false;
+    cursor = sequence;
+    return batch;
+  }
+
+  /**
+   * Flags the current batch as incomplete, e.g. after a change to the terrain that is not recorded
+   * cell-by-cell.
+   */
+  void invalidate() {
+    incomplete = true;
+  }
+
+  void record(int index, int oldBreed, int newBreed) {
+    if (sequence - batchStart < limit) {
+      records[(int) sequence & mask] = ((long) index << 16) | (oldBreed << 8) | newBreed;
+      sequence++;
+    } else {
+      incomplete = true;
+    }
+  }
+
+  long get(long sequence) {
+    return records[(int) sequence & mask];
+  }
+
+  /**
+   * Returns {@code true} if the record with the specified sequence number has not been (and cannot
+   * be in the course of being) overwritten by the producer.
+   */
+  boolean isRetained(long sequence) {
+    return sequence >= cursor - limit;
+  }
+
+}
@@ -0,0 +1,178 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Storage of the breeds occupying the cells of a terrain, indexed in row-major order. Instances are
+ * created by the {@link Storage} constants; the representation (and thus the memory footprint, and
+ * the location of the memory) is specific to each.
+ * <p>Concurrent writes to distinct cells are safe as long as the cells are at least 2 apart in
+ * row-major order (the nibble-packed representation stores 2 adjacent cells in each byte), and the
+ * writing threads are subsequently synchronized with any reader.</p>
+ */
+abstract class CellStorage {
+
+  private final int cellCount;
+
+  CellStorage(int cellCount) {
+    this.cellCount = cellCount;
+  }
+
+  /**
+   * Returns the number of cells stored.
+   */
+  int getCellCount() {
+    return cellCount;
+  }
+
+  /**
+   * Returns the breed occupying the cell at the specified index.
+   */
+  abstract int get(int index);
+
+  /**
+   * Sets the breed occupying the cell at the specified index.
+   */
+  abstract void set(int index, int breed);
+
+  /**
+   * Copies the breeds occupying {@code length} consecutive cells, starting at {@code start}, into
+   * {@code destination}, starting at {@code offset}.
+   */
+  void get(int start, byte[] destination, int offset, int length) {
+    for (int index = start, end = start + length; index < end; index++, offset++) {
+      destination[offset] = (byte) get(index);
+    }
+  }
+
+  /**
+   * Sets the breeds occupying {@code length} consecutive cells, starting at {@code start}, from
+   * {@code source}, starting at {@code offset}.
+   */
+  void set(int start, byte[] source, int offset, int length) {
+    for (int index = start, end = start + length; index < end; index++, offset++) {
+      set(index, source[offset]);
+    }
+  }
+
+  /**
+   * Stores each cell in a single element of a {@code byte[]} on the heap.
+   */
+  static final class Heap extends CellStorage {
+
+    private final byte[] cells;
+
+    Heap(int cellCount) {
+      super(cellCount);
+      cells = new byte[cellCount];
+    }
+
+    @Override
+    int get(int index) {
+      return cells[index];
+    }
+
+    @Override
+    void set(int index, int breed) {
+      cells[index] = (byte) breed;
+    }
+
+    @Override
+    void get(int start, byte[] destination, int offset, int length) {
+      System.arraycopy(cells, start, destination, offset, length);
+    }
+
+    @Override
+    void set(int start, byte[] source, int offset, int length) {
+      System.arraycopy(source, offset, cells, start, length);
+    }
+
+  }
+
+  /**
+   * Stores 2 cells in each element of a {@code byte[]} on the heap, using 4 bits per cell; the cell
+   * at an even index is stored in the low-order bits. This limits the number of breeds to
+   * {@value #MAX_BREEDS}.
+   */
+  static final class Packed extends CellStorage {
+
+    static final int MAX_BREEDS = 1 << 4;
+
+    private static final int MASK = MAX_BREEDS - 1;
+
+    private final byte[] pairs;
+
+    Packed(int cellCount) {
+      super(cellCount);
+      pairs = new byte[(cellCount + 1) >> 1];
+    }
+
+    @Override
+    int get(int index) {
+      return (pairs[index >> 1] >> ((index & 1) << 2)) & MASK;
+    }
+
+    @Override
+    void set(int index, int breed) {
+      int shift = (index & 1) << 2;
+      int pair = index >> 1;
+      pairs[pair] = (byte) ((pairs[pair] & ~(MASK << shift)) | (breed << shift));
+    }
+
+  }
+
+  /**
+   * Stores each cell in a single byte of a {@link ByteBuffer}, which may be direct (allocated
+   * outside the heap), or mapped from a file.
+   */
+  static final class Buffered extends CellStorage {
+
+    private final ByteBuffer cells;
+
+    Buffered(ByteBuffer cells) {
+      super(cells.capacity());
+      this.cells = cells;
+    }
+
+    @Override
+    int get(int index) {
+      return cells.get(index);
+    }
+
+    @Override
+    void set(int index, int breed) {
+      cells.put(index, (byte) breed);
+    }
+
+    @Override
+    void get(int start, byte[] destination, int offset, int length) {
+      ByteBuffer view = cells.duplicate();
+      Buffers.position(view, start);
+      view.get(destination, offset, length);
+    }
+
+    @Override
+    void set(int start, byte[] source, int offset, int length) {
+      ByteBuffer view = cells.duplicate();
+      Buffers.position(view, start);
+      view.put(source, offset, length);
+    }
+
+  }
+
+}
@@ -0,0 +1,404 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import org.apache.commons.rng.RandomProviderState;
+import org.apache.commons.rng.RestorableUniformRandomProvider;
+import org.apache.commons.rng.UniformRandomProvider;
+import org.apache.commons.rng.core.RandomProviderDefaultState;
+
+/**
+ * Saves and restores the complete state of an {@link Ecosystem}&mdash;configuration, terrain,
+ * populations, iteration count, and the states of its sources of randomness&mdash;in a compact
+ * binary format, read and written through memory-mapped files.
+ * <p>Each row of the terrain is stored in whichever of two encodings is smaller: bit-packed (4 bits
+ * per cell when there are no more than 16 breeds, 8 bits otherwise), or run-length encoded (a
+ * breed byte and a variable-length run length for each run). Thus, a well-mixed terrain takes
+ * about half a byte per cell, while one that has coarsened into large domains takes a few bytes
+ * per domain boundary in each row. The file ends with a CRC-32 checksum of its contents.</p>
+ * <p>For {@link Engine#STANDARD}, and for {@link Engine#PARALLEL} with the same level of
+ * parallelism as when saved, continuing a restored ecosystem produces exactly the same sequence of
+ * states as continuing the saved one would have. For {@link Engine#ACTIVE_EDGE}, the index of
+ * interacting pairs is rebuilt on restore, in an order that generally differs from that of the
+ * saved ecosystem; the continuation is therefore statistically equivalent, but not identical.</p>
+ */
+public final class Checkpoint {
+
+  private static final int MAGIC = 0x52505343; // "RPSC"
+  private static final short FORMAT_VERSION = 1;
+  private static final int FLAG_TOROIDAL = 0b01;
+  private static final int FLAG_ABSORBED = 0b10;
+  private static final byte ENCODING_PACKED = 0;
+  private static final byte ENCODING_RUN_LENGTH = 1;
+  private static final int MAX_PACKED_BREEDS = 16;
+  private static final int MAX_VARINT_BYTES = 5;
+  private static final int MAX_STATE_LENGTH = 1 << 12;
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String INVALID_FORMAT = "Not a valid checkpoint file.";
+  private static final String UNSUPPORTED_VERSION_FORMAT = "Unsupported checkpoint version: %d.";
+  private static final String CHECKSUM_MISMATCH = "Checkpoint checksum mismatch.";
+  private static final String POPULATION_MISMATCH =
+      "Checkpoint populations are inconsistent with its terrain.";
+
+  private Checkpoint() {
+    // Not instantiable.
+  }
+
+  /**
+   * Writes the state of {@code ecosystem} to {@code file}. The checkpoint is written to a temporary
+   * file in the same directory, which then replaces {@code file}; thus, an existing checkpoint is
+   * never left partially overwritten. This must not be invoked concurrently with any mutation of
+   * {@code ecosystem}.
+   *
+   * @param ecosystem Ecosystem to save.
+   * @param file      Destination file.
+   * @throws IOException If the checkpoint cannot be written.
+   */
+  public static void write(Ecosystem ecosystem, File file) throws IOException {
+    int size = ecosystem.getSize();
+    int numBreeds = ecosystem.getInitialBreedCount();
+    int bitsPerCell = (numBreeds <= MAX_PACKED_BREEDS) ? Byte.SIZE / 2 : Byte.SIZE;
+    int packedRowBytes = (size * bitsPerCell + Byte.SIZE - 1) / Byte.SIZE;
+    byte[][] states = saveStates(ecosystem.getGenerators());
+    byte[] engine = ecosystem.getEngine().name().getBytes(StandardCharsets.US_ASCII);
+    byte[] neighborhood = ecosystem.getNeighborhood().name().getBytes(StandardCharsets.US_ASCII);
+    long capacity = Integer.BYTES + Short.BYTES + Short.BYTES
+        + 1 + engine.length + 1 + neighborhood.length
+        + Integer.BYTES + 1 + Long.BYTES + (long) numBreeds * Integer.BYTES
+        + 1 + (long) states.length * Integer.BYTES + 1
+        + (long) size * (1 + packedRowBytes) + Integer.BYTES;
+    for (byte[] state : states) {
+      capacity += state.length;
+    }
+    File temp = new File(file.getPath() + TEMP_SUFFIX);
+    try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      buffer
+          .putInt(MAGIC)
+          .putShort(FORMAT_VERSION)
+          .putShort((short) ((ecosystem.isToroidal() ? FLAG_TOROIDAL : 0)
+              | (ecosystem.isAbsorbed() ? FLAG_ABSORBED : 0)));
+      putName(buffer, engine);
+      putName(buffer, neighborhood);
+      buffer
+          .putInt(size)
+          .put((byte) numBreeds)
+          .putLong(ecosystem.getIterationCount());
+      for (int population : ecosystem.getPopulations()) {
+        buffer.putInt(population);
+      }
+      buffer.put((byte) states.length);
+      for (byte[] state : states) {
+        buffer
+            .putInt(state.length)
+            .put(state);
+      }
+      buffer.put((byte) bitsPerCell);
+      CellStorage cells = ecosystem.getCells();
+      byte[] row = new byte[size];
+      for (int rowStart = 0; rowStart < cells.getCellCount(); rowStart += size) {
+        cells.get(rowStart, row, 0, size);
+        if (runLengthSize(row, 0, size) < packedRowBytes) {
+          buffer.put(ENCODING_RUN_LENGTH);
+          putRuns(buffer, row, 0, size);
+        } else {
+          buffer.put(ENCODING_PACKED);
+          putPacked(buffer, row, 0, size, bitsPerCell);
+        }
+      }
+      int length = buffer.position();
+      buffer.putInt(checksum(buffer, length));
+      buffer.force();
+      channel.truncate(length + Integer.BYTES);
+    }
+    Files.move(temp.toPath(), file.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads a checkpoint from {@code file}, and returns a new {@link Ecosystem} in the saved state.
+   * The restored ecosystem uses a newly created source of randomness (see
+   * {@link RandomProviders#create()}), whose state (and that of any additional generators used by
+   * the engine) is then restored from the checkpoint.
+   *
+   * @param file Source file.
+   * @return Restored ecosystem.
+   * @throws IOException If the file cannot be read, or is not a valid checkpoint.
+   */
+  public static Ecosystem read(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long length = channel.size();
+      if (length < Integer.BYTES + Short.BYTES + Integer.BYTES) {
+        throw new IOException(INVALID_FORMAT);
+      }
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, length);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException(INVALID_FORMAT);
+      }
+      short version = buffer.getShort();
+      if (version != FORMAT_VERSION) {
+        throw new IOException(String.format(UNSUPPORTED_VERSION_FORMAT, version));
+      }
+      int contentLength = (int) length - Integer.BYTES;
+      if (checksum(buffer, contentLength) != buffer.getInt(contentLength)) {
+        throw new IOException(CHECKSUM_MISMATCH);
+      }
+      return read(buffer);
+    } catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+      throw new IOException(INVALID_FORMAT, e);
+    }
+  }
+
+  private static Ecosystem read(ByteBuffer buffer) throws IOException {
+    int flags = buffer.getShort();
+    Engine engine = Engine.valueOf(getName(buffer));
+    Neighborhood neighborhood = Neighborhood.valueOf(getName(buffer));
+    int size = buffer.getInt();
+    int numBreeds = buffer.get();
+    long iterationCount = buffer.getLong();
+    if (size <= 0 || (long) size * size > Integer.MAX_VALUE || numBreeds <= 0
+        || iterationCount < 0) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    int[] populations = new int[numBreeds];
+    for (int breed = 0; breed < numBreeds; breed++) {
+      populations[breed] = buffer.getInt();
+    }
+    byte[][] states = new byte[buffer.get()][];
+    for (int i = 0; i < states.length; i++) {
+      int stateLength = buffer.getInt();
+      if (stateLength < 0 || stateLength > MAX_STATE_LENGTH) {
+        throw new IOException(INVALID_FORMAT);
+      }
+      states[i] = new byte[stateLength];
+      buffer.get(states[i]);
+    }
+    int bitsPerCell = buffer.get();
+    if (bitsPerCell != Byte.SIZE / 2 && bitsPerCell != Byte.SIZE) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    Ecosystem ecosystem = engine.create(numBreeds, size, (flags & FLAG_TOROIDAL) != 0,
+        neighborhood, RandomProviders.create());
+    CellStorage cells = ecosystem.getCells();
+    byte[] row = new byte[size];
+    for (int rowStart = 0; rowStart < cells.getCellCount(); rowStart += size) {
+      byte encoding = buffer.get();
+      if (encoding == ENCODING_RUN_LENGTH) {
+        getRuns(buffer, row, 0, size, numBreeds);
+      } else if (encoding == ENCODING_PACKED) {
+        getPacked(buffer, row, 0, size, bitsPerCell, numBreeds);
+      } else {
+        throw new IOException(INVALID_FORMAT);
+      }
+      cells.set(rowStart, row, 0, size);
+    }
+    ecosystem.restore(iterationCount);
+    for (int breed = 0; breed < numBreeds; breed++) {
+      if (ecosystem.getPopulations()[breed] != populations[breed]) {
+        throw new IOException(POPULATION_MISMATCH);
+      }
+    }
+    if (ecosystem.isAbsorbed() != ((flags & FLAG_ABSORBED) != 0)) {
+      throw new IOException(POPULATION_MISMATCH);
+    }
+    restoreStates(ecosystem.getGenerators(), states);
+    return ecosystem;
+  }
+
+  private static byte[][] saveStates(UniformRandomProvider[] generators) {
+    byte[][] states = new byte[generators.length][];
+    for (int i = 0; i < generators.length; i++) {
+      byte[] state = new byte[0];
+      if (generators[i] instanceof RestorableUniformRandomProvider) {
+        RandomProviderState saved = ((RestorableUniformRandomProvider) generators[i]).saveState();
+        if (saved instanceof RandomProviderDefaultState) {
+          state = ((RandomProviderDefaultState) saved).getState();
+        }
+      }
+      states[i] = state;
+    }
+    return states;
+  }
+
+  private static void restoreStates(UniformRandomProvider[] generators, byte[][] states) {
+    // If the restored engine uses a different number of generators (e.g. because the level of
+    // parallelism has changed), the extra generators are left as they were created.
+    for (int i = 0; i < Math.min(generators.length, states.length); i++) {
+      if (states[i].length > 0 && generators[i] instanceof RestorableUniformRandomProvider) {
+        ((RestorableUniformRandomProvider) generators[i])
+            .restoreState(new RandomProviderDefaultState(states[i]));
+      }
+    }
+  }
+
+  private static int checksum(ByteBuffer buffer, int length) {
+    ByteBuffer contents = buffer.duplicate();
+    Buffers.position(contents, 0);
+    Buffers.limit(contents, length);
+    CRC32 crc = new CRC32();
+    crc.update(contents);
+    return (int) crc.getValue();
+  }
+
+  private static void putName(ByteBuffer buffer, byte[] name) {
+    buffer
+        .put((byte) name.length)
+        .put(name);
+  }
+
+  private static String getName(ByteBuffer buffer) throws IOException {
+    int length = buffer.get();
+    if (length < 0) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    byte[] name = new byte[length];
+    buffer.get(name);
+    return new String(name, StandardCharsets.US_ASCII);
+  }
+
+  private static int runLengthSize(byte[] cells, int rowStart, int size) {
+    int total = 0;
+    int rowEnd = rowStart + size;
+    for (int start = rowStart, end; start < rowEnd; start = end) {
+      end = runEnd(cells, start, rowEnd);
+      total += 1 + varIntSize(end - start);
+    }
+    return total;
+  }
+
+  private static void putRuns(ByteBuffer buffer, byte[] cells, int rowStart, int size) {
+    int rowEnd = rowStart + size;
+    for (int start = rowStart, end; start < rowEnd; start = end) {
+      end = runEnd(cells, start, rowEnd);
+      buffer.put(cells[start]);
+      putVarInt(buffer, end - start);
+    }
+  }
+
+  private static void getRuns(ByteBuffer buffer, byte[] cells, int rowStart, int size,
+      int numBreeds) throws IOException {
+    int rowEnd = rowStart + size;
+    for (int start = rowStart; start < rowEnd; ) {
+      byte breed = checkBreed(buffer.get(), numBreeds);
+      int runLength = getVarInt(buffer);
+      if (runLength <= 0 || runLength > rowEnd - start) {
+        throw new IOException(INVALID_FORMAT);
+      }
+      for (int end = start + runLength; start < end; start++) {
+        cells[start] = breed;
+      }
+    }
+  }
+
+  private static void putPacked(
+      ByteBuffer buffer, byte[] cells, int rowStart, int size, int bitsPerCell) {
+    int rowEnd = rowStart + size;
+    if (bitsPerCell == Byte.SIZE) {
+      buffer.put(cells, rowStart, size);
+    } else {
+      int index = rowStart;
+      for (; index + 1 < rowEnd; index += 2) {
+        buffer.put((byte) (cells[index] | cells[index + 1] << 4));
+      }
+      if (index < rowEnd) {
+        buffer.put(cells[index]);
+      }
+    }
+  }
+
+  private static void getPacked(ByteBuffer buffer, byte[] cells, int rowStart, int size,
+      int bitsPerCell, int numBreeds) throws IOException {
+    int rowEnd = rowStart + size;
+    if (bitsPerCell == Byte.SIZE) {
+      buffer.get(cells, rowStart, size);
+      for (int index = rowStart; index < rowEnd; index++) {
+        checkBreed(cells[index], numBreeds);
+      }
+    } else {
+      int index = rowStart;
+      for (; index + 1 < rowEnd; index += 2) {
+        int pair = buffer.get();
+        cells[index] = checkBreed((byte) (pair & 0xf), numBreeds);
+        cells[index + 1] = checkBreed((byte) ((pair >> 4) & 0xf), numBreeds);
+      }
+      if (index < rowEnd) {
+        cells[index] = checkBreed(buffer.get(), numBreeds);
+      }
+    }
+  }
+
+  private static int runEnd(byte[] cells, int start, int rowEnd) {
+    byte breed = cells[start];
+    int end = start + 1;
+    while (end < rowEnd && cells[end] == breed) {
+      end++;
+    }
+    return end;
+  }
+
+  private static int varIntSize(int value) {
+    int bytes = 1;
+    while ((value >>>= 7) != 0) {
+      bytes++;
+    }
+    return bytes;
+  }
+
+  private static void putVarInt(ByteBuffer buffer, int value) {
+    while ((value & ~0x7f) != 0) {
+      buffer.put((byte) ((value & 0x7f) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static int getVarInt(ByteBuffer buffer) throws IOException {
+    int value = 0;
+    for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+      int b = buffer.get();
+      value |= (b & 0x7f) << (7 * i);
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException(INVALID_FORMAT);
+  }
+
+  private static byte checkBreed(byte breed, int numBreeds) throws IOException {
+    if (breed < 0 || breed >= numBreeds) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    return breed;
+  }
+
+}
@@ -0,0 +1,394 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Labels the clusters (connected domains of a single breed) of the terrain of an
+ * {@link Ecosystem}, and summarizes the number and sizes of the clusters of each breed. Two cells
+ * are connected if they are neighbors (as defined by the ecosystem's {@link Neighborhood} and
+ * topology, so that clusters in a toroidal terrain wrap around its edges) and are occupied by the
+ * same breed.
+ * <p>Labeling is performed by a parallel variant of the Hoshen&ndash;Kopelman algorithm, using a
+ * union-find forest over the cells (with union by size, and path halving):</p>
+ * <ol><li>The terrain is divided into horizontal strips, each of which is labeled independently
+ * and concurrently (on a {@link ForkJoinPool}), by uniting each cell with its same-breed neighbors
+ * in the same strip.</li>
+ * <li>The clusters are merged across the borders of the strips (including the borders joined by
+ * wrapping, in a toroidal terrain), sequentially; this involves only the cells in the first and
+ * last rows of each strip.</li>
+ * <li>The roots of the forest, each holding the size of its cluster, are tallied by breed,
+ * concurrently in each strip, and the tallies are combined.</li></ol>
+ * <p>The analysis is performed on a private copy of the terrain, so that it may run on other
+ * threads while the simulation continues: {@link #capture()} copies the current state of the
+ * ecosystem (only the rows that have changed since the previous capture), and must be invoked on
+ * the thread performing the simulation; {@link #analyze()} labels the captured terrain, and may be
+ * invoked on any thread. A capture is refused (without blocking) while the analysis of the previous
+ * capture is in progress.</p>
+ * <p>Memory use is one {@code int} per cell for the forest, and one byte per cell for the copy of
+ * the terrain; both are allocated on creation and reused for every analysis.</p>
+ */
+public final class ClusterAnalyzer {
+
+  private static final int STRIPS_PER_THREAD = 4;
+  private static final int MIN_STRIP_HEIGHT = 4;
+
+  private final Ecosystem ecosystem;
+  private final ForkJoinPool pool;
+  private final NeighborTable neighbors;
+  private final int size;
+  private final int numBreeds;
+  private final int binCount;
+  private final Snapshot snapshot;
+  private final int[] parents;
+  private final Strip[] strips;
+  private final AtomicBoolean busy;
+
+  /**
+   * Initializes this instance for analysis of the specified ecosystem, using the
+   * {@link ForkJoinPool#commonPool() common pool} for concurrent labeling.
+   *
+   * @param ecosystem Source of the terrain to be analyzed.
+   */
+  public ClusterAnalyzer(Ecosystem ecosystem) {
+    this(ecosystem, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Initializes this instance for analysis of the specified ecosystem, using the specified pool for
+   * concurrent labeling.
+   *
+   * @param ecosystem Source of the terrain to be analyzed.
+   * @param pool      Pool in which strips of the terrain are labeled.
+   */
+  public ClusterAnalyzer(Ecosystem ecosystem, ForkJoinPool pool) {
+    this.ecosystem = ecosystem;
+    this.pool = pool;
+    size = ecosystem.getSize();
+    numBreeds = ecosystem.getInitialBreedCount();
+    neighbors = ecosystem.getNeighbors();
+    int cellCount = size * size;
+    binCount = Integer.SIZE - Integer.numberOfLeadingZeros(cellCount);
+    snapshot = new Snapshot(size, numBreeds, true);
+    parents = new int[cellCount];
+    int stripCount = Math.max(1,
+        Math.min(STRIPS_PER_THREAD * pool.getParallelism(), size / MIN_STRIP_HEIGHT));
+    strips = new Strip[stripCount];
+    for (int i = 0; i < stripCount; i++) {
+      strips[i] = new Strip((int) ((long) i * size / stripCount),
+          (int) ((long) (i + 1) * size / stripCount));
+    }
+    busy = new AtomicBoolean();
+  }
+
+  /**
+   * Copies the current state of the ecosystem for analysis, unless the analysis of a previous
+   * capture is still in progress. This must be invoked on the thread performing the simulation;
+   * if it returns {@code true}, {@link #analyze()} must be invoked (on any thread) before the next
+   * capture can be taken.
+   *
+   * @return {@code true} if the state was captured; {@code false} if an analysis is in progress.
+   */
+  public boolean capture() {
+    boolean captured = busy.compareAndSet(false, true);
+    if (captured) {
+      ecosystem.snapshot(snapshot);
+    }
+    return captured;
+  }
+
+  /**
+   * Labels the clusters of the terrain copied by the most recent {@link #capture()}, and returns
+   * the resulting statistics. The labeling of each strip is performed on the pool specified on
+   * creation; the invoking thread waits for its completion. On completion, this instance accepts
+   * the next capture.
+   *
+   * @return Cluster counts and size distributions for each breed.
+   */
+  public Statistics analyze() {
+    try {
+      pool.invoke(new Pass(strips, true));
+      byte[] cells = snapshot.getCells();
+      for (Strip strip : strips) {
+        strip.merge(cells);
+      }
+      pool.invoke(new Pass(strips, false));
+      int[] clusterCounts = new int[numBreeds];
+      int[] largest = new int[numBreeds];
+      int[][] histograms = new int[numBreeds][binCount];
+      for (Strip strip : strips) {
+        for (int breed = 0; breed < numBreeds; breed++) {
+          clusterCounts[breed] += strip.clusterCounts[breed];
+          largest[breed] = Math.max(largest[breed], strip.largest[breed]);
+          int[] histogram = histograms[breed];
+          int[] stripHistogram = strip.histograms[breed];
+          for (int bin = 0; bin < binCount; bin++) {
+            histogram[bin] += stripHistogram[bin];
+          }
+        }
+      }
+      return new Statistics(snapshot.getIterationCount(), snapshot.getPopulations().clone(),
+          clusterCounts, largest, histograms);
+    } finally {
+      busy.set(false);
+    }
+  }
+
+  private int find(int cell) {
+    int parent;
+    while ((parent = parents[cell]) >= 0) {
+      int grandparent = parents[parent];
+      if (grandparent >= 0) {
+        parents[cell] = grandparent;
+        parent = grandparent;
+      }
+      cell = parent;
+    }
+    return cell;
+  }
+
+  private void union(int cell, int other) {
+    int root = find(cell);
+    int otherRoot = find(other);
+    if (root != otherRoot) {
+      // Roots hold the negated sizes of their trees; the smaller tree is attached to the larger.
+      if (parents[root] > parents[otherRoot]) {
+        int swap = root;
+        root = otherRoot;
+        otherRoot = swap;
+      }
+      parents[root] += parents[otherRoot];
+      parents[otherRoot] = root;
+    }
+  }
+
+  private static class Pass extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Strip[] strips;
+    private final boolean labeling;
+
+    Pass(Strip[] strips, boolean labeling) {
+      this.strips = strips;
+      this.labeling = labeling;
+    }
+
+    @Override
+    protected void compute() {
+      ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[strips.length];
+      for (int i = 0; i < strips.length; i++) {
+        Strip strip = strips[i];
+        tasks[i] = ForkJoinTask.adapt(labeling ? strip::label : strip::tally);
+      }
+      ForkJoinTask.invokeAll(tasks);
+    }
+
+  }
+
+  private class Strip {
+
+    private final int rowStart;
+    private final int rowEnd;
+    private final int start;
+    private final int end;
+    private final int[] clusterCounts;
+    private final int[] largest;
+    private final int[][] histograms;
+
+    Strip(int rowStart, int rowEnd) {
+      this.rowStart = rowStart;
+      this.rowEnd = rowEnd;
+      start = rowStart * size;
+      end = rowEnd * size;
+      clusterCounts = new int[numBreeds];
+      largest = new int[numBreeds];
+      histograms = new int[numBreeds][binCount];
+    }
+
+    /** Unites each cell with its same-breed neighbors in this strip. */
+    void label() {
+      byte[] cells = snapshot.getCells();
+      Arrays.fill(parents, start, end, -1);
+      for (int row = rowStart, cell = start; row < rowEnd; row++) {
+        for (int column = 0; column < size; column++, cell++) {
+          int neighborClass = neighbors.getNeighborClass(row, column);
+          int count = neighbors.getNeighborCount(neighborClass);
+          byte breed = cells[cell];
+          for (int slot = 0; slot < count; slot++) {
+            int neighbor = cell + neighbors.getDelta(neighborClass, slot);
+            // Each edge is considered from its lower-indexed end only.
+            if (neighbor > cell && neighbor < end && cells[neighbor] == breed) {
+              union(cell, neighbor);
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Unites the cells in the first and last rows of this strip with their same-breed neighbors
+     * in other strips. Only edges to higher-indexed cells are considered; every edge between
+     * strips is thus considered exactly once, from the strip containing its lower-indexed end.
+     */
+    void merge(byte[] cells) {
+      mergeRow(cells, rowStart);
+      if (rowEnd - 1 > rowStart) {
+        mergeRow(cells, rowEnd - 1);
+      }
+    }
+
+    /** Tallies the roots (i.e. clusters) in this strip by breed and size. */
+    void tally() {
+      byte[] cells = snapshot.getCells();
+      Arrays.fill(clusterCounts, 0);
+      Arrays.fill(largest, 0);
+      for (int[] histogram : histograms) {
+        Arrays.fill(histogram, 0);
+      }
+      for (int cell = start; cell < end; cell++) {
+        int parent = parents[cell];
+        if (parent < 0) {
+          int breed = cells[cell];
+          int clusterSize = -parent;
+          clusterCounts[breed]++;
+          largest[breed] = Math.max(largest[breed], clusterSize);
+          histograms[breed][Statistics.bin(clusterSize)]++;
+        }
+      }
+    }
+
+    private void mergeRow(byte[] cells, int row) {
+      for (int column = 0, cell = row * size; column < size; column++, cell++) {
+        int neighborClass = neighbors.getNeighborClass(row, column);
+        int count = neighbors.getNeighborCount(neighborClass);
+        byte breed = cells[cell];
+        for (int slot = 0; slot < count; slot++) {
+          int neighbor = cell + neighbors.getDelta(neighborClass, slot);
+          if (neighbor > cell && (neighbor >= end) && cells[neighbor] == breed) {
+            union(cell, neighbor);
+          }
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Immutable summary of the clusters of each breed in a single capture of the terrain. Cluster
+   * sizes are summarized in a histogram with logarithmic bins: bin {@code k} counts the clusters
+   * with sizes from 2<sup>k</sup> (inclusive) to 2<sup>k+1</sup> (exclusive).
+   */
+  public static final class Statistics {
+
+    private final long iterationCount;
+    private final int[] populations;
+    private final int[] clusterCounts;
+    private final int[] largest;
+    private final int[][] histograms;
+
+    Statistics(long iterationCount, int[] populations, int[] clusterCounts, int[] largest,
+        int[][] histograms) {
+      this.iterationCount = iterationCount;
+      this.populations = populations;
+      this.clusterCounts = clusterCounts;
+      this.largest = largest;
+      this.histograms = histograms;
+    }
+
+    /**
+     * Returns the iteration count of the ecosystem when the terrain was captured.
+     */
+    public long getIterationCount() {
+      return iterationCount;
+    }
+
+    /**
+     * Returns the number of breeds summarized.
+     */
+    public int getNumBreeds() {
+      return clusterCounts.length;
+    }
+
+    /**
+     * Returns the number of clusters of the specified breed.
+     *
+     * @param breed Index of breed.
+     */
+    public int getClusterCount(int breed) {
+      return clusterCounts[breed];
+    }
+
+    /**
+     * Returns the total number of clusters of all breeds.
+     */
+    public int getTotalClusterCount() {
+      int total = 0;
+      for (int count : clusterCounts) {
+        total += count;
+      }
+      return total;
+    }
+
+    /**
+     * Returns the size of the largest cluster of the specified breed, or 0 if the breed is
+     * extinct.
+     *
+     * @param breed Index of breed.
+     */
+    public int getLargestClusterSize(int breed) {
+      return largest[breed];
+    }
+
+    /**
+     * Returns the mean size of the clusters of the specified breed, or 0 if the breed is extinct.
+     *
+     * @param breed Index of breed.
+     */
+    public double getMeanClusterSize(int breed) {
+      return (clusterCounts[breed] > 0) ? (double) populations[breed] / clusterCounts[breed] : 0;
+    }
+
+    /**
+     * Returns the number of bins in each cluster size histogram.
+     */
+    public int getBinCount() {
+      return histograms.length > 0 ? histograms[0].length : 0;
+    }
+
+    /**
+     * Returns the number of clusters of the specified breed with sizes in the specified bin (i.e.
+     * from 2<sup>bin</sup> to 2<sup>bin+1</sup> - 1, inclusive).
+     *
+     * @param breed Index of breed.
+     * @param bin   Index of bin, from 0 (inclusive) to {@link #getBinCount()} (exclusive).
+     */
+    public int getClusterCount(int breed, int bin) {
+      return histograms[breed][bin];
+    }
+
+    static int bin(int clusterSize) {
+      return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(clusterSize);
+    }
+
+  }
+
+}
@@ -0,0 +1,856 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.Arrays;
+import org.apache.commons.rng.UniformRandomProvider;
+
+/**
+ * Encapsulates (for simulation) a simple intransitive ecosystem&mdash;as exemplified by certain E.
+ * coli ecosystems, competition between male side-blotched lizards, and the game of
+ * Rock-Paper-Scissors. The ecosystem in this model supports any odd {@code int} number (at least 3)
+ * of breeds, and assumes equal strength between breeds&mdash;both in initial populations and in
+ * competitive interactions.
+ * <p>Key</p>
+ * <ul><li>Individuals in this ecosystem do not move, but are placed in all cells of a grid (or
+ * points of a lattice); this is the terrain of the ecosystem.</li>
+ * <li>In each iteration of the simulation, a random individual is selected, along with one of that
+ * individual's immediately adjacent neighbors (by default, one of the 4 in the Von Neumann
+ * neighborhood; see {@link Neighborhood} for alternatives), also selected at random.</li>
+ * <li>If the two selected individuals are of the same breed, then there is no change; otherwise,
+ * the loser of the competition between the two (e.g., rock losing to paper) is replaced by a copy
+ * of the winner.</li>
+ * <li>Optionally, competitive interaction may be preceded (with a specified probability) by random
+ * selection of two (not necessarily adjacent) individuals, with the selected individuals trading
+ * locations in the terrain.</li></ul>
+ * <p>Internally, the terrain is stored in row-major order (i.e. the cell at row {@code r} and
+ * column {@code c} is at index {@code r * size + c}), using at most one byte per cell. This limits
+ * the number of breeds to {@link #MAX_BREEDS}, but reduces the memory footprint of the terrain by a
+ * factor of 4 (compared to an {@code int[][]}) or more. The representation, which may be a
+ * {@code byte[]}, a nibble-packed array, or memory outside the heap, is specified by a
+ * {@link Storage} constant; unless specified explicitly, it is selected by
+ * {@link Storage#select(int, int)} from the size of the terrain and the number of breeds.</p>
+ * <p>To keep the cost of each iteration as low as possible, no objects are allocated in the course
+ * of an iteration, and the row and column of each randomly selected individual are derived from a
+ * single 64-bit random value (using Lemire's multiply-and-shift method, with rejection to remove
+ * bias). For terrains where {@code size} &times; {@link Neighborhood#getDegree() degree} does not
+ * exceed 2<sup>16</sup>, the leftover low-order bits of the column selection are also
+ * used to select the opponent from the neighborhood, so that a competitive interaction consumes
+ * one 64-bit value in total; the maximum bias this introduces into the opponent selection is
+ * {@code size * degree / 2}<sup>32</sup>, i.e. less than 2<sup>-16</sup>.</p>
+ * <p>Once only two breeds survive, one beats the other in every interaction (unless the two are
+ * neutral with respect to each other), so absorption by the winner is certain. In
+ * {@link #setFastForward(boolean) fast-forward} mode, when this state is reached without random
+ * swaps, the terrain is taken directly to the absorbing state, and the iteration count is advanced
+ * by a number of iterations sampled by an {@link AbsorptionSampler}, which has the same
+ * distribution as the absorption time of the full simulation.</p>
+ */
+public class Ecosystem {
+
+  /**
+   * Maximum number of breeds that can be represented in the terrain.
+   */
+  public static final int MAX_BREEDS = Byte.MAX_VALUE;
+
+  private static final int SHARED_DRAW_LIMIT = 1 << 16;
+  private static final long LOW_MASK = 0xffffffffL;
+  private static final String INVALID_BREED_COUNT_FORMAT =
+      "Number of breeds must be between 1 and %d (inclusive).";
+
+  private final int initialBreedCount;
+  private final int size;
+  private final boolean toroidal;
+  private final Neighborhood neighborhood;
+  private final NeighborTable neighbors;
+  private final UniformRandomProvider rng;
+  private final long rejectionThreshold;
+  private final boolean sharedDraws;
+  private final Storage storage;
+  private final CellStorage terrain;
+  private final int[] rowVersions;
+  private final boolean[] dirtyRows;
+  private final int[] populations;
+  private final int[] safePopulations;
+  private final InterfaceTally interfaces;
+  private final long[] safeBoundaryLengths;
+  private final int absorptionThreshold;
+  private final Occupant attacker;
+  private final Occupant defender;
+
+  private byte[] safeCells;
+  private int[][] safeTerrain;
+  private CellChangeLog changeLog;
+  private AbsorptionSampler absorptionSampler;
+  private boolean fastForward;
+  private int version;
+  private int terrainVersion;
+  private int cellsVersion;
+  private long residue;
+  private long iterationCount;
+  private int currentBreedCount;
+  private boolean absorbed;
+
+  /**
+   * Initializes this instance with the specified number of breeds, terrain size, and terrain
+   * topology, using the {@link Neighborhood#VON_NEUMANN} neighborhood. Since selection of
+   * individuals for competition is stochastic, a source of randomness must also be provided.
+   *
+   * @param numBreeds Number of distinct breeds to populate the ecosystem.
+   * @param size      Terrain height and width.
+   * @param toroidal  Flag specifying whether terrain is toroidal (with wrapping edges) or a box
+   *                  (with closed edges).
+   * @param rng       Source of randomness.
+   * @throws IllegalArgumentException If {@code numBreeds} is not in the range from 1 to
+   *                                  {@link #MAX_BREEDS} (inclusive).
+   */
+  public Ecosystem(
+      int numBreeds, int size, boolean toroidal, UniformRandomProvider rng)
+      throws IllegalArgumentException {
+    this(numBreeds, size, toroidal, Neighborhood.VON_NEUMANN, rng);
+  }
+
+  /**
+   * Initializes this instance with the specified number of breeds, terrain size, terrain topology,
+   * and neighborhood. Since selection of individuals for competition is stochastic, a source of
+   * randomness must also be provided.
+   *
+   * @param numBreeds    Number of distinct breeds to populate the ecosystem.
+   * @param size         Terrain height and width.
+   * @param toroidal     Flag specifying whether terrain is toroidal (with wrapping edges) or a box
+   *                     (with closed edges).
+   * @param neighborhood Shape of the neighborhood from which each opponent is selected.
+   * @param rng          Source of randomness.
+   * @throws IllegalArgumentException If {@code numBreeds} is not in the range from 1 to
+   *                                  {@link #MAX_BREEDS} (inclusive).
+   */
+  public Ecosystem(int numBreeds, int size, boolean toroidal, Neighborhood neighborhood,
+      UniformRandomProvider rng) throws IllegalArgumentException {
+    this(numBreeds, size, toroidal, neighborhood, rng, Storage.select(size, numBreeds));
+  }
+
+  /**
+   * Initializes this instance with the specified number of breeds, terrain size, terrain topology,
+   * neighborhood, and terrain representation. Since selection of individuals for competition is
+   * stochastic, a source of randomness must also be provided.
+   *
+   * @param numBreeds    Number of distinct breeds to populate the ecosystem.
+   * @param size         Terrain height and width.
+   * @param toroidal     Flag specifying whether terrain is toroidal (with wrapping edges) or a box
+   *                     (with closed edges).
+   * @param neighborhood Shape of the neighborhood from which each opponent is selected.
+   * @param rng          Source of randomness.
+   * @param storage      Representation of the terrain.
+   * @throws IllegalArgumentException If {@code numBreeds} is not in the range from 1 to
+   *                                  {@link Storage#getMaxBreeds() storage.getMaxBreeds()}
+   *                                  (inclusive).
+   */
+  public Ecosystem(int numBreeds, int size, boolean toroidal, Neighborhood neighborhood,
+      UniformRandomProvider rng, Storage storage) throws IllegalArgumentException {
+    int maxBreeds = storage.getMaxBreeds();
+    if (numBreeds < 1 || numBreeds > maxBreeds) {
+      throw new IllegalArgumentException(String.format(INVALID_BREED_COUNT_FORMAT, maxBreeds));
+    }
+    initialBreedCount = numBreeds;
+    currentBreedCount = numBreeds;
+    this.size = size;
+    this.toroidal = toroidal;
+    this.neighborhood = neighborhood;
+    neighbors = neighborhood.getTable(size, toroidal);
+    this.rng = rng;
+    rejectionThreshold = (1L << 32) % size;
+    sharedDraws = (long) size * neighborhood.getDegree() <= SHARED_DRAW_LIMIT;
+    populations = new int[numBreeds];
+    safePopulations = new int[numBreeds];
+    this.storage = storage;
+    terrain = storage.allocate(size * size);
+    populate();
+    interfaces = new InterfaceTally(terrain, neighbors, size, numBreeds);
+    interfaces.recount();
+    safeBoundaryLengths = new long[numBreeds];
+    rowVersions = new int[size];
+    dirtyRows = new boolean[size];
+    terrainVersion = -1;
+    cellsVersion = -1;
+    absorptionThreshold = size * size;
+    attacker = new Occupant();
+    defender = new Occupant();
+  }
+
+  /**
+   * Returns this ecosystem to an initial state, with a newly randomized terrain (using the same
+   * number of breeds, size, topology, and neighborhood specified on creation), and an iteration
+   * count of 0. This allows a single instance to be used for multiple independent replicas of the
+   * simulation, without reallocating the terrain or any derived structures. Subclasses that
+   * maintain additional structures derived from the terrain must override this method to rebuild
+   * those structures, after invoking this implementation.
+   * <p>Any attached {@link CellChangeLog} will flag its next batch as incomplete.</p>
+   */
+  public void reset() {
+    Arrays.fill(populations, 0);
+    populate();
+    interfaces.recount();
+    iterationCount = 0;
+    currentBreedCount = initialBreedCount;
+    absorbed = false;
+    Arrays.fill(rowVersions, version);
+    if (changeLog != null) {
+      changeLog.invalidate();
+    }
+  }
+
+  /**
+   * Executes a single iteration of the simulation. This consists of possible random selection (with
+   * likelihood specified by {@code swapProbability} of a pair of individuals to swap locations,
+   * followed by random selection of an individual and one of its neighbors for competitive
+   * interaction.
+   *
+   * @param swapProbability Probability of preceding competitive interaction by swapping a randomly
+   *                        selected pair of individuals.
+   * @return Flag indicating whether competitive interaction resulted in a replacement of an
+   * individual ({@code true}) or no change ({@code false}).
+   */
+  public boolean iterate(float swapProbability) {
+    boolean terrainChanged = false;
+    if (!absorbed) {
+      if (swapProbability > 0 && rng.nextFloat() < swapProbability) {
+        swapRandomPair();
+        terrainChanged = true;
+      }
+      terrainChanged |= competeRandomPair();
+      iterationCount++;
+    }
+    return terrainChanged;
+  }
+
+  /**
+   * Invokes {@link #iterate(float)} repeatedly, {@code numIteration} times, and returns the count
+   * of those iterations in which a competitive interaction resulted in replacement of one
+   * individual by a copy of the other. In {@link #setFastForward(boolean) fast-forward} mode, if
+   * {@code swapProbability} is 0 and two interacting breeds remain at the start of any of these
+   * iterations, the ecosystem is instead taken directly to the absorbing state; in that case, the
+   * iteration count may advance by more than {@code numIterations}.
+   *
+   * @param numIterations   Number of invocations of {@link #iterate(float)} to perform.
+   * @param swapProbability Likelihood of a randomly selected pair of individuals trading places in
+   *                        each iteration.
+   * @return Number of iterations resulting in a change in population sizes.
+   */
+  public int iterate(int numIterations, float swapProbability) {
+    int changeCount = 0;
+    int fastForwardBreedCount = getFastForwardBreedCount(swapProbability);
+    for (int iteration = 0; iteration < numIterations && !absorbed; iteration++) {
+      if (currentBreedCount <= fastForwardBreedCount) {
+        int absorptionChanges = fastForward();
+        if (absorptionChanges >= 0) {
+          changeCount += absorptionChanges;
+          break;
+        }
+        fastForwardBreedCount = 0;
+      }
+      if (iterate(swapProbability)) {
+        changeCount++;
+      }
+    }
+    return changeCount;
+  }
+
+  /**
+   * Returns a flag indicating whether fast-forward mode is enabled (see
+   * {@link #setFastForward(boolean)}).
+   */
+  public boolean isFastForward() {
+    return fastForward;
+  }
+
+  /**
+   * Enables or disables fast-forward mode (disabled by default). When enabled, and
+   * {@link #iterate(int, float)} is invoked with a {@code swapProbability} of 0, an ecosystem in
+   * which only two interacting breeds remain is taken directly to the absorbing state, with the
+   * iteration count advanced by a sampled absorption time, rather than simulating the remaining
+   * iterations. Since the sampled absorption time has the same distribution as in the full
+   * simulation, this has no effect on the statistics of the absorption time or the outcome, but
+   * the intermediate states are never observed. The first fast-forward allocates
+   * {@code 12 * size * size} bytes, which are retained for use by subsequent fast-forwards.
+   *
+   * @param fastForward Flag specifying whether fast-forward mode is enabled.
+   */
+  public void setFastForward(boolean fastForward) {
+    this.fastForward = fastForward;
+  }
+
+  /**
+   * Returns the {@link Engine} constant corresponding to this implementation of the simulation.
+   */
+  public Engine getEngine() {
+    return Engine.STANDARD;
+  }
+
+  /**
+   * Returns the initial number of breeds in the simulation.
+   */
+  public int getInitialBreedCount() {
+    return initialBreedCount;
+  }
+
+  /**
+   * Returns the current extant (surviving) number of breeds in the simulation.
+   */
+  public int getCurrentBreedCount() {
+    return currentBreedCount;
+  }
+
+  /**
+   * Returns the height and width of the ecosystem's terrain.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns a flag indicating the terrain's topology, where {@code true} denotes toroidal, and
+   * {@code false} denotes a box with closed sides.
+   */
+  public boolean isToroidal() {
+    return toroidal;
+  }
+
+  /**
+   * Returns the shape of the neighborhood from which the opponent of each randomly selected
+   * individual is selected.
+   */
+  public Neighborhood getNeighborhood() {
+    return neighborhood;
+  }
+
+  /**
+   * Returns the contents of the terrain. This is a safe copy, in the sense that any changes made to
+   * it by a consumer of this method will not reflect the underlying simulation. However, for
+   * simulation performance, a new copy is not made each time this method is invoked; instead, the
+   * contents of the array returned by this method are overwritten each time it is invoked. Only the
+   * rows that have changed since the previous invocation are copied; these rows are then flagged
+   * in the array returned by {@link #getDirtyRows()}.
+   */
+  public int[][] getTerrain() {
+    // Advance the version before copying, so that a change made while copying is still seen as
+    // dirty by the next invocation.
+    if (safeTerrain == null) {
+      // Allocated on first use, since large terrains are normally consumed via snapshots instead.
+      safeTerrain = new int[size][size];
+    }
+    int snapshotVersion = ++version;
+    for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+      boolean dirty = rowVersions[rowIndex] >= terrainVersion;
+      dirtyRows[rowIndex] = dirty;
+      if (dirty) {
+        int[] row = safeTerrain[rowIndex];
+        for (int colIndex = 0, offset = rowIndex * size; colIndex < size; colIndex++, offset++) {
+          row[colIndex] = terrain.get(offset);
+        }
+      }
+    }
+    terrainVersion = snapshotVersion;
+    return safeTerrain;
+  }
+
+  /**
+   * Returns flags indicating which rows of the terrain changed between the two most recent
+   * invocations of {@link #getTerrain()} (all rows are flagged after the first invocation). A
+   * consumer of {@link #getTerrain()} may use these to limit any further processing (e.g.
+   * rendering) to the rows that changed. As with {@link #getTerrain()}, the same array is
+   * overwritten each time {@link #getTerrain()} is invoked.
+   */
+  public boolean[] getDirtyRows() {
+    return dirtyRows;
+  }
+
+  /**
+   * Returns the contents of the terrain as a single flat array, in row-major order: the breed of
+   * the individual at row {@code r} and column {@code c} is at index {@code r * size + c}. As with
+   * {@link #getTerrain()}, this is a safe copy, but the same array is overwritten (rather than a
+   * new array allocated) each time this method is invoked, and only the rows that have changed
+   * since the previous invocation are copied.
+   */
+  public byte[] getFlatTerrain() {
+    if (safeCells == null) {
+      safeCells = new byte[terrain.getCellCount()];
+    }
+    int snapshotVersion = ++version;
+    for (int rowIndex = 0, offset = 0; rowIndex < size; rowIndex++, offset += size) {
+      if (rowVersions[rowIndex] >= cellsVersion) {
+        terrain.get(offset, safeCells, offset, size);
+      }
+    }
+    cellsVersion = snapshotVersion;
+    return safeCells;
+  }
+
+  /**
+   * Copies the current state of this ecosystem into {@code snapshot}. Only the rows of the terrain
+   * that have changed since {@code snapshot} was last updated are copied.
+   *
+   * @param snapshot Destination of the copy.
+   */
+  void snapshot(Snapshot snapshot) {
+    int snapshotVersion = ++version;
+    int previousVersion = snapshot.getVersion();
+    byte[] destination = snapshot.getCells();
+    int[] destinationVersions = snapshot.getRowVersions();
+    for (int rowIndex = 0, offset = 0; rowIndex < size; rowIndex++, offset += size) {
+      int rowVersion = rowVersions[rowIndex];
+      if (destination != null && rowVersion >= previousVersion) {
+        terrain.get(offset, destination, offset, size);
+      }
+      destinationVersions[rowIndex] = rowVersion;
+    }
+    System.arraycopy(populations, 0, snapshot.getPopulations(), 0, initialBreedCount);
+    System.arraycopy(interfaces.getBoundaryLengths(), 0, snapshot.getBoundaryLengths(), 0,
+        initialBreedCount);
+    snapshot.update(snapshotVersion, iterationCount, currentBreedCount, absorbed,
+        interfaces.getEdgeCount(), interfaces.getDiscordantEdgeCount());
+  }
+
+  /**
+   * Returns the {@link CellChangeLog} to which changes are currently being recorded, or
+   * {@code null} if none is attached.
+   */
+  public CellChangeLog getChangeLog() {
+    return changeLog;
+  }
+
+  /**
+   * Attaches a {@link CellChangeLog} to which all subsequent changes in the breed occupying any
+   * cell of the terrain will be recorded, or (if {@code changeLog} is {@code null}) detaches the
+   * currently attached log. Like the mutator methods of this class, this must be invoked on the
+   * thread performing the simulation.
+   *
+   * @param changeLog Log to which changes will be recorded.
+   */
+  public void setChangeLog(CellChangeLog changeLog) {
+    this.changeLog = changeLog;
+  }
+
+  /**
+   * Returns the current sizes of the ecosystem breed populations.
+   */
+  public int[] getPopulations() {
+    System.arraycopy(populations, 0, safePopulations, 0, initialBreedCount);
+    return safePopulations;
+  }
+
+  /**
+   * Returns the total number of edges in the terrain, where an edge is an unordered pair of
+   * neighboring cells (as defined by the neighborhood and topology). This is fixed for the life of
+   * the ecosystem.
+   */
+  public long getEdgeCount() {
+    return interfaces.getEdgeCount();
+  }
+
+  /**
+   * Returns the number of discordant edges in the terrain, i.e. edges joining cells occupied by
+   * different breeds. This is maintained incrementally, as cells change, and so is available at no
+   * cost beyond that of the accessor.
+   */
+  public long getDiscordantEdgeCount() {
+    return interfaces.getDiscordantEdgeCount();
+  }
+
+  /**
+   * Returns the interface density of the terrain: the fraction of edges that are discordant (see
+   * {@link #getDiscordantEdgeCount()}), or 0 if the terrain has no edges.
+   */
+  public double getInterfaceDensity() {
+    long edgeCount = interfaces.getEdgeCount();
+    return (edgeCount > 0) ? (double) interfaces.getDiscordantEdgeCount() / edgeCount : 0;
+  }
+
+  /**
+   * Returns the current boundary length of each breed: the number of discordant edges with one end
+   * in a cell occupied by that breed. The sum of the boundary lengths is twice the discordant edge
+   * count. As with {@link #getPopulations()}, this is a safe copy, but the same array is
+   * overwritten each time this method is invoked.
+   */
+  public long[] getBoundaryLengths() {
+    System.arraycopy(interfaces.getBoundaryLengths(), 0, safeBoundaryLengths, 0,
+        initialBreedCount);
+    return safeBoundaryLengths;
+  }
+
+  /**
+   * Returns the number of iterations performed so far in the simulation.
+   */
+  public long getIterationCount() {
+    return iterationCount;
+  }
+
+  /**
+   * Returns a flag indicating whether the simulation has reached the absorbing state, in which only
+   * one breed remains.
+   */
+  public boolean isAbsorbed() {
+    return absorbed;
+  }
+
+  /**
+   * Returns the breed of the individual at the specified (row-major) index of the terrain.
+   */
+  int getBreed(int index) {
+    return terrain.get(index);
+  }
+
+  /**
+   * Returns the representation of the terrain.
+   */
+  public Storage getStorage() {
+    return storage;
+  }
+
+  /**
+   * Returns the terrain storage itself (not a copy), for use by engines that update cells directly,
+   * rather than through {@link #compete(int, int)}, and for bulk reading and writing of the
+   * terrain. Engines that update cells directly are responsible for reporting the resulting
+   * population changes via {@link #applyPopulationChanges(int[])}, the resulting interface changes
+   * via {@link #applyInterfaceChanges(InterfaceTally)}, and each individual cell change via
+   * {@link #cellChanged(int, int, int)}.
+   */
+  CellStorage getCells() {
+    return terrain;
+  }
+
+  /**
+   * Adds the specified changes to the breed population sizes, and updates the current breed count
+   * and absorption flag accordingly.
+   *
+   * @param changes Net change in population size for each breed.
+   */
+  void applyPopulationChanges(int[] changes) {
+    int breedCount = 0;
+    for (int breed = 0; breed < initialBreedCount; breed++) {
+      int population = (populations[breed] += changes[breed]);
+      if (population > 0) {
+        breedCount++;
+      }
+      if (population >= absorptionThreshold) {
+        absorbed = true;
+      }
+    }
+    currentBreedCount = breedCount;
+  }
+
+  /**
+   * Adds the specified changes to the discordant edge count and breed boundary lengths, and clears
+   * them in {@code changes}.
+   *
+   * @param changes Tally of the interface changes resulting from direct updates of cells.
+   */
+  void applyInterfaceChanges(InterfaceTally changes) {
+    interfaces.merge(changes);
+  }
+
+  /**
+   * Re-derives the populations, current breed count, and absorption flag from the current contents
+   * of the terrain (as written directly to the storage returned by {@link #getCells()}), and sets the
+   * iteration count to the specified value. This is used to restore a saved state; subclasses that
+   * maintain additional structures derived from the terrain must override this method to rebuild
+   * those structures, after invoking this implementation.
+   * <p>Any attached {@link CellChangeLog} will flag its next batch as incomplete.</p>
+   *
+   * @param iterationCount Iteration count of the restored state.
+   */
+  void restore(long iterationCount) {
+    Arrays.fill(populations, 0);
+    for (int index = 0, cellCount = terrain.getCellCount(); index < cellCount; index++) {
+      populations[terrain.get(index)]++;
+    }
+    int breedCount = 0;
+    absorbed = false;
+    for (int population : populations) {
+      if (population > 0) {
+        breedCount++;
+      }
+      if (population >= absorptionThreshold) {
+        absorbed = true;
+      }
+    }
+    currentBreedCount = breedCount;
+    interfaces.recount();
+    this.iterationCount = iterationCount;
+    Arrays.fill(rowVersions, version);
+    if (changeLog != null) {
+      changeLog.invalidate();
+    }
+  }
+
+  /**
+   * Replaces the breed occupying the specified cell, updating the populations, current breed
+   * count, and absorption flag accordingly, and reporting the change via
+   * {@link #cellChanged(int, int, int)}. This is used to apply recorded changes, rather than
+   * changes resulting from simulation.
+   *
+   * @param index Row-major index of the cell.
+   * @param breed Breed to occupy the cell.
+   */
+  void replace(int index, int breed) {
+    int oldBreed = terrain.get(index);
+    if (oldBreed != breed) {
+      terrain.set(index, breed);
+      if (--populations[oldBreed] == 0) {
+        currentBreedCount--;
+      }
+      if (populations[breed]++ == 0) {
+        currentBreedCount++;
+      }
+      // At most one breed can occupy the entire terrain; if one did before, it was oldBreed.
+      absorbed = populations[breed] >= absorptionThreshold;
+      interfaces.change(index, oldBreed, breed);
+      cellChanged(index, oldBreed, breed);
+    }
+  }
+
+  /**
+   * Returns all of the sources of randomness used by this ecosystem, starting with the one
+   * specified on creation; the combined states of these determine the future course of the
+   * simulation. Subclasses that use additional generators must override this method to include
+   * them, in a deterministic order.
+   */
+  UniformRandomProvider[] getGenerators() {
+    return new UniformRandomProvider[]{rng};
+  }
+
+  NeighborTable getNeighbors() {
+    return neighbors;
+  }
+
+  UniformRandomProvider getRng() {
+    return rng;
+  }
+
+  /**
+   * Adds {@code numIterations} iterations in which nothing happened to the iteration count. This is
+   * used by engines that skip over such iterations, rather than simulating them.
+   */
+  void advance(long numIterations) {
+    iterationCount += numIterations;
+  }
+
+  /**
+   * Returns the current breed count at or below which an implementation of
+   * {@link #iterate(int, float)} should attempt a {@link #fastForward()}, given the specified swap
+   * probability; this is 0 if fast-forward mode is disabled, or swaps are enabled.
+   */
+  int getFastForwardBreedCount(float swapProbability) {
+    return (fastForward && swapProbability == 0) ? 2 : 0;
+  }
+
+  /**
+   * Takes an ecosystem in which exactly two breeds remain directly to the absorbing state,
+   * replacing every individual of the losing breed with the winning breed (via
+   * {@link #replace(int, int)}), and advancing the iteration count by a sampled absorption time.
+   *
+   * @return Number of individuals replaced, or -1 if the remaining breeds are neutral with respect
+   * to each other (in which case the ecosystem is unchanged).
+   */
+  int fastForward() {
+    int first = -1;
+    int second = -1;
+    for (int breed = 0; breed < initialBreedCount; breed++) {
+      if (populations[breed] > 0) {
+        if (first < 0) {
+          first = breed;
+        } else {
+          second = breed;
+        }
+      }
+    }
+    int comparison = compare(first, second);
+    int replaced = -1;
+    if (comparison != 0) {
+      int winner = (comparison > 0) ? first : second;
+      int loser = (comparison > 0) ? second : first;
+      if (absorptionSampler == null) {
+        absorptionSampler = new AbsorptionSampler(neighbors, size);
+      }
+      long iterations = absorptionSampler.sample(terrain, loser, rng);
+      replaced = populations[loser];
+      for (int index = 0, cellCount = terrain.getCellCount(); index < cellCount; index++) {
+        if (terrain.get(index) == loser) {
+          replace(index, winner);
+        }
+      }
+      advance(iterations);
+    }
+    return replaced;
+  }
+
+  /**
+   * Invoked after every change in the breed occupying a cell of the terrain (whether due to
+   * competition or swapping). This implementation records the row of the cell as changed, for the
+   * purpose of incremental snapshots, and appends the change to the attached
+   * {@link CellChangeLog} (if any); subclasses may override it to maintain additional structures
+   * derived from the terrain, but must invoke this implementation.
+   *
+   * @param index    Row-major index of the changed cell.
+   * @param oldBreed Breed previously occupying the cell.
+   * @param newBreed Breed now occupying the cell.
+   */
+  void cellChanged(int index, int oldBreed, int newBreed) {
+    rowVersions[index / size] = version;
+    if (changeLog != null) {
+      changeLog.record(index, oldBreed, newBreed);
+    }
+  }
+
+  void swapRandomPair() {
+    randomize(attacker);
+    do {
+      randomize(defender);
+    } while (attacker.getIndex() == defender.getIndex());
+    int attackerBreed = attacker.getBreed();
+    int defenderBreed = defender.getBreed();
+    if (attackerBreed != defenderBreed) {
+      // Tally each cell's change before the other's, since the two cells may be neighbors.
+      terrain.set(attacker.getIndex(), defenderBreed);
+      interfaces.change(attacker.getIndex(), attackerBreed, defenderBreed);
+      terrain.set(defender.getIndex(), attackerBreed);
+      interfaces.change(defender.getIndex(), defenderBreed, attackerBreed);
+      cellChanged(attacker.getIndex(), attackerBreed, defenderBreed);
+      cellChanged(defender.getIndex(), defenderBreed, attackerBreed);
+    }
+  }
+
+  boolean competeRandomPair() {
+    randomize(attacker);
+    int neighborClass = neighbors.getNeighborClass(attacker.getRow(), attacker.getColumn());
+    int neighborCount = neighbors.getNeighborCount(neighborClass);
+    int slot = sharedDraws
+        ? (int) ((residue * neighborCount) >>> 32)
+        : rng.nextInt(neighborCount);
+    int attackerIndex = attacker.getIndex();
+    return compete(attackerIndex, attackerIndex + neighbors.getDelta(neighborClass, slot));
+  }
+
+  /**
+   * Performs a competitive interaction between the individuals at the specified (row-major) indices
+   * of the terrain, replacing the loser (if any) with a copy of the winner.
+   *
+   * @return Flag indicating whether the interaction resulted in a replacement.
+   */
+  boolean compete(int attackerIndex, int defenderIndex) {
+    int attackerBreed = terrain.get(attackerIndex);
+    int defenderBreed = terrain.get(defenderIndex);
+    int comparison = compare(attackerBreed, defenderBreed);
+    boolean changed = true;
+    if (comparison < 0) {
+      update(attackerIndex, defenderBreed);
+    } else if (comparison > 0) {
+      update(defenderIndex, attackerBreed);
+    } else {
+      changed = false;
+    }
+    return changed;
+  }
+
+  private void populate() {
+    for (int index = 0, cellCount = terrain.getCellCount(); index < cellCount; index++) {
+      int breed = rng.nextInt(initialBreedCount);
+      terrain.set(index, breed);
+      populations[breed]++;
+    }
+  }
+
+  private void randomize(Occupant occupant) {
+    long rowProduct;
+    long columnProduct;
+    do {
+      long bits = rng.nextLong();
+      rowProduct = (bits >>> 32) * size;
+      columnProduct = (bits & LOW_MASK) * size;
+    } while ((rowProduct & LOW_MASK) < rejectionThreshold
+        || (columnProduct & LOW_MASK) < rejectionThreshold);
+    int row = (int) (rowProduct >>> 32);
+    int column = (int) (columnProduct >>> 32);
+    int index = row * size + column;
+    occupant.set(row, column, index, terrain.get(index));
+    residue = columnProduct & LOW_MASK;
+  }
+
+  /**
+   * Returns a flag indicating whether a competitive interaction between the specified breeds would
+   * result in a replacement (i.e. whether neither breed is neutral with respect to the other).
+   */
+  boolean interacts(int breed, int otherBreed) {
+    return compare(breed, otherBreed) != 0;
+  }
+
+  /**
+   * Returns a negative value if {@code attackerBreed} loses to {@code defenderBreed}, a positive
+   * value if it wins, and 0 if the two breeds are the same or are neutral with respect to each
+   * other.
+   */
+  int compare(int attackerBreed, int defenderBreed) {
+    int distance = attackerBreed - defenderBreed;
+    if (distance < 0) {
+      distance += initialBreedCount;
+    }
+    return (distance == 0) ? 0 : initialBreedCount - 2 * distance;
+  }
+
+  private void update(int index, int winningBreed) {
+    int losingBreed = terrain.get(index);
+    terrain.set(index, winningBreed);
+    if (--populations[losingBreed] <= 0) {
+      currentBreedCount--;
+    }
+    if (++populations[winningBreed] >= absorptionThreshold) {
+      absorbed = true;
+    }
+    interfaces.change(index, losingBreed, winningBreed);
+    cellChanged(index, losingBreed, winningBreed);
+  }
+
+  private static class Occupant {
+
+    private int row;
+    private int column;
+    private int index;
+    private int breed;
+
+    public void set(int row, int column, int index, int breed) {
+      this.row = row;
+      this.column = column;
+      this.index = index;
+      this.breed = breed;
+    }
+
+    public int getRow() {
+      return row;
+    }
+
+    public int getColumn() {
+      return column;
+    }
+
+    public int getIndex() {
+      return index;
+    }
+
+    public int getBreed() {
+      return breed;
+    }
+
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.concurrent.ForkJoinPool;
+import org.apache.commons.rng.UniformRandomProvider;
+
+/**
+ * Implementations of the {@link Ecosystem} simulation. All implementations share the same
+ * {@link Ecosystem#iterate(int, float)} contract, and produce statistically equivalent results (see
+ * the documentation of each implementation for the precise sense of equivalence); they differ only
+ * in performance characteristics.
+ */
+public enum Engine {
+
+  /**
+   * Simulates every iteration, by random selection of an individual and one of its neighbors.
+   * Best suited to the early phase of the simulation, when most selected pairs interact.
+   */
+  STANDARD {
+    @Override
+    public Ecosystem create(int numBreeds, int size, boolean toroidal,
+        Neighborhood neighborhood, UniformRandomProvider rng, Storage storage) {
+      return new Ecosystem(numBreeds, size, toroidal, neighborhood, rng, storage);
+    }
+  },
+  /**
+   * Simulates only the iterations in which something happens, skipping over the rest; see
+   * {@link ActiveEdgeEcosystem}. Best suited to the coarsening phase, and the approach to
+   * absorption, where very few selected pairs interact.
+   */
+  ACTIVE_EDGE {
+    @Override
+    public Ecosystem create(int numBreeds, int size, boolean toroidal,
+        Neighborhood neighborhood, UniformRandomProvider rng, Storage storage) {
+      return new ActiveEdgeEcosystem(numBreeds, size, toroidal, neighborhood, rng, storage);
+    }
+  },
+  /**
+   * Simulates every iteration, processing non-adjacent tiles of the terrain concurrently; see
+   * {@link ParallelEcosystem}. Best suited to large terrains on multi-core devices.
+   */
+  PARALLEL {
+    @Override
+    public Ecosystem create(int numBreeds, int size, boolean toroidal,
+        Neighborhood neighborhood, UniformRandomProvider rng, Storage storage) {
+      return new ParallelEcosystem(numBreeds, size, toroidal, neighborhood, rng,
+          ForkJoinPool.commonPool(), storage);
+    }
+  };
+
+  /**
+   * Creates and returns an {@link Ecosystem} using this engine, with the terrain representation
+   * selected by {@link Storage#select(int, int)}.
+   *
+   * @param numBreeds    Number of distinct breeds to populate the ecosystem.
+   * @param size         Terrain height and width.
+   * @param toroidal     Flag specifying whether terrain is toroidal (with wrapping edges) or a box
+   *                     (with closed edges).
+   * @param neighborhood Shape of the neighborhood from which each opponent is selected.
+   * @param rng          Source of randomness.
+   */
+  public Ecosystem create(int numBreeds, int size, boolean toroidal,
+      Neighborhood neighborhood, UniformRandomProvider rng) {
+    return create(numBreeds, size, toroidal, neighborhood, rng, Storage.select(size, numBreeds));
+  }
+
+  /**
+   * Creates and returns an {@link Ecosystem} using this engine, with the specified terrain
+   * representation.
+   *
+   * @param numBreeds    Number of distinct breeds to populate the ecosystem.
+   * @param size         Terrain height and width.
+   * @param toroidal     Flag specifying whether terrain is toroidal (with wrapping edges) or a box
+   *                     (with closed edges).
+   * @param neighborhood Shape of the neighborhood from which each opponent is selected.
+   * @param rng          Source of randomness.
+   * @param storage      Representation of the terrain.
+   */
+  public abstract Ecosystem create(int numBreeds, int size, boolean toroidal,
+      Neighborhood neighborhood, UniformRandomProvider rng, Storage storage);
+
+}
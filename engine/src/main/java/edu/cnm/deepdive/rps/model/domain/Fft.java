@@ -0,0 +1,183 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+/**
+ * In-place discrete Fourier transform of complex sequences of a single fixed length, with all
+ * tables and scratch buffers allocated on creation, so that no allocation is performed by
+ * {@link #transform(double[], double[])}. Lengths that are powers of 2 are transformed by the
+ * iterative radix-2 Cooley&ndash;Tukey algorithm; other lengths are transformed by Bluestein's
+ * algorithm, which expresses the transform as a circular convolution (computed by radix-2
+ * transforms of a power-of-2 length at least twice the original), and so takes
+ * <em>O</em>(<em>n</em> log <em>n</em>) time for any length.
+ * <p>Instances are not thread-safe, since the scratch buffers are shared by all invocations.</p>
+ */
+final class Fft {
+
+  private final int length;
+  private final Radix2 radix2;
+  private final double[] chirpRe;
+  private final double[] chirpIm;
+  private final double[] filterRe;
+  private final double[] filterIm;
+  private final double[] scratchRe;
+  private final double[] scratchIm;
+
+  /**
+   * Initializes this instance for sequences of the specified length.
+   *
+   * @param length Number of elements in each sequence.
+   */
+  Fft(int length) {
+    this.length = length;
+    if (Integer.bitCount(length) == 1) {
+      radix2 = new Radix2(length);
+      chirpRe = null;
+      chirpIm = null;
+      filterRe = null;
+      filterIm = null;
+      scratchRe = null;
+      scratchIm = null;
+    } else {
+      int convolutionLength = Integer.highestOneBit(2 * length - 1) << 1;
+      radix2 = new Radix2(convolutionLength);
+      chirpRe = new double[length];
+      chirpIm = new double[length];
+      filterRe = new double[convolutionLength];
+      filterIm = new double[convolutionLength];
+      scratchRe = new double[convolutionLength];
+      scratchIm = new double[convolutionLength];
+      long period = 2L * length;
+      for (int k = 0; k < length; k++) {
+        // k^2 is reduced modulo 2n before scaling, to preserve the precision of the angle.
+        double angle = Math.PI * (((long) k * k) % period) / length;
+        chirpRe[k] = Math.cos(angle);
+        chirpIm[k] = -Math.sin(angle);
+      }
+      filterRe[0] = chirpRe[0];
+      filterIm[0] = -chirpIm[0];
+      for (int k = 1; k < length; k++) {
+        filterRe[k] = filterRe[convolutionLength - k] = chirpRe[k];
+        filterIm[k] = filterIm[convolutionLength - k] = -chirpIm[k];
+      }
+      radix2.transform(filterRe, filterIm, false);
+    }
+  }
+
+  /**
+   * Returns the length of the sequences transformed by this instance.
+   */
+  int getLength() {
+    return length;
+  }
+
+  /**
+   * Replaces the sequence with real parts {@code re} and imaginary parts {@code im} by its
+   * (forward, unnormalized) discrete Fourier transform:
+   * <em>X</em><sub>k</sub> = &sum;<sub>j</sub> <em>x</em><sub>j</sub>
+   * e<sup>-2&pi;<em>ijk</em>/<em>n</em></sup>.
+   *
+   * @param re Real parts of the sequence; at least {@link #getLength()} elements.
+   * @param im Imaginary parts of the sequence; at least {@link #getLength()} elements.
+   */
+  void transform(double[] re, double[] im) {
+    if (chirpRe == null) {
+      radix2.transform(re, im, false);
+    } else {
+      int convolutionLength = scratchRe.length;
+      for (int k = 0; k < length; k++) {
+        scratchRe[k] = re[k] * chirpRe[k] - im[k] * chirpIm[k];
+        scratchIm[k] = re[k] * chirpIm[k] + im[k] * chirpRe[k];
+      }
+      for (int k = length; k < convolutionLength; k++) {
+        scratchRe[k] = 0;
+        scratchIm[k] = 0;
+      }
+      radix2.transform(scratchRe, scratchIm, false);
+      for (int k = 0; k < convolutionLength; k++) {
+        double productRe = scratchRe[k] * filterRe[k] - scratchIm[k] * filterIm[k];
+        scratchIm[k] = scratchRe[k] * filterIm[k] + scratchIm[k] * filterRe[k];
+        scratchRe[k] = productRe;
+      }
+      radix2.transform(scratchRe, scratchIm, true);
+      double scale = 1d / convolutionLength;
+      for (int k = 0; k < length; k++) {
+        double convolutionRe = scratchRe[k] * scale;
+        double convolutionIm = scratchIm[k] * scale;
+        re[k] = convolutionRe * chirpRe[k] - convolutionIm * chirpIm[k];
+        im[k] = convolutionRe * chirpIm[k] + convolutionIm * chirpRe[k];
+      }
+    }
+  }
+
+  private static final class Radix2 {
+
+    private final int length;
+    private final int[] reversed;
+    private final double[] cosines;
+    private final double[] sines;
+
+    Radix2(int length) {
+      this.length = length;
+      reversed = new int[length];
+      int bits = Integer.numberOfTrailingZeros(length);
+      for (int i = 0; i < length; i++) {
+        reversed[i] = (bits > 0) ? Integer.reverse(i) >>> (Integer.SIZE - bits) : 0;
+      }
+      cosines = new double[length / 2];
+      sines = new double[length / 2];
+      for (int i = 0; i < length / 2; i++) {
+        double angle = 2 * Math.PI * i / length;
+        cosines[i] = Math.cos(angle);
+        sines[i] = Math.sin(angle);
+      }
+    }
+
+    /** Unnormalized forward (or, if {@code inverse}, inverse) transform, in place. */
+    void transform(double[] re, double[] im, boolean inverse) {
+      for (int i = 0; i < length; i++) {
+        int j = reversed[i];
+        if (j > i) {
+          double swap = re[i];
+          re[i] = re[j];
+          re[j] = swap;
+          swap = im[i];
+          im[i] = im[j];
+          im[j] = swap;
+        }
+      }
+      double sign = inverse ? 1 : -1;
+      for (int half = 1, stride = length / 2; half < length; half <<= 1, stride >>= 1) {
+        for (int start = 0; start < length; start += 2 * half) {
+          for (int k = 0, twiddle = 0; k < half; k++, twiddle += stride) {
+            double wRe = cosines[twiddle];
+            double wIm = sign * sines[twiddle];
+            int even = start + k;
+            int odd = even + half;
+            double oddRe = re[odd] * wRe - im[odd] * wIm;
+            double oddIm = re[odd] * wIm + im[odd] * wRe;
+            re[odd] = re[even] - oddRe;
+            im[odd] = im[even] - oddIm;
+            re[even] += oddRe;
+            im[even] += oddIm;
+          }
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,141 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.Arrays;
+
+/**
+ * Running count of the discordant edges of an {@link Ecosystem} terrain&mdash;unordered pairs of
+ * neighboring cells occupied by different breeds&mdash;and of the boundary length of each breed
+ * (the number of discordant edges with one end in a cell of that breed). The sum of all boundary
+ * lengths is thus twice the discordant edge count.
+ * <p>After a full {@link #recount()}, each change of a single cell is applied by
+ * {@link #change(int, int, int)} in time proportional to the neighborhood degree, by counting the
+ * neighbors of the cell that match its old and new breeds; this must be invoked while the
+ * neighbors still hold the breeds they held when the cell changed (i.e. before any other cell is
+ * changed). A tally that is never recounted accumulates changes only, and may be added to another
+ * with {@link #merge(InterfaceTally)}; this allows concurrent updates of disjoint regions to be
+ * tallied separately, and combined afterward.</p>
+ * <p>Edges are counted as in the {@link NeighborTable}: in a box terrain, cells on the border have
+ * fewer neighbors; in a very small toroidal terrain, the same neighbor may occupy several slots, and
+ * each slot counts as a separate edge; a cell that is its own neighbor never forms a discordant
+ * edge, and such slots are not counted as edges at all.</p>
+ */
+final class InterfaceTally {
+
+  private final CellStorage cells;
+  private final NeighborTable neighbors;
+  private final int size;
+  private final long[] boundaryLengths;
+
+  private long edgeCount;
+  private long discordantEdgeCount;
+
+  InterfaceTally(CellStorage cells, NeighborTable neighbors, int size, int numBreeds) {
+    this.cells = cells;
+    this.neighbors = neighbors;
+    this.size = size;
+    boundaryLengths = new long[numBreeds];
+  }
+
+  /**
+   * Recomputes the edge count, discordant edge count, and boundary lengths from the entire terrain.
+   */
+  void recount() {
+    Arrays.fill(boundaryLengths, 0);
+    long directedEdges = 0;
+    long discordantDirectedEdges = 0;
+    for (int row = 0, cell = 0; row < size; row++) {
+      for (int column = 0; column < size; column++, cell++) {
+        int neighborClass = neighbors.getNeighborClass(row, column);
+        int count = neighbors.getNeighborCount(neighborClass);
+        int breed = cells.get(cell);
+        for (int slot = 0; slot < count; slot++) {
+          int delta = neighbors.getDelta(neighborClass, slot);
+          if (delta != 0) {
+            directedEdges++;
+            if (cells.get(cell + delta) != breed) {
+              discordantDirectedEdges++;
+              boundaryLengths[breed]++;
+            }
+          }
+        }
+      }
+    }
+    // Each edge is seen once from each end.
+    edgeCount = directedEdges / 2;
+    discordantEdgeCount = discordantDirectedEdges / 2;
+  }
+
+  /**
+   * Applies the change of the cell at {@code index} from {@code oldBreed} to {@code newBreed}. The
+   * breed of the cell itself may already have been changed in the terrain, but those of its
+   * neighbors must be unchanged since.
+   *
+   * @param index    Row-major index of the changed cell.
+   * @param oldBreed Breed previously occupying the cell.
+   * @param newBreed Breed now occupying the cell.
+   */
+  void change(int index, int oldBreed, int newBreed) {
+    int row = index / size;
+    int neighborClass = neighbors.getNeighborClass(row, index - row * size);
+    int count = neighbors.getNeighborCount(neighborClass);
+    int formerlyConcordant = 0;
+    int nowConcordant = 0;
+    // A cell is its own neighbor only in a terrain of a single cell, which can never change; thus,
+    // every slot here is an edge.
+    for (int slot = 0; slot < count; slot++) {
+      int neighborBreed = cells.get(index + neighbors.getDelta(neighborClass, slot));
+      // Branch-free equality tests (breeds are non-negative): (x - 1) >>> 31 is 1 iff x == 0.
+      formerlyConcordant += ((neighborBreed ^ oldBreed) - 1) >>> 31;
+      nowConcordant += ((neighborBreed ^ newBreed) - 1) >>> 31;
+    }
+    // Only the boundaries of the old and new breeds change: an edge to a neighbor of a third breed
+    // moves from the boundary of the old breed to that of the new.
+    discordantEdgeCount += formerlyConcordant - nowConcordant;
+    boundaryLengths[oldBreed] += 2 * formerlyConcordant - count;
+    boundaryLengths[newBreed] += count - 2 * nowConcordant;
+  }
+
+  /**
+   * Adds the discordant edge count and boundary lengths of {@code changes} to those of this tally,
+   * and then clears them in {@code changes}.
+   *
+   * @param changes Tally of changes only (i.e. one that has never been recounted).
+   */
+  void merge(InterfaceTally changes) {
+    discordantEdgeCount += changes.discordantEdgeCount;
+    changes.discordantEdgeCount = 0;
+    long[] lengthChanges = changes.boundaryLengths;
+    for (int breed = 0; breed < boundaryLengths.length; breed++) {
+      boundaryLengths[breed] += lengthChanges[breed];
+      lengthChanges[breed] = 0;
+    }
+  }
+
+  long getEdgeCount() {
+    return edgeCount;
+  }
+
+  long getDiscordantEdgeCount() {
+    return discordantEdgeCount;
+  }
+
+  long[] getBoundaryLengths() {
+    return boundaryLengths;
+  }
+
+}
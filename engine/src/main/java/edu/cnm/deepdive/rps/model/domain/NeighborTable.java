@@ -0,0 +1,185 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+/**
+ * Precomputed neighbor lookup for a single combination of {@link Neighborhood}, terrain size, and
+ * topology. Rather than storing the neighbors of every cell, this classifies each row and column as
+ * first, last, or interior; all cells in the same (row class, column class) combination have
+ * neighbors at the same index offsets (in the row-major terrain array), so only 9 lists of offsets
+ * need to be stored, regardless of terrain size. In a box terrain, the neighbors that fall outside
+ * the box are omitted from the list for that class, so that the valid neighbors always occupy the
+ * first {@link #getNeighborCount(int)} slots.
+ * <p>Instances are immutable, and are obtained from {@link Neighborhood#getTable(int, boolean)}.
+ * </p>
+ */
+public final class NeighborTable {
+
+  private static final int FIRST = 0;
+  private static final int INTERIOR = 1;
+  private static final int LAST = 2;
+  private static final int CLASSES_PER_DIMENSION = 3;
+
+  private final int size;
+  private final int degree;
+  private final byte[] rowClasses;
+  private final byte[] columnClasses;
+  private final int[][] offsets;
+  private final int[] reverseOffsets;
+  private final int[] counts;
+  private final int[] deltas;
+  private final int[] slotOffsets;
+  private final int[] offsetSlots;
+
+  NeighborTable(int[][] offsets, int size, boolean toroidal) {
+    this.size = size;
+    this.offsets = offsets;
+    degree = offsets.length;
+    reverseOffsets = new int[degree];
+    for (int offset = 0; offset < degree; offset++) {
+      for (int reverse = 0; reverse < degree; reverse++) {
+        if (offsets[reverse][0] == -offsets[offset][0]
+            && offsets[reverse][1] == -offsets[offset][1]) {
+          reverseOffsets[offset] = reverse;
+        }
+      }
+    }
+    rowClasses = new byte[size];
+    columnClasses = new byte[size];
+    for (int i = 0; i < size; i++) {
+      int dimensionClass = (i == 0) ? FIRST : ((i == size - 1) ? LAST : INTERIOR);
+      rowClasses[i] = (byte) (dimensionClass * CLASSES_PER_DIMENSION);
+      columnClasses[i] = (byte) dimensionClass;
+    }
+    int numClasses = CLASSES_PER_DIMENSION * CLASSES_PER_DIMENSION;
+    counts = new int[numClasses];
+    deltas = new int[numClasses * degree];
+    slotOffsets = new int[numClasses * degree];
+    offsetSlots = new int[numClasses * degree];
+    for (int rowClass = FIRST; rowClass <= LAST; rowClass++) {
+      int row = representative(rowClass);
+      for (int columnClass = FIRST; columnClass <= LAST; columnClass++) {
+        int column = representative(columnClass);
+        int neighborClass = rowClass * CLASSES_PER_DIMENSION + columnClass;
+        int base = neighborClass * degree;
+        int count = 0;
+        for (int offset = 0; offset < degree; offset++) {
+          int neighborRow = row + offsets[offset][0];
+          int neighborColumn = column + offsets[offset][1];
+          offsetSlots[base + offset] = -1;
+          if (toroidal) {
+            neighborRow = Math.floorMod(neighborRow, size);
+            neighborColumn = Math.floorMod(neighborColumn, size);
+          } else if (neighborRow < 0 || neighborRow >= size
+              || neighborColumn < 0 || neighborColumn >= size) {
+            continue;
+          }
+          deltas[base + count] = (neighborRow - row) * size + (neighborColumn - column);
+          slotOffsets[base + count] = offset;
+          offsetSlots[base + offset] = count++;
+        }
+        counts[neighborClass] = count;
+      }
+    }
+  }
+
+  /**
+   * Returns the height and width of the terrain described by this table.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the maximum number of neighbors of any cell.
+   */
+  public int getDegree() {
+    return degree;
+  }
+
+  /**
+   * Returns the neighbor class of the cell at the specified location. The value returned is an
+   * opaque key, to be passed to {@link #getNeighborCount(int)} and {@link #getDelta(int, int)}.
+   *
+   * @param row    Row index of cell.
+   * @param column Column index of cell.
+   */
+  public int getNeighborClass(int row, int column) {
+    return rowClasses[row] + columnClasses[column];
+  }
+
+  /**
+   * Returns the number of neighbors of each cell in the specified neighbor class.
+   *
+   * @param neighborClass Value returned by {@link #getNeighborClass(int, int)}.
+   */
+  public int getNeighborCount(int neighborClass) {
+    return counts[neighborClass];
+  }
+
+  /**
+   * Returns the difference between the row-major index of a neighbor and that of the cell itself,
+   * for cells in the specified neighbor class.
+   *
+   * @param neighborClass Value returned by {@link #getNeighborClass(int, int)}.
+   * @param slot          Neighbor number, from 0 (inclusive) to
+   *                      {@link #getNeighborCount(int) getNeighborCount(neighborClass)}
+   *                      (exclusive).
+   */
+  public int getDelta(int neighborClass, int slot) {
+    return deltas[neighborClass * degree + slot];
+  }
+
+  /**
+   * Returns the neighbor class of the specified neighbor of the cell at the specified location.
+   *
+   * @param row           Row index of cell.
+   * @param column        Column index of cell.
+   * @param neighborClass Value returned by {@link #getNeighborClass(int, int)} for the cell.
+   * @param slot          Neighbor number.
+   */
+  int getNeighborClass(int row, int column, int neighborClass, int slot) {
+    int[] offset = offsets[slotOffsets[neighborClass * degree + slot]];
+    return rowClasses[wrap(row + offset[0])] + columnClasses[wrap(column + offset[1])];
+  }
+
+  /**
+   * Returns the slot, in the list of neighbors of the specified neighbor of a cell, that refers
+   * back to that cell.
+   *
+   * @param neighborClass        Neighbor class of the cell.
+   * @param slot                 Neighbor number (in the list for {@code neighborClass}).
+   * @param reverseNeighborClass Neighbor class of the neighbor.
+   */
+  int getReverseSlot(int neighborClass, int slot, int reverseNeighborClass) {
+    int reverseOffset = reverseOffsets[slotOffsets[neighborClass * degree + slot]];
+    return offsetSlots[reverseNeighborClass * degree + reverseOffset];
+  }
+
+  private int wrap(int dimension) {
+    if (dimension < 0) {
+      dimension += size;
+    } else if (dimension >= size) {
+      dimension -= size;
+    }
+    return dimension;
+  }
+
+  private int representative(int dimensionClass) {
+    return (dimensionClass == FIRST) ? 0 : ((dimensionClass == LAST) ? size - 1 : 1);
+  }
+
+}
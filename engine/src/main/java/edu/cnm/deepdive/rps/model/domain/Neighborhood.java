@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Neighborhood shapes available for selecting the opponent of a randomly selected individual in
+ * each competitive interaction. Each shape is defined by the row and column offsets (relative to an
+ * individual's own location in the terrain) of that individual's neighbors.
+ * <p>For any combination of terrain size and topology, the neighbors of every cell are resolved
+ * once, into a {@link NeighborTable}; these tables are cached, and shared by all {@link Ecosystem}
+ * instances with the same neighborhood, size, and topology.</p>
+ */
+public enum Neighborhood {
+
+  /**
+   * The 4 orthogonally adjacent cells (north, east, south, and west).
+   */
+  VON_NEUMANN(new int[][]{{-1, 0}, {0, 1}, {1, 0}, {0, -1}}),
+  /**
+   * The 8 orthogonally or diagonally adjacent cells.
+   */
+  MOORE(new int[][]{{-1, -1}, {-1, 0}, {-1, 1}, {0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}}),
+  /**
+   * The 6 adjacent cells of a hexagonal lattice, using axial coordinates: the lattice is stored
+   * (and, by default, rendered) as a square grid, in which each cell is adjacent to the cells
+   * immediately to its west and east, the cells to its north and north-east, and the cells to its
+   * south-west and south. Unlike offset-row layouts, this wraps consistently on a toroidal terrain
+   * of any size.
+   */
+  HEXAGONAL(new int[][]{{-1, 0}, {-1, 1}, {0, 1}, {1, 0}, {1, -1}, {0, -1}});
+
+  private final int[][] offsets;
+  private final Map<Long, NeighborTable> tables;
+
+  Neighborhood(int[][] offsets) {
+    this.offsets = offsets;
+    tables = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns the maximum number of neighbors of any cell, when using this neighborhood.
+   */
+  public int getDegree() {
+    return offsets.length;
+  }
+
+  /**
+   * Returns the (possibly cached) {@link NeighborTable} for terrains of the specified size and
+   * topology.
+   *
+   * @param size     Terrain height and width.
+   * @param toroidal Flag specifying whether terrain is toroidal ({@code true}) or a box
+   *                 ({@code false}).
+   */
+  public NeighborTable getTable(int size, boolean toroidal) {
+    long key = ((long) size << 1) | (toroidal ? 1 : 0);
+    return tables.computeIfAbsent(key, (ignored) -> new NeighborTable(offsets, size, toroidal));
+  }
+
+}
@@ -0,0 +1,416 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import org.apache.commons.rng.UniformRandomProvider;
+
+/**
+ * Multi-threaded implementation of the {@link Ecosystem} simulation, using a checkerboard domain
+ * decomposition. The terrain is partitioned into an even number of rectangular tiles in each
+ * dimension, and the tiles are colored in a 2&times;2 pattern; since each tile is at least
+ * {@value #MIN_TILE_SIZE} cells high and wide, no two tiles of the same color are adjacent, and no
+ * individual in one tile can reach any cell that an individual in another tile of the same color
+ * can reach. All tiles of one color can therefore be processed concurrently (on a
+ * {@link ForkJoinPool}), without locking; the cells along the borders of the adjacent tiles (the
+ * "halo") are read and written in place, since those tiles are idle during that phase.
+ * <p>Each batch of iterations is processed in rounds of roughly a quarter of a Monte Carlo step
+ * (one iteration per cell). In each round, the 4 colors are processed in random order; in each
+ * color phase, any swaps are first performed (sequentially), and then every tile of that color
+ * performs its share of the round's competitive interactions, using its own independent random
+ * number stream (obtained by jumping the ecosystem's generator, where supported).</p>
+ * <p><strong>Statistical equivalence:</strong> the local rule is identical to that of
+ * {@link Ecosystem}: each interaction selects an individual uniformly within its tile, and an
+ * opponent uniformly from its neighborhood, and every round allocates interactions to tiles in
+ * exact proportion to their sizes (the fractional remainders are allocated randomly, with
+ * probability proportional to tile size). Thus, every cell is selected at the same expected rate,
+ * and the number of iterations performed is exactly the number requested. What differs from the
+ * sequential simulation is only the order of interactions within each round: interactions in
+ * different tiles of the same color are independent, and so their relative order is irrelevant,
+ * but interactions in tiles of different colors are grouped by color rather than interleaved, and
+ * swaps are grouped at the start of each phase. This is the standard sublattice decomposition of a
+ * random-sequential-update Monte Carlo simulation: observables measured over time scales of a
+ * Monte Carlo step or more (absorption time, survival probabilities, population and domain-size
+ * dynamics) have the same distribution as in the sequential simulation, up to corrections of the
+ * order of the round length (a quarter step). Results are not, however, reproducible across runs
+ * with the same seed, except in the order of the changes applied within a phase.</p>
+ * <p>For terrains too small to be divided into at least 4 tiles per side, and for the final
+ * partial round of each batch, the sequential implementation is used.</p>
+ * <p>Any {@link Storage} representation may be used, including {@link Storage#PACKED}, which stores
+ * 2 cells in each byte: the cells written by concurrently processed tiles (including their halos)
+ * are never adjacent in row-major order, since same-colored tiles are separated by at least
+ * {@value #MIN_TILE_SIZE} - 2 columns, and the cells that are adjacent only by wrapping from the
+ * end of one row to the start of the next lie in tiles of different colors.</p>
+ * <p>Each tile also tallies the changes in discordant edges and breed boundary lengths resulting
+ * from its own interactions (see {@link #getDiscordantEdgeCount()}), reading the neighbors of each
+ * changed cell; these reads extend at most 2 cells into an adjacent tile, and so never reach cells
+ * written by another tile of the same color. The tallies are merged after each color phase.</p>
+ */
+public class ParallelEcosystem extends Ecosystem {
+
+  private static final int MIN_TILE_SIZE = 8;
+  private static final int MIN_TILES_PER_SIDE = 4;
+  private static final int TILES_PER_THREAD_PER_COLOR = 4;
+  private static final int COLORS = 4;
+  private static final int ROUNDS_PER_STEP = 4;
+
+  private final ForkJoinPool pool;
+  private final UniformRandomProvider rng;
+  private final int tilesPerSide;
+  private final Tile[] tiles;
+  private final Tile[][] colorTiles;
+  private final int[] rowTiles;
+  private final int[] columnTiles;
+  private final int roundIterations;
+  private final int[] colorOrder;
+  private final int[] populationChanges;
+
+  /**
+   * Initializes this instance with the specified number of breeds, terrain size, terrain topology,
+   * and neighborhood, using the {@link ForkJoinPool#commonPool() common pool} for concurrent
+   * processing. See {@link Ecosystem#Ecosystem(int, int, boolean, Neighborhood,
+   * UniformRandomProvider)} for details.
+   *
+   * @param numBreeds    Number of distinct breeds to populate the ecosystem.
+   * @param size         Terrain height and width.
+   * @param toroidal     Flag specifying whether terrain is toroidal (with wrapping edges) or a box
+   *                     (with closed edges).
+   * @param neighborhood Shape of the neighborhood from which each opponent is selected.
+   * @param rng          Source of randomness.
+   * @throws IllegalArgumentException If {@code numBreeds} is not in the range from 1 to
+   *                                  {@link #MAX_BREEDS} (inclusive).
+   */
+  public ParallelEcosystem(int numBreeds, int size, boolean toroidal,
+      Neighborhood neighborhood, UniformRandomProvider rng)
+      throws IllegalArgumentException {
+    this(numBreeds, size, toroidal, neighborhood, rng, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Initializes this instance with the specified number of breeds, terrain size, terrain topology,
+   * and neighborhood, using the specified pool for concurrent processing. See
+   * {@link Ecosystem#Ecosystem(int, int, boolean, Neighborhood, UniformRandomProvider)} for
+   * details.
+   *
+   * @param numBreeds    Number of distinct breeds to populate the ecosystem.
+   * @param size         Terrain height and width.
+   * @param toroidal     Flag specifying whether terrain is toroidal (with wrapping edges) or a box
+   *                     (with closed edges).
+   * @param neighborhood Shape of the neighborhood from which each opponent is selected.
+   * @param rng          Source of randomness.
+   * @param pool         Pool in which tiles are processed.
+   * @throws IllegalArgumentException If {@code numBreeds} is not in the range from 1 to
+   *                                  {@link #MAX_BREEDS} (inclusive).
+   */
+  public ParallelEcosystem(int numBreeds, int size, boolean toroidal,
+      Neighborhood neighborhood, UniformRandomProvider rng,
+      ForkJoinPool pool) throws IllegalArgumentException {
+    this(numBreeds, size, toroidal, neighborhood, rng, pool, Storage.select(size, numBreeds));
+  }
+
+  /**
+   * Initializes this instance with the specified number of breeds, terrain size, terrain topology,
+   * neighborhood, and terrain representation, using the specified pool for concurrent processing.
+   * See {@link Ecosystem#Ecosystem(int, int, boolean, Neighborhood, UniformRandomProvider,
+   * Storage)} for details.
+   *
+   * @param numBreeds    Number of distinct breeds to populate the ecosystem.
+   * @param size         Terrain height and width.
+   * @param toroidal     Flag specifying whether terrain is toroidal (with wrapping edges) or a box
+   *                     (with closed edges).
+   * @param neighborhood Shape of the neighborhood from which each opponent is selected.
+   * @param rng          Source of randomness.
+   * @param pool         Pool in which tiles are processed.
+   * @param storage      Representation of the terrain.
+   * @throws IllegalArgumentException If {@code numBreeds} is not in the range from 1 to
+   *                                  {@link Storage#getMaxBreeds() storage.getMaxBreeds()}
+   *                                  (inclusive).
+   */
+  public ParallelEcosystem(int numBreeds, int size, boolean toroidal,
+      Neighborhood neighborhood, UniformRandomProvider rng, ForkJoinPool pool, Storage storage)
+      throws IllegalArgumentException {
+    super(numBreeds, size, toroidal, neighborhood, rng, storage);
+    this.pool = pool;
+    this.rng = rng;
+    int target = 2 * (int) Math.ceil(
+        Math.sqrt(TILES_PER_THREAD_PER_COLOR * COLORS * pool.getParallelism()) / 2);
+    int maxTiles = size / MIN_TILE_SIZE;
+    tilesPerSide = Math.min(target, maxTiles - maxTiles % 2);
+    rowTiles = new int[size];
+    columnTiles = new int[size];
+    if (tilesPerSide >= MIN_TILES_PER_SIDE) {
+      int[] bounds = new int[tilesPerSide + 1];
+      for (int i = 0; i <= tilesPerSide; i++) {
+        bounds[i] = (int) ((long) i * size / tilesPerSide);
+      }
+      for (int i = 0; i < tilesPerSide; i++) {
+        Arrays.fill(rowTiles, bounds[i], bounds[i + 1], i * tilesPerSide);
+        Arrays.fill(columnTiles, bounds[i], bounds[i + 1], i);
+      }
+      tiles = new Tile[tilesPerSide * tilesPerSide];
+      List<List<Tile>> colors = new ArrayList<>();
+      for (int color = 0; color < COLORS; color++) {
+        colors.add(new ArrayList<>());
+      }
+      for (int tileRow = 0; tileRow < tilesPerSide; tileRow++) {
+        for (int tileColumn = 0; tileColumn < tilesPerSide; tileColumn++) {
+          Tile tile = new Tile(bounds[tileRow], bounds[tileRow + 1], bounds[tileColumn],
+              bounds[tileColumn + 1], RandomProviders.split(rng));
+          tiles[tileRow * tilesPerSide + tileColumn] = tile;
+          colors.get(2 * (tileRow % 2) + tileColumn % 2).add(tile);
+        }
+      }
+      colorTiles = colors.stream()
+          .map((colorList) -> colorList.toArray(new Tile[0]))
+          .toArray(Tile[][]::new);
+    } else {
+      tiles = new Tile[0];
+      colorTiles = new Tile[0][];
+    }
+    roundIterations = Math.max(1, size * size / ROUNDS_PER_STEP);
+    colorOrder = new int[COLORS];
+    populationChanges = new int[numBreeds];
+  }
+
+  /**
+   * Advances the simulation by {@code numIterations} iterations (or until the absorbing state is
+   * reached), with the same semantics as {@link Ecosystem#iterate(int, float)}, processing
+   * non-adjacent tiles of the terrain concurrently. When the absorbing state is reached during a
+   * round, the iteration count includes the remaining interactions of that color phase.
+   */
+  @Override
+  public int iterate(int numIterations, float swapProbability) {
+    int changeCount = 0;
+    int remaining = numIterations;
+    if (tiles.length > 0) {
+      int fastForwardBreedCount = getFastForwardBreedCount(swapProbability);
+      while (remaining >= roundIterations && !isAbsorbed()) {
+        if (getCurrentBreedCount() <= fastForwardBreedCount) {
+          int absorptionChanges = fastForward();
+          if (absorptionChanges >= 0) {
+            changeCount += absorptionChanges;
+            break;
+          }
+          fastForwardBreedCount = 0;
+        }
+        changeCount += round(swapProbability);
+        remaining -= roundIterations;
+      }
+    }
+    if (remaining > 0 && !isAbsorbed()) {
+      changeCount += super.iterate(remaining, swapProbability);
+    }
+    return changeCount;
+  }
+
+  @Override
+  public Engine getEngine() {
+    return Engine.PARALLEL;
+  }
+
+  /**
+   * Returns the number of tiles in each row and column of the decomposition, or 0 if the terrain
+   * is too small to decompose, and is thus simulated sequentially.
+   */
+  public int getTilesPerSide() {
+    return tiles.length > 0 ? tilesPerSide : 0;
+  }
+
+  @Override
+  UniformRandomProvider[] getGenerators() {
+    UniformRandomProvider[] generators = new UniformRandomProvider[tiles.length + 1];
+    generators[0] = rng;
+    for (int i = 0; i < tiles.length; i++) {
+      generators[i + 1] = tiles[i].rng;
+    }
+    return generators;
+  }
+
+  private int round(float swapProbability) {
+    allocate();
+    shuffleColors();
+    int changeCount = 0;
+    for (int color : colorOrder) {
+      Tile[] phaseTiles = colorTiles[color];
+      int phaseIterations = 0;
+      for (Tile tile : phaseTiles) {
+        phaseIterations += tile.iterations;
+      }
+      changeCount += swap(phaseIterations, swapProbability);
+      for (Tile tile : phaseTiles) {
+        tile.reinitialize();
+      }
+      pool.invoke(new Phase(phaseTiles));
+      for (Tile tile : phaseTiles) {
+        changeCount += tile.changeCount;
+        for (int i = 0; i < tile.changeLength; i++) {
+          long change = tile.changes[i];
+          cellChanged((int) (change >>> 16), (int) (change >>> 8) & 0xff, (int) change & 0xff);
+        }
+        tile.merge(populationChanges);
+        applyInterfaceChanges(tile.interfaceChanges);
+      }
+      applyPopulationChanges(populationChanges);
+      Arrays.fill(populationChanges, 0);
+      advance(phaseIterations);
+      if (isAbsorbed()) {
+        break;
+      }
+    }
+    return changeCount;
+  }
+
+  private void allocate() {
+    int cellCount = getSize() * getSize();
+    int allocated = 0;
+    for (Tile tile : tiles) {
+      tile.iterations = (int) ((long) roundIterations * tile.cellCount / cellCount);
+      allocated += tile.iterations;
+    }
+    for (int i = allocated; i < roundIterations; i++) {
+      int cell = rng.nextInt(cellCount);
+      int row = cell / getSize();
+      tiles[rowTiles[row] + columnTiles[cell - row * getSize()]].iterations++;
+    }
+  }
+
+  private void shuffleColors() {
+    // "Inside-out" shuffle, building a uniformly random permutation from scratch, so that the order
+    // depends only on the generator state (which can be saved), and not on the previous order.
+    colorOrder[0] = 0;
+    for (int i = 1; i < COLORS; i++) {
+      int j = rng.nextInt(i + 1);
+      colorOrder[i] = colorOrder[j];
+      colorOrder[j] = i;
+    }
+  }
+
+  private int swap(int phaseIterations, float swapProbability) {
+    int swapCount = 0;
+    if (swapProbability > 0) {
+      for (int i = 0; i < phaseIterations; i++) {
+        if (rng.nextFloat() < swapProbability) {
+          swapRandomPair();
+          swapCount++;
+        }
+      }
+    }
+    return swapCount;
+  }
+
+  private static class Phase extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Tile[] tiles;
+
+    Phase(Tile[] tiles) {
+      this.tiles = tiles;
+    }
+
+    @Override
+    protected void compute() {
+      ForkJoinTask.invokeAll(tiles);
+    }
+
+  }
+
+  private class Tile extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CHANGE_CAPACITY = 256;
+
+    private final int rowStart;
+    private final int height;
+    private final int columnStart;
+    private final int width;
+    private final int cellCount;
+    private final UniformRandomProvider rng;
+    private final int[] populationChanges;
+    private final InterfaceTally interfaceChanges;
+
+    private long[] changes;
+    private int changeLength;
+    private int iterations;
+    private int changeCount;
+
+    Tile(int rowStart, int rowEnd, int columnStart, int columnEnd, UniformRandomProvider rng) {
+      this.rowStart = rowStart;
+      height = rowEnd - rowStart;
+      this.columnStart = columnStart;
+      width = columnEnd - columnStart;
+      cellCount = height * width;
+      this.rng = rng;
+      populationChanges = new int[getInitialBreedCount()];
+      interfaceChanges =
+          new InterfaceTally(getCells(), getNeighbors(), getSize(), getInitialBreedCount());
+      changes = new long[INITIAL_CHANGE_CAPACITY];
+    }
+
+    @Override
+    protected void compute() {
+      CellStorage cells = getCells();
+      NeighborTable neighbors = getNeighbors();
+      int size = getSize();
+      int count = 0;
+      changeLength = 0;
+      for (int i = 0; i < iterations; i++) {
+        int row = rowStart + rng.nextInt(height);
+        int column = columnStart + rng.nextInt(width);
+        int attacker = row * size + column;
+        int neighborClass = neighbors.getNeighborClass(row, column);
+        int slot = rng.nextInt(neighbors.getNeighborCount(neighborClass));
+        int defender = attacker + neighbors.getDelta(neighborClass, slot);
+        int attackerBreed = cells.get(attacker);
+        int defenderBreed = cells.get(defender);
+        int comparison = compare(attackerBreed, defenderBreed);
+        if (comparison < 0) {
+          set(cells, attacker, attackerBreed, defenderBreed);
+          count++;
+        } else if (comparison > 0) {
+          set(cells, defender, defenderBreed, attackerBreed);
+          count++;
+        }
+      }
+      changeCount = count;
+    }
+
+    void merge(int[] totals) {
+      for (int breed = 0; breed < totals.length; breed++) {
+        totals[breed] += populationChanges[breed];
+        populationChanges[breed] = 0;
+      }
+    }
+
+    private void set(CellStorage cells, int index, int oldBreed, int newBreed) {
+      cells.set(index, newBreed);
+      interfaceChanges.change(index, oldBreed, newBreed);
+      populationChanges[oldBreed]--;
+      populationChanges[newBreed]++;
+      if (changeLength == changes.length) {
+        changes = Arrays.copyOf(changes, 2 * changes.length);
+      }
+      changes[changeLength++] = ((long) index << 16) | (oldBreed << 8) | newBreed;
+    }
+
+  }
+
+}
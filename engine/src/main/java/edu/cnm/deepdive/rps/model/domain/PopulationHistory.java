@@ -0,0 +1,505 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-memory history of the breed populations of an {@link Ecosystem}, for charting the
+ * populations over the whole of a run, at any zoom. The history is a series of samples, each
+ * consisting of an iteration count and the population of every breed at that count, summarized at
+ * several resolutions by min/max bucketing:
+ * <ul><li>Each level holds up to a fixed number of buckets; each bucket summarizes a run of
+ * consecutive samples by the first and last iteration counts, and the minimum, maximum, and final
+ * population of each breed, over that run.</li>
+ * <li>At level 0, each bucket summarizes a single sample; at each level above it, each bucket
+ * summarizes twice as many samples as at the level below. All levels but the top are ring buffers,
+ * retaining only the most recent buckets.</li>
+ * <li>The top level always covers the whole history: when it is full, adjacent pairs of its buckets
+ * are merged, halving the number of buckets and doubling the number of samples summarized by each
+ * subsequent bucket.</li></ul>
+ * <p>Thus, recent samples are available at full resolution, and older samples at progressively
+ * coarser resolution, with memory proportional to the number of levels, bucket capacity, and number
+ * of breeds, regardless of the length of the run. Each bucket in progress (not yet holding its full
+ * number of samples) is included in queries, so the most recent sample is always visible.</p>
+ * <p>{@link #record(long, int[])} takes time proportional to the number of levels and breeds;
+ * {@link #query(long, long, int, Series)} selects the finest level covering the requested range of
+ * iterations with no more than the requested number of points, and takes time proportional to the
+ * number of points returned (plus a logarithmic search of each level). All methods are
+ * synchronized, so samples may be recorded on the simulation thread, and queried on another.</p>
+ */
+public final class PopulationHistory {
+
+  /** Default number of buckets held at each level. */
+  public static final int DEFAULT_CAPACITY = 512;
+  /** Default number of levels. */
+  public static final int DEFAULT_LEVEL_COUNT = 8;
+
+  private static final String INVALID_CAPACITY =
+      "Capacity must be a positive, even number.";
+  private static final String INVALID_LEVEL_COUNT = "Level count must be positive.";
+  private static final String INVALID_POINT_COUNT = "Maximum number of points must be positive.";
+
+  private final int numBreeds;
+  private final int capacity;
+  private final Level[] levels;
+
+  private long earliestIteration;
+  private long latestIteration;
+  private boolean empty;
+
+  /**
+   * Initializes an empty history for the specified number of breeds, with
+   * {@link #DEFAULT_LEVEL_COUNT} levels of {@link #DEFAULT_CAPACITY} buckets each.
+   *
+   * @param numBreeds Number of breeds in each sample.
+   */
+  public PopulationHistory(int numBreeds) {
+    this(numBreeds, DEFAULT_CAPACITY, DEFAULT_LEVEL_COUNT);
+  }
+
+  /**
+   * Initializes an empty history for the specified number of breeds, with the specified number of
+   * levels and buckets per level.
+   *
+   * @param numBreeds  Number of breeds in each sample.
+   * @param capacity   Number of buckets held at each level; this must be even.
+   * @param levelCount Number of levels, including level 0.
+   * @throws IllegalArgumentException If {@code capacity} is not a positive, even number, or
+   *                                  {@code levelCount} is not positive.
+   */
+  public PopulationHistory(int numBreeds, int capacity, int levelCount)
+      throws IllegalArgumentException {
+    if (capacity <= 0 || (capacity & 1) != 0) {
+      throw new IllegalArgumentException(INVALID_CAPACITY);
+    }
+    if (levelCount <= 0) {
+      throw new IllegalArgumentException(INVALID_LEVEL_COUNT);
+    }
+    this.numBreeds = numBreeds;
+    this.capacity = capacity;
+    levels = new Level[levelCount];
+    for (int level = 0; level < levelCount; level++) {
+      levels[level] = new Level(1L << level);
+    }
+    empty = true;
+  }
+
+  /**
+   * Returns the number of breeds in each sample.
+   */
+  public int getNumBreeds() {
+    return numBreeds;
+  }
+
+  /**
+   * Adds a sample to this history. Samples are expected in increasing order of iteration count; a
+   * sample with the same iteration count as the most recent is ignored, and a sample with a lower
+   * iteration count (e.g. after seeking backward in a replay) clears the history before it is
+   * added.
+   *
+   * @param iterationCount Iteration count at which the populations were taken.
+   * @param populations    Population of each breed; only the first {@link #getNumBreeds()} elements
+   *                       are read.
+   */
+  public synchronized void record(long iterationCount, int[] populations) {
+    if (!empty && iterationCount <= latestIteration) {
+      if (iterationCount == latestIteration) {
+        return;
+      }
+      clear();
+    }
+    if (empty) {
+      earliestIteration = iterationCount;
+      empty = false;
+    }
+    latestIteration = iterationCount;
+    int top = levels.length - 1;
+    for (int level = 0; level < levels.length; level++) {
+      levels[level].add(iterationCount, populations, level == top);
+    }
+  }
+
+  /**
+   * Removes all samples from this history, restoring every level to its initial resolution.
+   */
+  public synchronized void clear() {
+    for (int level = 0; level < levels.length; level++) {
+      levels[level].reset(1L << level);
+    }
+    empty = true;
+  }
+
+  /**
+   * Returns {@code true} if no samples have been recorded since this history was created or
+   * cleared.
+   */
+  public synchronized boolean isEmpty() {
+    return empty;
+  }
+
+  /**
+   * Returns the iteration count of the earliest sample in this history. The result is undefined if
+   * the history is empty.
+   */
+  public synchronized long getEarliestIteration() {
+    return earliestIteration;
+  }
+
+  /**
+   * Returns the iteration count of the most recent sample in this history. The result is undefined
+   * if the history is empty.
+   */
+  public synchronized long getLatestIteration() {
+    return latestIteration;
+  }
+
+  /**
+   * Fills {@code series} with at most {@code maxPoints} points summarizing the samples with
+   * iteration counts between {@code fromIteration} and {@code toIteration} (inclusive). The points
+   * are taken from the finest level that retains the start of the range (or the start of the
+   * history, if later) and has no more than {@code maxPoints} buckets overlapping the range; if
+   * there is no such level, consecutive buckets of the top level are combined to reduce the number
+   * of points. The first and last points may extend beyond the requested range, to the extent of
+   * the buckets they summarize.
+   *
+   * @param fromIteration Lowest iteration count of interest.
+   * @param toIteration   Highest iteration count of interest.
+   * @param maxPoints     Maximum number of points (e.g. the width of a chart, in pixels).
+   * @param series        Destination of the points; its previous contents are replaced.
+   * @return Number of points written to {@code series}.
+   * @throws IllegalArgumentException If {@code maxPoints} is not positive.
+   */
+  public synchronized int query(long fromIteration, long toIteration, int maxPoints, Series series)
+      throws IllegalArgumentException {
+    if (maxPoints <= 0) {
+      throw new IllegalArgumentException(INVALID_POINT_COUNT);
+    }
+    series.reset(numBreeds);
+    if (!empty && fromIteration <= toIteration) {
+      long coverFrom = Math.max(fromIteration, earliestIteration);
+      Level selected = levels[levels.length - 1];
+      int start = selected.firstEndingAtOrAfter(fromIteration);
+      int end = selected.firstStartingAfter(toIteration);
+      for (Level level : levels) {
+        int size = level.size();
+        if (size > 0 && level.getFirstIteration(0) <= coverFrom) {
+          int levelStart = level.firstEndingAtOrAfter(fromIteration);
+          int levelEnd = level.firstStartingAfter(toIteration);
+          if (levelEnd - levelStart <= maxPoints) {
+            selected = level;
+            start = levelStart;
+            end = levelEnd;
+            break;
+          }
+        }
+      }
+      int count = end - start;
+      int group = (count + maxPoints - 1) / maxPoints;
+      for (int index = start; index < end; index += group) {
+        selected.copy(index, Math.min(index + group, end), series);
+      }
+    }
+    return series.size;
+  }
+
+  private final class Level {
+
+    private final long[] firstIterations;
+    private final long[] lastIterations;
+    private final int[] minimums;
+    private final int[] maximums;
+    private final int[] finals;
+    private final int[] pendingMinimums;
+    private final int[] pendingMaximums;
+    private final int[] pendingFinals;
+
+    private long width;
+    private int head;
+    private int count;
+    private long pendingSamples;
+    private long pendingFirstIteration;
+    private long pendingLastIteration;
+
+    Level(long width) {
+      firstIterations = new long[capacity];
+      lastIterations = new long[capacity];
+      minimums = new int[capacity * numBreeds];
+      maximums = new int[capacity * numBreeds];
+      finals = new int[capacity * numBreeds];
+      pendingMinimums = new int[numBreeds];
+      pendingMaximums = new int[numBreeds];
+      pendingFinals = new int[numBreeds];
+      this.width = width;
+    }
+
+    void reset(long width) {
+      this.width = width;
+      head = 0;
+      count = 0;
+      pendingSamples = 0;
+    }
+
+    void add(long iterationCount, int[] populations, boolean compacting) {
+      if (pendingSamples == 0) {
+        pendingFirstIteration = iterationCount;
+        System.arraycopy(populations, 0, pendingMinimums, 0, numBreeds);
+        System.arraycopy(populations, 0, pendingMaximums, 0, numBreeds);
+      } else {
+        for (int breed = 0; breed < numBreeds; breed++) {
+          int population = populations[breed];
+          pendingMinimums[breed] = Math.min(pendingMinimums[breed], population);
+          pendingMaximums[breed] = Math.max(pendingMaximums[breed], population);
+        }
+      }
+      System.arraycopy(populations, 0, pendingFinals, 0, numBreeds);
+      pendingLastIteration = iterationCount;
+      if (++pendingSamples == width) {
+        commit(compacting);
+      }
+    }
+
+    /** Returns the number of buckets, including the bucket in progress (if not empty). */
+    int size() {
+      return (pendingSamples > 0) ? count + 1 : count;
+    }
+
+    long getFirstIteration(int index) {
+      return (index < count) ? firstIterations[slot(index)] : pendingFirstIteration;
+    }
+
+    long getLastIteration(int index) {
+      return (index < count) ? lastIterations[slot(index)] : pendingLastIteration;
+    }
+
+    int firstEndingAtOrAfter(long iteration) {
+      int low = 0;
+      int high = size();
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (getLastIteration(mid) < iteration) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    int firstStartingAfter(long iteration) {
+      int low = 0;
+      int high = size();
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (getFirstIteration(mid) <= iteration) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    void copy(int start, int end, Series series) {
+      int point = series.append(getFirstIteration(start), getLastIteration(end - 1));
+      int destination = point * numBreeds;
+      for (int index = start; index < end; index++) {
+        int[] mins;
+        int[] maxs;
+        int[] lasts;
+        int offset;
+        if (index < count) {
+          mins = minimums;
+          maxs = maximums;
+          lasts = finals;
+          offset = slot(index) * numBreeds;
+        } else {
+          mins = pendingMinimums;
+          maxs = pendingMaximums;
+          lasts = pendingFinals;
+          offset = 0;
+        }
+        if (index == start) {
+          System.arraycopy(mins, offset, series.minimums, destination, numBreeds);
+          System.arraycopy(maxs, offset, series.maximums, destination, numBreeds);
+        } else {
+          for (int breed = 0; breed < numBreeds; breed++) {
+            series.minimums[destination + breed] =
+                Math.min(series.minimums[destination + breed], mins[offset + breed]);
+            series.maximums[destination + breed] =
+                Math.max(series.maximums[destination + breed], maxs[offset + breed]);
+          }
+        }
+        if (index == end - 1) {
+          System.arraycopy(lasts, offset, series.finals, destination, numBreeds);
+        }
+      }
+    }
+
+    private void commit(boolean compacting) {
+      int slot;
+      if (count < capacity) {
+        slot = slot(count++);
+      } else {
+        slot = head;
+        head = (head + 1) % capacity;
+      }
+      firstIterations[slot] = pendingFirstIteration;
+      lastIterations[slot] = pendingLastIteration;
+      int offset = slot * numBreeds;
+      System.arraycopy(pendingMinimums, 0, minimums, offset, numBreeds);
+      System.arraycopy(pendingMaximums, 0, maximums, offset, numBreeds);
+      System.arraycopy(pendingFinals, 0, finals, offset, numBreeds);
+      pendingSamples = 0;
+      if (compacting && count == capacity) {
+        compact();
+      }
+    }
+
+    /** Merges adjacent pairs of buckets; only invoked when full, with {@code head == 0}. */
+    private void compact() {
+      for (int target = 0, source = 0; source < capacity; target++, source += 2) {
+        firstIterations[target] = firstIterations[source];
+        lastIterations[target] = lastIterations[source + 1];
+        int targetOffset = target * numBreeds;
+        int sourceOffset = source * numBreeds;
+        for (int breed = 0; breed < numBreeds; breed++) {
+          int first = sourceOffset + breed;
+          int second = first + numBreeds;
+          minimums[targetOffset + breed] = Math.min(minimums[first], minimums[second]);
+          maximums[targetOffset + breed] = Math.max(maximums[first], maximums[second]);
+          finals[targetOffset + breed] = finals[second];
+        }
+      }
+      count = capacity / 2;
+      width *= 2;
+    }
+
+    private int slot(int index) {
+      return (head + index) % capacity;
+    }
+
+  }
+
+  /**
+   * Reusable destination of the points returned by
+   * {@link PopulationHistory#query(long, long, int, Series)}. Each point summarizes a run of
+   * consecutive samples, by the first and last iteration counts, and the minimum, maximum, and
+   * final population of each breed, over that run. The arrays backing an instance grow as needed,
+   * but are never shrunk, so an instance reused for successive queries of similar size allocates
+   * nothing.
+   */
+  public static final class Series {
+
+    private int numBreeds;
+    private int size;
+    private long[] firstIterations = new long[0];
+    private long[] lastIterations = new long[0];
+    private int[] minimums = new int[0];
+    private int[] maximums = new int[0];
+    private int[] finals = new int[0];
+
+    /**
+     * Returns the number of points in this series.
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Returns the number of breeds in each point.
+     */
+    public int getNumBreeds() {
+      return numBreeds;
+    }
+
+    /**
+     * Returns the iteration count of the first sample summarized by the specified point.
+     *
+     * @param point Index of point.
+     */
+    public long getFirstIteration(int point) {
+      return firstIterations[point];
+    }
+
+    /**
+     * Returns the iteration count of the last sample summarized by the specified point.
+     *
+     * @param point Index of point.
+     */
+    public long getLastIteration(int point) {
+      return lastIterations[point];
+    }
+
+    /**
+     * Returns the minimum population of the specified breed over the samples summarized by the
+     * specified point.
+     *
+     * @param point Index of point.
+     * @param breed Index of breed.
+     */
+    public int getMinimum(int point, int breed) {
+      return minimums[point * numBreeds + breed];
+    }
+
+    /**
+     * Returns the maximum population of the specified breed over the samples summarized by the
+     * specified point.
+     *
+     * @param point Index of point.
+     * @param breed Index of breed.
+     */
+    public int getMaximum(int point, int breed) {
+      return maximums[point * numBreeds + breed];
+    }
+
+    /**
+     * Returns the population of the specified breed in the last sample summarized by the specified
+     * point.
+     *
+     * @param point Index of point.
+     * @param breed Index of breed.
+     */
+    public int getPopulation(int point, int breed) {
+      return finals[point * numBreeds + breed];
+    }
+
+    void reset(int numBreeds) {
+      this.numBreeds = numBreeds;
+      size = 0;
+    }
+
+    int append(long firstIteration, long lastIteration) {
+      if (size == firstIterations.length) {
+        int length = Math.max(16, size * 2);
+        firstIterations = Arrays.copyOf(firstIterations, length);
+        lastIterations = Arrays.copyOf(lastIterations, length);
+      }
+      int required = (size + 1) * numBreeds;
+      if (required > minimums.length) {
+        int length = Math.max(required, minimums.length * 2);
+        minimums = Arrays.copyOf(minimums, length);
+        maximums = Arrays.copyOf(maximums, length);
+        finals = Arrays.copyOf(finals, length);
+      }
+      firstIterations[size] = firstIteration;
+      lastIterations[size] = lastIteration;
+      return size++;
+    }
+
+  }
+
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import org.apache.commons.rng.JumpableUniformRandomProvider;
+import org.apache.commons.rng.UniformRandomProvider;
+import org.apache.commons.rng.simple.RandomSource;
+
+/**
+ * Factory methods for the sources of randomness used by the simulation. All generators are of a
+ * single algorithm (xoroshiro128++), which is fast, has a small state, and supports jumping ahead
+ * to obtain non-overlapping streams for concurrent use.
+ */
+public final class RandomProviders {
+
+  private static final RandomSource SOURCE = RandomSource.XO_RO_SHI_RO_128_PP;
+
+  private RandomProviders() {
+    // Not instantiable.
+  }
+
+  /**
+   * Creates and returns a generator seeded from system entropy.
+   */
+  public static JumpableUniformRandomProvider create() {
+    return (JumpableUniformRandomProvider) SOURCE.create();
+  }
+
+  /**
+   * Creates and returns a generator with the specified seed; generators created with the same seed
+   * produce the same sequence.
+   *
+   * @param seed Generator seed.
+   */
+  public static JumpableUniformRandomProvider create(long seed) {
+    return (JumpableUniformRandomProvider) SOURCE.create(seed);
+  }
+
+  /**
+   * Returns a new generator producing a stream independent of {@code rng}. If {@code rng} supports
+   * jumping, the new generator is a copy of {@code rng}, and {@code rng} is advanced by a jump
+   * (2<sup>64</sup> draws, in the case of xoroshiro128++), so the streams cannot overlap in
+   * practice; otherwise, the new generator is seeded from {@code rng}.
+   *
+   * @param rng Source generator.
+   */
+  public static UniformRandomProvider split(UniformRandomProvider rng) {
+    return (rng instanceof JumpableUniformRandomProvider)
+        ? ((JumpableUniformRandomProvider) rng).jump()
+        : SOURCE.create(new long[]{rng.nextLong(), rng.nextLong()});
+  }
+
+}
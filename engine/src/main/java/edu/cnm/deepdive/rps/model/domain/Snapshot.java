@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+/**
+ * Complete and consistent copy of the observable state of an {@link Ecosystem} at the end of a
+ * batch of iterations: terrain (unless the snapshot was created without one; see
+ * {@link SnapshotBuffer#SnapshotBuffer(Ecosystem, boolean)}), breed populations and boundary
+ * lengths, discordant edge count, iteration count, and current breed count.
+ * Instances are allocated and recycled by a {@link SnapshotBuffer}; the contents of a snapshot
+ * obtained from {@link SnapshotBuffer#acquire()} remain unchanged until the next invocation of that
+ * method, but should not be retained beyond that.
+ */
+public final class Snapshot {
+
+  private final int size;
+  private final byte[] cells;
+  private final int[] rowVersions;
+  private final boolean[] dirtyRows;
+  private final int[] populations;
+  private final long[] boundaryLengths;
+
+  private int version;
+  private long iterationCount;
+  private int currentBreedCount;
+  private boolean absorbed;
+  private long edgeCount;
+  private long discordantEdgeCount;
+
+  Snapshot(int size, int numBreeds, boolean includeTerrain) {
+    this.size = size;
+    cells = includeTerrain ? new byte[size * size] : null;
+    rowVersions = new int[size];
+    dirtyRows = new boolean[size];
+    populations = new int[numBreeds];
+    boundaryLengths = new long[numBreeds];
+    version = -1;
+  }
+
+  /**
+   * Returns the height and width of the terrain.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the contents of the terrain as a single flat array, in row-major order (as in
+   * {@link Ecosystem#getFlatTerrain()}), or {@code null} if this snapshot was created without a
+   * copy of the terrain.
+   */
+  public byte[] getCells() {
+    return cells;
+  }
+
+  /**
+   * Returns flags indicating which rows of the terrain differ from those in the snapshot previously
+   * acquired from the same {@link SnapshotBuffer} (all rows are flagged in the first snapshot
+   * acquired).
+   */
+  public boolean[] getDirtyRows() {
+    return dirtyRows;
+  }
+
+  /**
+   * Returns the sizes of the breed populations.
+   */
+  public int[] getPopulations() {
+    return populations;
+  }
+
+  /**
+   * Returns the boundary lengths of the breeds (see {@link Ecosystem#getBoundaryLengths()}).
+   */
+  public long[] getBoundaryLengths() {
+    return boundaryLengths;
+  }
+
+  /**
+   * Returns the total number of edges in the terrain (see {@link Ecosystem#getEdgeCount()}).
+   */
+  public long getEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Returns the number of discordant edges in the terrain (see
+   * {@link Ecosystem#getDiscordantEdgeCount()}).
+   */
+  public long getDiscordantEdgeCount() {
+    return discordantEdgeCount;
+  }
+
+  /**
+   * Returns the interface density of the terrain (see {@link Ecosystem#getInterfaceDensity()}).
+   */
+  public double getInterfaceDensity() {
+    return (edgeCount > 0) ? (double) discordantEdgeCount / edgeCount : 0;
+  }
+
+  /**
+   * Returns the number of iterations performed in the simulation.
+   */
+  public long getIterationCount() {
+    return iterationCount;
+  }
+
+  /**
+   * Returns the number of breeds with non-zero populations.
+   */
+  public int getCurrentBreedCount() {
+    return currentBreedCount;
+  }
+
+  /**
+   * Returns a flag indicating whether the ecosystem is in the absorbing state.
+   */
+  public boolean isAbsorbed() {
+    return absorbed;
+  }
+
+  int getVersion() {
+    return version;
+  }
+
+  int[] getRowVersions() {
+    return rowVersions;
+  }
+
+  void update(int version, long iterationCount, int currentBreedCount, boolean absorbed,
+      long edgeCount, long discordantEdgeCount) {
+    this.version = version;
+    this.iterationCount = iterationCount;
+    this.currentBreedCount = currentBreedCount;
+    this.absorbed = absorbed;
+    this.edgeCount = edgeCount;
+    this.discordantEdgeCount = discordantEdgeCount;
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer of {@link Snapshot} instances, for passing the state of an
+ * {@link Ecosystem} from the thread performing the simulation (the producer) to a single consumer
+ * thread (e.g. the UI thread), without blocking either thread, and without allocation.
+ * <p>At any time, the producer owns one buffer (into which it writes the next snapshot), the
+ * consumer owns another (from which it reads the most recently acquired snapshot), and the third
+ * holds the most recently published snapshot. {@link #publish()} and {@link #acquire()} each
+ * exchange the buffer owned by the invoking thread with the third buffer, using a single atomic
+ * operation; thus, the consumer always reads a complete snapshot, and the producer never waits for
+ * the consumer. Snapshots published while the consumer is busy are simply superseded.</p>
+ * <p>Only the rows of the terrain that have changed since a buffer was last written are copied
+ * into it when it is reused.</p>
+ */
+public final class SnapshotBuffer {
+
+  private static final int INDEX_MASK = 0b11;
+  private static final int FRESH = 0b100;
+
+  private final Ecosystem ecosystem;
+  private final Snapshot[] snapshots;
+  private final AtomicInteger shared;
+  private final int[] acquiredRowVersions;
+
+  private int back;
+  private int front;
+
+  /**
+   * Initializes this instance for use with the specified {@link Ecosystem}, and publishes the
+   * initial state of the ecosystem. This must be invoked on the thread performing the simulation.
+   *
+   * @param ecosystem Source of snapshots.
+   */
+  public SnapshotBuffer(Ecosystem ecosystem) {
+    this(ecosystem, true);
+  }
+
+  /**
+   * Initializes this instance for use with the specified {@link Ecosystem}, and publishes the
+   * initial state of the ecosystem. If {@code includeTerrain} is {@code false}, the snapshots
+   * contain no copy of the terrain (though the changed rows are still flagged); for a consumer that
+   * only needs the populations and counts, this avoids three copies of a potentially large terrain.
+   * This must be invoked on the thread performing the simulation.
+   *
+   * @param ecosystem      Source of snapshots.
+   * @param includeTerrain Flag indicating whether each snapshot contains a copy of the terrain.
+   */
+  public SnapshotBuffer(Ecosystem ecosystem, boolean includeTerrain) {
+    this.ecosystem = ecosystem;
+    int size = ecosystem.getSize();
+    int numBreeds = ecosystem.getInitialBreedCount();
+    snapshots = new Snapshot[]{
+        new Snapshot(size, numBreeds, includeTerrain),
+        new Snapshot(size, numBreeds, includeTerrain),
+        new Snapshot(size, numBreeds, includeTerrain)
+    };
+    back = 0;
+    shared = new AtomicInteger(1);
+    front = 2;
+    acquiredRowVersions = new int[size];
+    // Rows are versioned from 0; ensure that every row is flagged as dirty in the first snapshot.
+    Arrays.fill(acquiredRowVersions, -1);
+    publish();
+  }
+
+  /**
+   * Copies the current state of the ecosystem into a snapshot, and makes that snapshot available to
+   * the consumer. This must only be invoked on the thread performing the simulation.
+   */
+  public void publish() {
+    ecosystem.snapshot(snapshots[back]);
+    back = shared.getAndSet(back | FRESH) & INDEX_MASK;
+  }
+
+  /**
+   * Returns the most recently published snapshot. If no snapshot has been published since the
+   * previous invocation, the same snapshot is returned again (with no rows flagged as dirty). This
+   * must only be invoked on the consumer thread.
+   */
+  public Snapshot acquire() {
+    if ((shared.get() & FRESH) != 0) {
+      front = shared.getAndSet(front) & INDEX_MASK;
+    }
+    Snapshot snapshot = snapshots[front];
+    int[] rowVersions = snapshot.getRowVersions();
+    boolean[] dirtyRows = snapshot.getDirtyRows();
+    for (int rowIndex = 0; rowIndex < rowVersions.length; rowIndex++) {
+      int rowVersion = rowVersions[rowIndex];
+      dirtyRows[rowIndex] = (rowVersion != acquiredRowVersions[rowIndex]);
+      acquiredRowVersions[rowIndex] = rowVersion;
+    }
+    return snapshot;
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Representations of the terrain of an {@link Ecosystem}. All representations hold the same
+ * contents, and support the same simulation; they differ in memory footprint, in the location of
+ * that memory, and (slightly) in the cost of access. Unless a representation is specified
+ * explicitly when an ecosystem is created, it is chosen by {@link #select(int, int)}.
+ */
+public enum Storage {
+
+  /**
+   * One byte per cell, in an array on the heap. This has the lowest cost of access, and is used
+   * for terrains of up to {@value #HEAP_CELL_LIMIT} cells.
+   */
+  HEAP {
+    @Override
+    CellStorage allocate(int cellCount) {
+      return new CellStorage.Heap(cellCount);
+    }
+  },
+  /**
+   * Half a byte per cell, in an array on the heap; this supports no more than 16 breeds. This is
+   * used for larger terrains, of up to {@value #PACKED_CELL_LIMIT} cells, where the number of breeds
+   * permits.
+   */
+  PACKED {
+    @Override
+    CellStorage allocate(int cellCount) {
+      return new CellStorage.Packed(cellCount);
+    }
+
+    @Override
+    public int getMaxBreeds() {
+      return CellStorage.Packed.MAX_BREEDS;
+    }
+  },
+  /**
+   * One byte per cell, in a direct {@link ByteBuffer}, allocated outside the heap (and thus not
+   * subject to its size limit). This is used for the largest terrains.
+   */
+  DIRECT {
+    @Override
+    CellStorage allocate(int cellCount) {
+      return new CellStorage.Buffered(ByteBuffer.allocateDirect(cellCount));
+    }
+  },
+  /**
+   * One byte per cell, in a {@link ByteBuffer} mapped from a temporary file (which is deleted as
+   * soon as it is mapped, where the platform permits). Since the memory is backed by the file, the
+   * operating system may page it out under memory pressure, at the cost of I/O.
+   */
+  MAPPED {
+    @Override
+    CellStorage allocate(int cellCount) {
+      try {
+        File file = File.createTempFile(TEMP_FILE_PREFIX, null);
+        try (
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            FileChannel channel = raf.getChannel()
+        ) {
+          // The mapping remains valid after the channel is closed and the file is deleted.
+          return new CellStorage.Buffered(channel.map(MapMode.READ_WRITE, 0, cellCount));
+        } finally {
+          if (!file.delete()) {
+            file.deleteOnExit();
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  };
+
+  /** Maximum number of cells for which {@link #HEAP} is selected automatically. */
+  public static final int HEAP_CELL_LIMIT = 1 << 24;
+  /** Maximum number of cells for which {@link #PACKED} is selected automatically. */
+  public static final int PACKED_CELL_LIMIT = 1 << 28;
+
+  private static final String TEMP_FILE_PREFIX = "terrain";
+
+  /**
+   * Returns the representation best suited to a terrain of the specified size and number of
+   * breeds: {@link #HEAP} for terrains of up to {@link #HEAP_CELL_LIMIT} cells; {@link #PACKED} for
+   * terrains of up to {@link #PACKED_CELL_LIMIT} cells, with no more than
+   * {@link #getMaxBreeds() PACKED.getMaxBreeds()} breeds; and {@link #DIRECT} otherwise.
+   *
+   * @param size      Terrain height and width.
+   * @param numBreeds Number of distinct breeds.
+   * @return Selected representation.
+   */
+  public static Storage select(int size, int numBreeds) {
+    long cellCount = (long) size * size;
+    Storage storage;
+    if (cellCount <= HEAP_CELL_LIMIT) {
+      storage = HEAP;
+    } else if (cellCount <= PACKED_CELL_LIMIT && numBreeds <= PACKED.getMaxBreeds()) {
+      storage = PACKED;
+    } else {
+      storage = DIRECT;
+    }
+    return storage;
+  }
+
+  /**
+   * Returns the maximum number of breeds that this representation supports.
+   */
+  public int getMaxBreeds() {
+    return Ecosystem.MAX_BREEDS;
+  }
+
+  /**
+   * Allocates and returns storage for the specified number of cells, in this representation.
+   *
+   * @param cellCount Number of cells.
+   * @return Storage, with every cell occupied by breed 0.
+   * @throws UncheckedIOException If the backing file of {@link #MAPPED} storage cannot be created.
+   */
+  abstract CellStorage allocate(int cellCount);
+
+}
@@ -0,0 +1,383 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Computes the structure factor of the terrain of an {@link Ecosystem}&mdash;the power spectrum of
+ * the indicator field of each breed&mdash;radially averaged over wavevectors of equal magnitude,
+ * along with the characteristic length derived from it. As domains coarsen, the structure factor
+ * concentrates at smaller wavenumbers, and the characteristic length grows; tracking the latter
+ * over time thus measures domain growth, in <em>O</em>(<em>N</em> log <em>N</em>) time for a
+ * terrain of <em>N</em> cells (rather than the <em>O</em>(<em>N</em><sup>2</sup>) time of a direct
+ * computation of the spatial correlation function, of which the structure factor is the Fourier
+ * transform).
+ * <p>For breed <em>b</em>, with indicator field &phi;<sub>b</sub>(<strong>x</strong>) (1 where the
+ * cell at <strong>x</strong> is occupied by <em>b</em>, and 0 elsewhere) and density
+ * &rho;<sub>b</sub>, the structure factor is
+ * <em>S</em><sub>b</sub>(<strong>q</strong>) = |&sum;<sub><strong>x</strong></sub>
+ * (&phi;<sub>b</sub>(<strong>x</strong>) - &rho;<sub>b</sub>)
+ * e<sup>-<em>i</em><strong>q</strong>&middot;<strong>x</strong></sup>|<sup>2</sup> / <em>N</em>,
+ * for the wavevectors <strong>q</strong> = 2&pi;(<em>i</em>, <em>j</em>) / <em>L</em> of a terrain
+ * of height and width <em>L</em>. This is averaged over the wavevectors in each shell of
+ * wavenumber 2&pi;<em>m</em> / <em>L</em> (i.e. those for which <em>m</em> is the nearest integer
+ * to |(<em>i</em>, <em>j</em>)|), for <em>m</em> from 0 to <em>L</em> / 2. The characteristic
+ * length is 2&pi; / &lang;<em>q</em>&rang;, where &lang;<em>q</em>&rang; is the mean wavenumber,
+ * weighted by <em>S</em>, over the same wavevectors.</p>
+ * <p>The transform treats the terrain as periodic; for a box terrain, the discontinuities at the
+ * edges add a small amount of spurious power at high wavenumbers. For terrains larger than the
+ * maximum transform size specified on creation, each indicator field is first averaged over blocks
+ * of cells, so that only wavenumbers up to the Nyquist limit of the coarser grid are resolved; the
+ * largest length scales, which dominate the characteristic length as domains grow, are unaffected.
+ * </p>
+ * <p>The indicator fields of two breeds are transformed together, as the real and imaginary parts
+ * of a single complex field, and separated using the symmetry of the transforms of real fields.
+ * Transforms of sizes that are not powers of 2 use Bluestein's algorithm (see {@link Fft}). All
+ * buffers are allocated on creation, and reused.</p>
+ * <p>As with {@link ClusterAnalyzer}, the analysis is performed on a private copy of the terrain:
+ * {@link #capture()} must be invoked on the thread performing the simulation, while
+ * {@link #analyze()} may be invoked on any (single) thread.</p>
+ */
+public final class StructureFactorAnalyzer {
+
+  /** Default maximum height and width of the transformed grid. */
+  public static final int DEFAULT_MAX_TRANSFORM_SIZE = 1024;
+
+  private final Ecosystem ecosystem;
+  private final int size;
+  private final int numBreeds;
+  private final int gridSize;
+  private final int[] blocks;
+  private final double[] blockAreas;
+  private final double areaScale;
+  private final Snapshot snapshot;
+  private final Fft fft;
+  private final double[] fieldRe;
+  private final double[] fieldIm;
+  private final double[] lineRe;
+  private final double[] lineIm;
+  private final int[] shells;
+  private final double[] wavenumbers;
+  private final int[] shellCounts;
+  private final AtomicBoolean busy;
+
+  /**
+   * Initializes this instance for analysis of the specified ecosystem, with a maximum transform
+   * size of {@link #DEFAULT_MAX_TRANSFORM_SIZE}.
+   *
+   * @param ecosystem Source of the terrain to be analyzed.
+   */
+  public StructureFactorAnalyzer(Ecosystem ecosystem) {
+    this(ecosystem, DEFAULT_MAX_TRANSFORM_SIZE);
+  }
+
+  /**
+   * Initializes this instance for analysis of the specified ecosystem, with the specified maximum
+   * transform size. Terrains with a larger height and width are averaged over blocks of cells
+   * before transforming, to a grid of {@code maxTransformSize} by {@code maxTransformSize} blocks.
+   *
+   * @param ecosystem        Source of the terrain to be analyzed.
+   * @param maxTransformSize Maximum height and width of the transformed grid.
+   */
+  public StructureFactorAnalyzer(Ecosystem ecosystem, int maxTransformSize) {
+    this.ecosystem = ecosystem;
+    size = ecosystem.getSize();
+    numBreeds = ecosystem.getInitialBreedCount();
+    gridSize = Math.min(size, maxTransformSize);
+    // Each row (and column) of the terrain maps to the block containing its scaled position, so
+    // that the grid spans exactly the terrain, preserving its periodicity.
+    blocks = new int[size];
+    int[] blockWidths = new int[gridSize];
+    for (int i = 0; i < size; i++) {
+      int block = (int) ((long) i * gridSize / size);
+      blocks[i] = block;
+      blockWidths[block]++;
+    }
+    blockAreas = new double[gridSize * gridSize];
+    for (int row = 0; row < gridSize; row++) {
+      for (int column = 0; column < gridSize; column++) {
+        blockAreas[row * gridSize + column] = (double) blockWidths[row] * blockWidths[column];
+      }
+    }
+    double meanArea = (double) size * size / ((double) gridSize * gridSize);
+    areaScale = meanArea * meanArea / ((double) size * size);
+    snapshot = new Snapshot(size, numBreeds, true);
+    fft = new Fft(gridSize);
+    fieldRe = new double[gridSize * gridSize];
+    fieldIm = new double[gridSize * gridSize];
+    lineRe = new double[gridSize];
+    lineIm = new double[gridSize];
+    int shellCount = gridSize / 2 + 1;
+    shells = new int[gridSize * gridSize];
+    wavenumbers = new double[gridSize * gridSize];
+    shellCounts = new int[shellCount];
+    for (int row = 0; row < gridSize; row++) {
+      int i = (row <= gridSize / 2) ? row : row - gridSize;
+      for (int column = 0; column < gridSize; column++) {
+        int j = (column <= gridSize / 2) ? column : column - gridSize;
+        double magnitude = Math.sqrt((double) i * i + (double) j * j);
+        int shell = (int) Math.round(magnitude);
+        int index = row * gridSize + column;
+        if (shell < shellCount) {
+          shells[index] = shell;
+          wavenumbers[index] = 2 * Math.PI * magnitude / size;
+          shellCounts[shell]++;
+        } else {
+          shells[index] = -1;
+        }
+      }
+    }
+    busy = new AtomicBoolean();
+  }
+
+  /**
+   * Copies the current state of the ecosystem for analysis, with the same contract as
+   * {@link ClusterAnalyzer#capture()}.
+   *
+   * @return {@code true} if the state was captured; {@code false} if an analysis is in progress.
+   */
+  public boolean capture() {
+    boolean captured = busy.compareAndSet(false, true);
+    if (captured) {
+      ecosystem.snapshot(snapshot);
+    }
+    return captured;
+  }
+
+  /**
+   * Computes the radially averaged structure factor and characteristic length of each breed, and
+   * of all breeds combined, from the terrain copied by the most recent {@link #capture()}. On
+   * completion, this instance accepts the next capture.
+   *
+   * @return Structure factors and characteristic lengths.
+   */
+  public Spectrum analyze() {
+    try {
+      int shellCount = shellCounts.length;
+      double[][] structureFactors = new double[numBreeds + 1][shellCount];
+      double[] weights = new double[numBreeds + 1];
+      double[] weightedWavenumbers = new double[numBreeds + 1];
+      int[] populations = snapshot.getPopulations();
+      double cellCount = (double) size * size;
+      for (int breed = 0; breed < numBreeds; breed += 2) {
+        int pairedBreed = breed + 1;
+        boolean paired = pairedBreed < numBreeds;
+        loadFields(breed, populations[breed] / cellCount,
+            paired ? pairedBreed : -1, paired ? populations[pairedBreed] / cellCount : 0);
+        transform();
+        accumulate(breed, paired ? pairedBreed : -1, structureFactors, weights,
+            weightedWavenumbers);
+      }
+      double[] lengths = new double[numBreeds + 1];
+      for (int series = 0; series <= numBreeds; series++) {
+        double[] structureFactor = structureFactors[series];
+        for (int shell = 0; shell < shellCount; shell++) {
+          structureFactor[shell] /= shellCounts[shell];
+        }
+        lengths[series] = (weights[series] > 0)
+            ? 2 * Math.PI * weights[series] / weightedWavenumbers[series]
+            : Double.NaN;
+      }
+      return new Spectrum(snapshot.getIterationCount(), size, structureFactors, lengths);
+    } finally {
+      busy.set(false);
+    }
+  }
+
+  private void loadFields(int breed, double density, int pairedBreed, double pairedDensity) {
+    Arrays.fill(fieldRe, 0);
+    Arrays.fill(fieldIm, 0);
+    byte[] cells = snapshot.getCells();
+    for (int row = 0, cell = 0; row < size; row++) {
+      int blockRow = blocks[row] * gridSize;
+      for (int column = 0; column < size; column++, cell++) {
+        int occupant = cells[cell];
+        int block = blockRow + blocks[column];
+        if (occupant == breed) {
+          fieldRe[block]++;
+        } else if (occupant == pairedBreed) {
+          fieldIm[block]++;
+        }
+      }
+    }
+    for (int block = 0; block < fieldRe.length; block++) {
+      double area = blockAreas[block];
+      fieldRe[block] = fieldRe[block] / area - density;
+      fieldIm[block] = fieldIm[block] / area - pairedDensity;
+    }
+  }
+
+  private void transform() {
+    for (int row = 0, offset = 0; row < gridSize; row++, offset += gridSize) {
+      System.arraycopy(fieldRe, offset, lineRe, 0, gridSize);
+      System.arraycopy(fieldIm, offset, lineIm, 0, gridSize);
+      fft.transform(lineRe, lineIm);
+      System.arraycopy(lineRe, 0, fieldRe, offset, gridSize);
+      System.arraycopy(lineIm, 0, fieldIm, offset, gridSize);
+    }
+    for (int column = 0; column < gridSize; column++) {
+      for (int row = 0, index = column; row < gridSize; row++, index += gridSize) {
+        lineRe[row] = fieldRe[index];
+        lineIm[row] = fieldIm[index];
+      }
+      fft.transform(lineRe, lineIm);
+      for (int row = 0, index = column; row < gridSize; row++, index += gridSize) {
+        fieldRe[index] = lineRe[row];
+        fieldIm[index] = lineIm[row];
+      }
+    }
+  }
+
+  private void accumulate(int breed, int pairedBreed, double[][] structureFactors,
+      double[] weights, double[] weightedWavenumbers) {
+    double[] first = structureFactors[breed];
+    double[] second = (pairedBreed >= 0) ? structureFactors[pairedBreed] : null;
+    double[] combined = structureFactors[numBreeds];
+    for (int row = 0; row < gridSize; row++) {
+      int reflectedRow = (gridSize - row) % gridSize;
+      for (int column = 0; column < gridSize; column++) {
+        int index = row * gridSize + column;
+        int shell = shells[index];
+        if (shell > 0) {
+          // With Z = F(x + iy) for real x and y, F(x)(q) = (Z(q) + Z*(-q)) / 2, and
+          // F(y)(q) = (Z(q) - Z*(-q)) / 2i.
+          int reflected = reflectedRow * gridSize + (gridSize - column) % gridSize;
+          double re = fieldRe[index];
+          double im = fieldIm[index];
+          double reflectedRe = fieldRe[reflected];
+          double reflectedIm = -fieldIm[reflected];
+          double sumRe = re + reflectedRe;
+          double sumIm = im + reflectedIm;
+          double differenceRe = re - reflectedRe;
+          double differenceIm = im - reflectedIm;
+          double q = wavenumbers[index];
+          double firstPower = (sumRe * sumRe + sumIm * sumIm) * 0.25 * areaScale;
+          first[shell] += firstPower;
+          weights[breed] += firstPower;
+          weightedWavenumbers[breed] += q * firstPower;
+          combined[shell] += firstPower;
+          weights[numBreeds] += firstPower;
+          weightedWavenumbers[numBreeds] += q * firstPower;
+          if (second != null) {
+            double secondPower =
+                (differenceRe * differenceRe + differenceIm * differenceIm) * 0.25 * areaScale;
+            second[shell] += secondPower;
+            weights[pairedBreed] += secondPower;
+            weightedWavenumbers[pairedBreed] += q * secondPower;
+            combined[shell] += secondPower;
+            weights[numBreeds] += secondPower;
+            weightedWavenumbers[numBreeds] += q * secondPower;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Immutable result of a single structure factor analysis: the radially averaged structure factor
+   * and characteristic length of each breed, and of all breeds combined (the sum of the structure
+   * factors of the individual breeds).
+   */
+  public static final class Spectrum {
+
+    private final long iterationCount;
+    private final int size;
+    private final double[][] structureFactors;
+    private final double[] lengths;
+
+    Spectrum(long iterationCount, int size, double[][] structureFactors, double[] lengths) {
+      this.iterationCount = iterationCount;
+      this.size = size;
+      this.structureFactors = structureFactors;
+      this.lengths = lengths;
+    }
+
+    /**
+     * Returns the iteration count of the ecosystem when the terrain was captured.
+     */
+    public long getIterationCount() {
+      return iterationCount;
+    }
+
+    /**
+     * Returns the number of breeds analyzed.
+     */
+    public int getNumBreeds() {
+      return lengths.length - 1;
+    }
+
+    /**
+     * Returns the number of wavenumber shells; shell {@code m} has wavenumber
+     * {@link #getWavenumber(int) getWavenumber(m)}.
+     */
+    public int getShellCount() {
+      return structureFactors[0].length;
+    }
+
+    /**
+     * Returns the wavenumber of the specified shell, 2&pi;{@code shell} / <em>L</em>, in radians per
+     * cell.
+     *
+     * @param shell Index of shell.
+     */
+    public double getWavenumber(int shell) {
+      return 2 * Math.PI * shell / size;
+    }
+
+    /**
+     * Returns the radially averaged structure factor of the specified breed in the specified
+     * shell. Shell 0 (i.e. the mean density) is always 0.
+     *
+     * @param breed Index of breed.
+     * @param shell Index of shell.
+     */
+    public double getStructureFactor(int breed, int shell) {
+      return structureFactors[breed][shell];
+    }
+
+    /**
+     * Returns the sum of the radially averaged structure factors of all breeds in the specified
+     * shell.
+     *
+     * @param shell Index of shell.
+     */
+    public double getStructureFactor(int shell) {
+      return structureFactors[lengths.length - 1][shell];
+    }
+
+    /**
+     * Returns the characteristic length of the domains of the specified breed, in cells, or
+     * {@link Double#NaN} if the breed is extinct (or occupies the entire terrain).
+     *
+     * @param breed Index of breed.
+     */
+    public double getCharacteristicLength(int breed) {
+      return lengths[breed];
+    }
+
+    /**
+     * Returns the characteristic length of the domains of all breeds combined, in cells, or
+     * {@link Double#NaN} if the terrain is occupied by a single breed.
+     */
+    public double getCharacteristicLength() {
+      return lengths[lengths.length - 1];
+    }
+
+  }
+
+}
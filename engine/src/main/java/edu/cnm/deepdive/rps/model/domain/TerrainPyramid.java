@@ -0,0 +1,180 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+/**
+ * Level-of-detail pyramid of the terrain of an {@link Ecosystem}, for rendering terrains with many
+ * more cells than the display has pixels. Level 0 is the terrain itself, as copied into a
+ * {@link Snapshot}; each level above it has half the height and width (rounded up) of the level
+ * below, and each of its cells holds the majority breed of the corresponding 2&times;2 block of
+ * cells in the level below (with ties resolved in favor of the earliest of the tied cells, in
+ * row-major order). The top level has a single cell.
+ * <p>The pyramid is maintained incrementally: {@link #update(Snapshot)} recomputes only the rows of
+ * each level that cover rows flagged as changed in the snapshot, so the cost of an update is
+ * proportional to the number of rows changed, rather than the size of the terrain.</p>
+ * <p>All levels are stored as flat arrays, in row-major order. Level 0 is not copied; it is the
+ * array returned by {@link Snapshot#getCells()}, and is therefore only valid as long as the snapshot
+ * passed to the most recent invocation of {@link #update(Snapshot)}.</p>
+ */
+public final class TerrainPyramid {
+
+  private static final String SIZE_MISMATCH_FORMAT =
+      "Snapshot terrain size (%d) does not match pyramid (%d).";
+  private static final String NO_TERRAIN = "Snapshot does not contain a copy of the terrain.";
+
+  private final int[] sizes;
+  private final byte[][] levels;
+  private final boolean[][] dirtyRows;
+
+  private boolean initialized;
+
+  /**
+   * Initializes this instance for a terrain of the specified height and width, allocating all
+   * levels above level 0.
+   *
+   * @param size Height and width of the terrain.
+   */
+  public TerrainPyramid(int size) {
+    int levelCount = 1;
+    for (int levelSize = size; levelSize > 1; levelSize = (levelSize + 1) >> 1) {
+      levelCount++;
+    }
+    sizes = new int[levelCount];
+    levels = new byte[levelCount][];
+    dirtyRows = new boolean[levelCount][];
+    for (int level = 0, levelSize = size; level < levelCount;
+        level++, levelSize = (levelSize + 1) >> 1) {
+      sizes[level] = levelSize;
+      if (level > 0) {
+        levels[level] = new byte[levelSize * levelSize];
+      }
+      dirtyRows[level] = new boolean[levelSize];
+    }
+  }
+
+  /**
+   * Updates all levels of this pyramid from the terrain in {@code snapshot}. On the first
+   * invocation, all levels are computed in full; on subsequent invocations, only the rows covering
+   * the rows flagged in {@link Snapshot#getDirtyRows()} are recomputed. In either case, the rows
+   * recomputed are then flagged in {@link #getDirtyRows(int)}.
+   *
+   * @param snapshot Source of level 0, and of the flags indicating which of its rows changed.
+   * @throws IllegalArgumentException If the snapshot has no copy of the terrain, or a terrain of a
+   *                                  different size.
+   */
+  public void update(Snapshot snapshot) throws IllegalArgumentException {
+    byte[] cells = snapshot.getCells();
+    if (cells == null) {
+      throw new IllegalArgumentException(NO_TERRAIN);
+    }
+    if (snapshot.getSize() != sizes[0]) {
+      throw new IllegalArgumentException(
+          String.format(SIZE_MISMATCH_FORMAT, snapshot.getSize(), sizes[0]));
+    }
+    levels[0] = cells;
+    boolean[] dirty = dirtyRows[0];
+    boolean[] snapshotDirty = snapshot.getDirtyRows();
+    for (int rowIndex = 0; rowIndex < dirty.length; rowIndex++) {
+      dirty[rowIndex] = !initialized || snapshotDirty[rowIndex];
+    }
+    initialized = true;
+    for (int level = 1; level < levels.length; level++) {
+      boolean[] below = dirtyRows[level - 1];
+      int lastBelow = below.length - 1;
+      dirty = dirtyRows[level];
+      for (int rowIndex = 0; rowIndex < dirty.length; rowIndex++) {
+        int topRow = rowIndex << 1;
+        int bottomRow = Math.min(topRow + 1, lastBelow);
+        boolean changed = below[topRow] || below[bottomRow];
+        dirty[rowIndex] = changed;
+        if (changed) {
+          reduce(level, rowIndex, topRow, bottomRow);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the number of levels in this pyramid, including level 0.
+   */
+  public int getLevelCount() {
+    return levels.length;
+  }
+
+  /**
+   * Returns the height and width of the specified level.
+   *
+   * @param level Level of detail, from 0 (the terrain itself) to {@link #getLevelCount()} - 1.
+   * @return Height and width of {@code level}, in cells.
+   */
+  public int getSize(int level) {
+    return sizes[level];
+  }
+
+  /**
+   * Returns the cells of the specified level, as a single flat array in row-major order. The
+   * contents of the array are overwritten (or, for level 0, replaced) by each invocation of
+   * {@link #update(Snapshot)}.
+   *
+   * @param level Level of detail, from 0 (the terrain itself) to {@link #getLevelCount()} - 1.
+   * @return Breeds of the cells in {@code level}.
+   */
+  public byte[] getCells(int level) {
+    return levels[level];
+  }
+
+  /**
+   * Returns flags indicating which rows of the specified level were recomputed by the most recent
+   * invocation of {@link #update(Snapshot)}. The same array is overwritten by each invocation.
+   *
+   * @param level Level of detail, from 0 (the terrain itself) to {@link #getLevelCount()} - 1.
+   * @return Flags indicating the rows of {@code level} that changed.
+   */
+  public boolean[] getDirtyRows(int level) {
+    return dirtyRows[level];
+  }
+
+  private void reduce(int level, int rowIndex, int topRow, int bottomRow) {
+    byte[] source = levels[level - 1];
+    byte[] destination = levels[level];
+    int sourceSize = sizes[level - 1];
+    int size = sizes[level];
+    int lastColumn = sourceSize - 1;
+    int top = topRow * sourceSize;
+    int bottom = bottomRow * sourceSize;
+    for (int colIndex = 0, offset = rowIndex * size; colIndex < size; colIndex++, offset++) {
+      int left = colIndex << 1;
+      int right = Math.min(left + 1, lastColumn);
+      destination[offset] = majority(
+          source[top + left], source[top + right], source[bottom + left], source[bottom + right]);
+    }
+  }
+
+  private static byte majority(byte a, byte b, byte c, byte d) {
+    byte result;
+    if (a == b || a == c || a == d) {
+      result = a;
+    } else if (b == c || b == d) {
+      result = b;
+    } else if (c == d) {
+      result = c;
+    } else {
+      result = a;
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,182 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Constants and encoding helpers shared by {@link TrajectoryRecorder} and {@link TrajectoryReplay}.
+ * <p>A trajectory file (all values little-endian) consists of a header, followed by a sequence of
+ * frames, optionally followed by an index of the keyframes and a trailer.</p>
+ * <ul>
+ *   <li>The header holds the magic number, format version, topology flag, neighborhood name, size,
+ *   and number of breeds.</li>
+ *   <li>Each frame holds a type byte, the iteration count at the end of the frame, the number of
+ *   records in the frame, the length of the compressed payload, and the payload itself, compressed
+ *   with raw deflate. The payload of a keyframe is the complete terrain, one byte per cell; that of
+ *   a delta frame is a sequence of (index, breed) records, each consisting of the difference
+ *   between its cell index and that of the previous record (as a zigzag-encoded variable-length
+ *   integer), and the new breed of the cell.</li>
+ *   <li>The index, written when recording is closed normally, is an index frame holding the
+ *   iteration count and file offset of each keyframe; the trailer holds the offset of the index
+ *   frame, and the magic number. If the index is missing (e.g. because the recording process was
+ *   terminated), it is rebuilt by scanning the frame headers, ignoring any incomplete final
+ *   frame.</li>
+ * </ul>
+ */
+final class TrajectoryFormat {
+
+  static final int MAGIC = 0x52505354; // "RPST"
+  static final short FORMAT_VERSION = 1;
+  static final int FLAG_TOROIDAL = 0b1;
+  static final byte KEYFRAME = 1;
+  static final byte DELTA = 2;
+  static final byte INDEX = 3;
+  static final int FRAME_HEADER_BYTES = 1 + Long.BYTES + Integer.BYTES + Integer.BYTES;
+  static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+  static final int INDEX_ENTRY_BYTES = 2 * Long.BYTES;
+  static final int MAX_RECORD_BYTES = 5 + 1;
+  static final String INVALID_FORMAT = "Not a valid trajectory file.";
+
+  private static final int MAX_VARINT_BYTES = 5;
+  private static final int MIN_BUFFER_SIZE = 1 << 12;
+
+  private TrajectoryFormat() {
+    // Not instantiable.
+  }
+
+  static ByteBuffer allocate(int capacity) {
+    return ByteBuffer
+        .allocate(Math.max(capacity, MIN_BUFFER_SIZE))
+        .order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  static ByteBuffer ensureCapacity(ByteBuffer buffer, int capacity) {
+    return (buffer.capacity() >= capacity)
+        ? buffer
+        : allocate(Math.max(capacity, 2 * buffer.capacity()));
+  }
+
+  static void putName(ByteBuffer buffer, String name) {
+    byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+    buffer
+        .put((byte) bytes.length)
+        .put(bytes);
+  }
+
+  static String getName(ByteBuffer buffer) throws IOException {
+    int length = buffer.get();
+    if (length < 0) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+
+  static void putZigZag(ByteBuffer buffer, int value) {
+    int encoded = (value << 1) ^ (value >> 31);
+    while ((encoded & ~0x7f) != 0) {
+      buffer.put((byte) ((encoded & 0x7f) | 0x80));
+      encoded >>>= 7;
+    }
+    buffer.put((byte) encoded);
+  }
+
+  static int getZigZag(ByteBuffer buffer) throws IOException {
+    int encoded = 0;
+    for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+      int b = buffer.get();
+      encoded |= (b & 0x7f) << (7 * i);
+      if ((b & 0x80) == 0) {
+        return (encoded >>> 1) ^ -(encoded & 1);
+      }
+    }
+    throw new IOException(INVALID_FORMAT);
+  }
+
+  /**
+   * Compresses the contents of {@code raw} (from 0 to its position) into {@code compressed},
+   * replacing its previous contents, and returns the (possibly reallocated) destination buffer,
+   * flipped for reading.
+   */
+  static ByteBuffer deflate(Deflater deflater, ByteBuffer raw, ByteBuffer compressed) {
+    deflater.reset();
+    deflater.setInput(raw.array(), raw.arrayOffset(), raw.position());
+    deflater.finish();
+    Buffers.clear(compressed);
+    while (!deflater.finished()) {
+      if (!compressed.hasRemaining()) {
+        ByteBuffer larger = allocate(2 * compressed.capacity());
+        Buffers.flip(compressed);
+        larger.put(compressed);
+        compressed = larger;
+      }
+      int length = deflater.deflate(compressed.array(),
+          compressed.arrayOffset() + compressed.position(), compressed.remaining());
+      Buffers.position(compressed, compressed.position() + length);
+    }
+    Buffers.flip(compressed);
+    return compressed;
+  }
+
+  /**
+   * Reads {@code length} bytes of compressed data from {@code channel} at {@code offset}, and
+   * decompresses them into {@code raw}, which must be large enough to hold the result.
+   */
+  static void inflate(Inflater inflater, FileChannel channel, long offset, int length,
+      ByteBuffer compressed, ByteBuffer raw) throws IOException {
+    Buffers.clear(compressed);
+    Buffers.limit(compressed, length);
+    readFully(channel, compressed, offset);
+    inflater.reset();
+    inflater.setInput(compressed.array(), compressed.arrayOffset(), length);
+    Buffers.clear(raw);
+    try {
+      int total = 0;
+      while (!inflater.finished()) {
+        int inflated = inflater.inflate(
+            raw.array(), raw.arrayOffset() + total, raw.capacity() - total);
+        if (inflated == 0 && (inflater.needsInput() || total == raw.capacity())) {
+          throw new IOException(INVALID_FORMAT);
+        }
+        total += inflated;
+      }
+      Buffers.limit(raw, total);
+    } catch (DataFormatException e) {
+      throw new IOException(INVALID_FORMAT, e);
+    }
+  }
+
+  static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, offset);
+      if (read < 0) {
+        throw new IOException(INVALID_FORMAT);
+      }
+      offset += read;
+    }
+    Buffers.flip(buffer);
+  }
+
+}
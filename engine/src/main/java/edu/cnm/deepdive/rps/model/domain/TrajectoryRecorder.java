@@ -0,0 +1,238 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.DELTA;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.FLAG_TOROIDAL;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.FORMAT_VERSION;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.FRAME_HEADER_BYTES;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.INDEX;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.INDEX_ENTRY_BYTES;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.KEYFRAME;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.MAGIC;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.MAX_RECORD_BYTES;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.TRAILER_BYTES;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Records the trajectory of an {@link Ecosystem} to an append-only file, from which it can be
+ * replayed (and sought to any recorded iteration) by {@link TrajectoryReplay}, without
+ * re-simulating. The file consists of a keyframe (the complete terrain) at the start of recording,
+ * followed by one compressed delta frame for each batch of iterations in which the terrain changed,
+ * with further keyframes inserted whenever the number of changes since the last keyframe would
+ * exceed the keyframe interval, or a batch of changes is incomplete; see {@link TrajectoryFormat}
+ * for details.
+ * <p>The recorded ecosystem must have a {@link CellChangeLog} attached, and
+ * {@link #record(CellChangeBatch)} must be invoked with every batch published by that log, on the
+ * thread performing the simulation, immediately after the batch is published.</p>
+ */
+public final class TrajectoryRecorder implements Closeable {
+
+  private static final int INITIAL_KEYFRAME_CAPACITY = 16;
+  private static final int HEADER_CAPACITY = 256;
+
+  private final Ecosystem ecosystem;
+  private final FileChannel channel;
+  private final int keyframeInterval;
+  private final Deflater deflater;
+  private final ByteBuffer frameHeader;
+
+  private ByteBuffer raw;
+  private ByteBuffer compressed;
+  private long[] keyframeIterations;
+  private long[] keyframeOffsets;
+  private int keyframeCount;
+  private long position;
+  private long changesSinceKeyframe;
+  private long lastIteration;
+  private boolean closed;
+
+  /**
+   * Creates (or replaces) the specified file, and writes the header and an initial keyframe of
+   * {@code ecosystem}, using a keyframe interval equal to the number of cells in the terrain. With
+   * this interval, seeking to any point in the trajectory requires reading (and applying) no more
+   * records than there are cells in the terrain, in addition to a single keyframe.
+   *
+   * @param ecosystem Ecosystem to record.
+   * @param file      Destination file.
+   * @throws IOException If the file cannot be created or written.
+   */
+  public TrajectoryRecorder(Ecosystem ecosystem, File file) throws IOException {
+    this(ecosystem, file, ecosystem.getSize() * ecosystem.getSize());
+  }
+
+  /**
+   * Creates (or replaces) the specified file, and writes the header and an initial keyframe of
+   * {@code ecosystem}, using the specified keyframe interval.
+   *
+   * @param ecosystem        Ecosystem to record.
+   * @param file             Destination file.
+   * @param keyframeInterval Maximum number of cell changes between keyframes.
+   * @throws IOException If the file cannot be created or written.
+   */
+  public TrajectoryRecorder(Ecosystem ecosystem, File file, int keyframeInterval)
+      throws IOException {
+    this.ecosystem = ecosystem;
+    this.keyframeInterval = keyframeInterval;
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    deflater = new Deflater(Deflater.BEST_SPEED, true);
+    frameHeader = TrajectoryFormat.allocate(FRAME_HEADER_BYTES);
+    raw = TrajectoryFormat.allocate(ecosystem.getCells().getCellCount());
+    compressed = TrajectoryFormat.allocate(0);
+    keyframeIterations = new long[INITIAL_KEYFRAME_CAPACITY];
+    keyframeOffsets = new long[INITIAL_KEYFRAME_CAPACITY];
+    try {
+      ByteBuffer header = TrajectoryFormat.allocate(HEADER_CAPACITY);
+      header
+          .putInt(MAGIC)
+          .putShort(FORMAT_VERSION)
+          .putShort((short) (ecosystem.isToroidal() ? FLAG_TOROIDAL : 0));
+      TrajectoryFormat.putName(header, ecosystem.getNeighborhood().name());
+      header
+          .putInt(ecosystem.getSize())
+          .put((byte) ecosystem.getInitialBreedCount());
+      Buffers.flip(header);
+      write(header);
+      writeKeyframe(ecosystem.getIterationCount());
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      deflater.end();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends the changes in the specified batch to the trajectory, as a delta frame, or writes a
+   * keyframe in its place, if the batch is incomplete, or if the keyframe interval would otherwise
+   * be exceeded. Nothing is written for an empty batch.
+   *
+   * @param batch Batch of changes just published by the {@link CellChangeLog} attached to the
+   *              recorded ecosystem.
+   * @throws IOException If the frame cannot be written.
+   */
+  public void record(CellChangeBatch batch) throws IOException {
+    int size = batch.size();
+    if (size > 0 || !batch.isComplete()) {
+      long iteration = ecosystem.getIterationCount();
+      raw = TrajectoryFormat.ensureCapacity(raw, size * MAX_RECORD_BYTES);
+      Buffers.clear(raw);
+      int previousIndex = 0;
+      for (int i = 0; i < size; i++) {
+        long record = batch.get(i);
+        int index = CellChangeBatch.getIndex(record);
+        TrajectoryFormat.putZigZag(raw, index - previousIndex);
+        raw.put((byte) CellChangeBatch.getNewBreed(record));
+        previousIndex = index;
+      }
+      if (!batch.isComplete() || changesSinceKeyframe + size > keyframeInterval) {
+        writeKeyframe(iteration);
+      } else {
+        writeFrame(DELTA, iteration, size);
+        changesSinceKeyframe += size;
+      }
+    }
+  }
+
+  /**
+   * Writes a final (empty) frame, if the ecosystem has advanced since the last frame written, and
+   * the index of keyframes, and closes the file. Subsequent invocations have no effect.
+   *
+   * @throws IOException If the file cannot be written or closed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      try {
+        long iteration = ecosystem.getIterationCount();
+        if (iteration > lastIteration) {
+          Buffers.clear(raw);
+          writeFrame(DELTA, iteration, 0);
+        }
+        long indexOffset = position;
+        ByteBuffer index = TrajectoryFormat.allocate(
+            FRAME_HEADER_BYTES + keyframeCount * INDEX_ENTRY_BYTES + TRAILER_BYTES);
+        index
+            .put(INDEX)
+            .putLong(lastIteration)
+            .putInt(keyframeCount)
+            .putInt(keyframeCount * INDEX_ENTRY_BYTES);
+        for (int i = 0; i < keyframeCount; i++) {
+          index
+              .putLong(keyframeIterations[i])
+              .putLong(keyframeOffsets[i]);
+        }
+        index
+            .putLong(indexOffset)
+            .putInt(MAGIC);
+        Buffers.flip(index);
+        write(index);
+        channel.force(false);
+      } finally {
+        channel.close();
+        deflater.end();
+      }
+    }
+  }
+
+  private void writeKeyframe(long iteration) throws IOException {
+    CellStorage cells = ecosystem.getCells();
+    int cellCount = cells.getCellCount();
+    raw = TrajectoryFormat.ensureCapacity(raw, cellCount);
+    Buffers.clear(raw);
+    cells.get(0, raw.array(), raw.arrayOffset(), cellCount);
+    Buffers.position(raw, cellCount);
+    if (keyframeCount == keyframeIterations.length) {
+      keyframeIterations = Arrays.copyOf(keyframeIterations, 2 * keyframeCount);
+      keyframeOffsets = Arrays.copyOf(keyframeOffsets, 2 * keyframeCount);
+    }
+    keyframeIterations[keyframeCount] = iteration;
+    keyframeOffsets[keyframeCount] = position;
+    keyframeCount++;
+    writeFrame(KEYFRAME, iteration, cellCount);
+    changesSinceKeyframe = 0;
+  }
+
+  private void writeFrame(byte type, long iteration, int recordCount) throws IOException {
+    compressed = TrajectoryFormat.deflate(deflater, raw, compressed);
+    Buffers.clear(frameHeader);
+    frameHeader
+        .put(type)
+        .putLong(iteration)
+        .putInt(recordCount)
+        .putInt(compressed.remaining());
+    Buffers.flip(frameHeader);
+    write(frameHeader);
+    write(compressed);
+    lastIteration = iteration;
+  }
+
+  private void write(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+}
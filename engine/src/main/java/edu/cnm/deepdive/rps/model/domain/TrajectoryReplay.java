@@ -0,0 +1,353 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.DELTA;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.FLAG_TOROIDAL;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.FORMAT_VERSION;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.FRAME_HEADER_BYTES;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.INDEX;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.INDEX_ENTRY_BYTES;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.INVALID_FORMAT;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.KEYFRAME;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.MAGIC;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.MAX_RECORD_BYTES;
+import static edu.cnm.deepdive.rps.model.domain.TrajectoryFormat.TRAILER_BYTES;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+
+/**
+ * Replays a trajectory recorded by {@link TrajectoryRecorder}, by applying the recorded changes to
+ * an {@link Ecosystem}, which can then be presented exactly as a simulated ecosystem would be
+ * (e.g. via {@link SnapshotBuffer}). Playback proceeds by seeking forward; seeking to any recorded
+ * iteration count costs at most one keyframe load, plus the application of one keyframe interval
+ * of changes.
+ * <p>The replayed ecosystem is a standard {@link Ecosystem}, with a newly created source of
+ * randomness; it may thus also be used to continue the simulation from any point of the recorded
+ * trajectory (although not along the same path as the original run). Instances are not
+ * thread-safe.</p>
+ */
+public final class TrajectoryReplay implements Closeable {
+
+  private static final int HEADER_CAPACITY = 256;
+
+  private final FileChannel channel;
+  private final Ecosystem ecosystem;
+  private final int numBreeds;
+  private final Inflater inflater;
+  private final ByteBuffer frameHeader;
+  private final long[] keyframeIterations;
+  private final long[] keyframeOffsets;
+  private final long endOffset;
+  private final long lastIteration;
+
+  private ByteBuffer compressed;
+  private ByteBuffer raw;
+  private int keyframe;
+  private long nextOffset;
+
+  private TrajectoryReplay(FileChannel channel) throws IOException {
+    this.channel = channel;
+    inflater = new Inflater(true);
+    frameHeader = TrajectoryFormat.allocate(FRAME_HEADER_BYTES);
+    compressed = TrajectoryFormat.allocate(0);
+    raw = TrajectoryFormat.allocate(0);
+    long length = channel.size();
+    ByteBuffer header = TrajectoryFormat.allocate(HEADER_CAPACITY);
+    Buffers.limit(header, (int) Math.min(HEADER_CAPACITY, length));
+    TrajectoryFormat.readFully(channel, header, 0);
+    if (header.getInt() != MAGIC || header.getShort() != FORMAT_VERSION) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    boolean toroidal = (header.getShort() & FLAG_TOROIDAL) != 0;
+    Neighborhood neighborhood = Neighborhood.valueOf(TrajectoryFormat.getName(header));
+    int size = header.getInt();
+    numBreeds = header.get();
+    if (size <= 0 || (long) size * size > Integer.MAX_VALUE || numBreeds <= 0) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    long firstFrameOffset = header.position();
+    IndexBuilder index = new IndexBuilder();
+    long indexOffset = findIndex(length);
+    if (indexOffset >= firstFrameOffset) {
+      readIndex(indexOffset, index);
+      endOffset = indexOffset;
+    } else {
+      endOffset = scan(firstFrameOffset, length, index);
+    }
+    if (index.count == 0 || index.offsets[0] != firstFrameOffset) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    keyframeIterations = Arrays.copyOf(index.iterations, index.count);
+    keyframeOffsets = Arrays.copyOf(index.offsets, index.count);
+    lastIteration = index.lastIteration;
+    ecosystem = Engine.STANDARD.create(
+        numBreeds, size, toroidal, neighborhood, RandomProviders.create());
+    loadKeyframe(0);
+  }
+
+  /**
+   * Opens the specified trajectory file, and positions the replay at the start of the recorded
+   * trajectory.
+   *
+   * @param file Trajectory file.
+   * @return Replay of the trajectory.
+   * @throws IOException If the file cannot be read, or is not a valid trajectory.
+   */
+  public static TrajectoryReplay open(File file) throws IOException {
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      return new TrajectoryReplay(channel);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    } catch (RuntimeException e) {
+      channel.close();
+      throw new IOException(INVALID_FORMAT, e);
+    }
+  }
+
+  /**
+   * Returns the ecosystem to which the recorded changes are applied.
+   */
+  public Ecosystem getEcosystem() {
+    return ecosystem;
+  }
+
+  /**
+   * Returns the iteration count at the start of the recorded trajectory.
+   */
+  public long getFirstIteration() {
+    return keyframeIterations[0];
+  }
+
+  /**
+   * Returns the iteration count at the end of the recorded trajectory.
+   */
+  public long getLastIteration() {
+    return lastIteration;
+  }
+
+  /**
+   * Returns {@code true} if the replay has reached the end of the recorded trajectory.
+   */
+  public boolean isFinished() {
+    return ecosystem.getIterationCount() >= lastIteration;
+  }
+
+  /**
+   * Updates the replayed ecosystem to its recorded state at the specified iteration count (limited
+   * to the range of the recording). Since changes are recorded in batches, this is the state at the
+   * end of the last recorded batch ending at or before {@code iterationCount}. Seeking forward
+   * within the same keyframe interval applies only the changes between the current position and
+   * {@code iterationCount}; otherwise, the nearest preceding keyframe is loaded first.
+   *
+   * @param iterationCount Target iteration count.
+   * @throws IOException If the trajectory cannot be read, or is corrupt.
+   */
+  public void seek(long iterationCount) throws IOException {
+    long target = Math.max(getFirstIteration(), Math.min(iterationCount, lastIteration));
+    int floor = Arrays.binarySearch(keyframeIterations, target);
+    if (floor < 0) {
+      floor = -floor - 2;
+    } else {
+      // Keyframes may share an iteration count (e.g. an incomplete batch of no iterations); use
+      // the last.
+      while (floor + 1 < keyframeIterations.length
+          && keyframeIterations[floor + 1] == target) {
+        floor++;
+      }
+    }
+    if (floor != keyframe || target < ecosystem.getIterationCount()) {
+      loadKeyframe(floor);
+    }
+    try {
+      while (nextOffset < endOffset) {
+        readFrameHeader(nextOffset);
+        byte type = frameHeader.get();
+        long frameIteration = frameHeader.getLong();
+        int recordCount = frameHeader.getInt();
+        int length = frameHeader.getInt();
+        if (type == INDEX || frameIteration > target) {
+          break;
+        }
+        if (type == KEYFRAME) {
+          loadKeyframe(keyframe + 1);
+        } else if (type == DELTA) {
+          applyDelta(nextOffset + FRAME_HEADER_BYTES, recordCount, length, frameIteration);
+          nextOffset += FRAME_HEADER_BYTES + length;
+        } else {
+          throw new IOException(INVALID_FORMAT);
+        }
+      }
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IOException(INVALID_FORMAT, e);
+    }
+    ecosystem.advance(target - ecosystem.getIterationCount());
+  }
+
+  /**
+   * Closes the trajectory file. The replayed ecosystem remains usable.
+   *
+   * @throws IOException If the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    channel.close();
+  }
+
+  private long findIndex(long length) throws IOException {
+    long indexOffset = -1;
+    if (length >= TRAILER_BYTES) {
+      ByteBuffer trailer = TrajectoryFormat.allocate(TRAILER_BYTES);
+      Buffers.limit(trailer, TRAILER_BYTES);
+      TrajectoryFormat.readFully(channel, trailer, length - TRAILER_BYTES);
+      long offset = trailer.getLong();
+      if (trailer.getInt() == MAGIC && offset >= 0 && offset < length - TRAILER_BYTES) {
+        indexOffset = offset;
+      }
+    }
+    return indexOffset;
+  }
+
+  private void readIndex(long indexOffset, IndexBuilder index) throws IOException {
+    readFrameHeader(indexOffset);
+    if (frameHeader.get() != INDEX) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    index.lastIteration = frameHeader.getLong();
+    int count = frameHeader.getInt();
+    int length = frameHeader.getInt();
+    if (count < 0 || length != count * INDEX_ENTRY_BYTES) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    ByteBuffer entries = TrajectoryFormat.allocate(length);
+    Buffers.limit(entries, length);
+    TrajectoryFormat.readFully(channel, entries, indexOffset + FRAME_HEADER_BYTES);
+    for (int i = 0; i < count; i++) {
+      index.add(entries.getLong(), entries.getLong());
+    }
+  }
+
+  private long scan(long offset, long length, IndexBuilder index) throws IOException {
+    while (offset + FRAME_HEADER_BYTES <= length) {
+      readFrameHeader(offset);
+      byte type = frameHeader.get();
+      long frameIteration = frameHeader.getLong();
+      frameHeader.getInt();
+      int frameLength = frameHeader.getInt();
+      if (type == INDEX || frameLength < 0 || offset + FRAME_HEADER_BYTES + frameLength > length) {
+        break;
+      }
+      if (type == KEYFRAME) {
+        index.add(frameIteration, offset);
+      }
+      index.lastIteration = frameIteration;
+      offset += FRAME_HEADER_BYTES + frameLength;
+    }
+    return offset;
+  }
+
+  private void readFrameHeader(long offset) throws IOException {
+    Buffers.clear(frameHeader);
+    Buffers.limit(frameHeader, FRAME_HEADER_BYTES);
+    TrajectoryFormat.readFully(channel, frameHeader, offset);
+  }
+
+  private void loadKeyframe(int keyframe) throws IOException {
+    long offset = keyframeOffsets[keyframe];
+    readFrameHeader(offset);
+    CellStorage cells = ecosystem.getCells();
+    int cellCount = cells.getCellCount();
+    if (frameHeader.get() != KEYFRAME) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    long frameIteration = frameHeader.getLong();
+    int recordCount = frameHeader.getInt();
+    int length = frameHeader.getInt();
+    if (recordCount != cellCount || length < 0) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    compressed = TrajectoryFormat.ensureCapacity(compressed, length);
+    raw = TrajectoryFormat.ensureCapacity(raw, cellCount);
+    TrajectoryFormat.inflate(
+        inflater, channel, offset + FRAME_HEADER_BYTES, length, compressed, raw);
+    if (raw.remaining() != cellCount) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    byte[] breeds = raw.array();
+    int start = raw.arrayOffset();
+    for (int index = start; index < start + cellCount; index++) {
+      if (breeds[index] < 0 || breeds[index] >= numBreeds) {
+        throw new IOException(INVALID_FORMAT);
+      }
+    }
+    cells.set(0, breeds, start, cellCount);
+    ecosystem.restore(frameIteration);
+    this.keyframe = keyframe;
+    nextOffset = offset + FRAME_HEADER_BYTES + length;
+  }
+
+  private void applyDelta(long offset, int recordCount, int length, long frameIteration)
+      throws IOException {
+    if (recordCount < 0 || length < 0) {
+      throw new IOException(INVALID_FORMAT);
+    }
+    compressed = TrajectoryFormat.ensureCapacity(compressed, length);
+    raw = TrajectoryFormat.ensureCapacity(raw, recordCount * MAX_RECORD_BYTES);
+    TrajectoryFormat.inflate(inflater, channel, offset, length, compressed, raw);
+    int cellCount = ecosystem.getCells().getCellCount();
+    int index = 0;
+    for (int i = 0; i < recordCount; i++) {
+      index += TrajectoryFormat.getZigZag(raw);
+      int breed = raw.get();
+      if (index < 0 || index >= cellCount || breed < 0 || breed >= numBreeds) {
+        throw new IOException(INVALID_FORMAT);
+      }
+      ecosystem.replace(index, breed);
+    }
+    ecosystem.advance(frameIteration - ecosystem.getIterationCount());
+  }
+
+  private static class IndexBuilder {
+
+    private long[] iterations = new long[16];
+    private long[] offsets = new long[16];
+    private int count;
+    private long lastIteration;
+
+    void add(long iteration, long offset) {
+      if (count == iterations.length) {
+        iterations = Arrays.copyOf(iterations, 2 * count);
+        offsets = Arrays.copyOf(offsets, 2 * count);
+      }
+      iterations[count] = iteration;
+      offsets[count] = offset;
+      count++;
+    }
+
+  }
+
+}
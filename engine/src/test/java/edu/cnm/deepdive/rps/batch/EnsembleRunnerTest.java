@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.cnm.deepdive.rps.model.domain.Engine;
+import edu.cnm.deepdive.rps.model.domain.Neighborhood;
+import org.junit.jupiter.api.Test;
+
+class EnsembleRunnerTest {
+
+  private static final long SEED = 0x0e5e_1b1eL;
+  private static final int NUM_BREEDS = 3;
+  private static final int SIZE = 18;
+  private static final int WORKER_COUNT = 8;
+  private static final int REFERENCE_REPLICAS = 800;
+  private static final int EARLY_STOP_RUNS = 40;
+  private static final int MIN_REPLICAS_FOR_EARLY_STOP = 30;
+  private static final double LOOSE_TARGET = 10;
+  private static final double TOLERANCE_ERRORS = 4;
+
+  @Test
+  void run_earlyStop_meanNotBiased() {
+    // Absorption times on this terrain are widely spread, so when the target is met, the replicas
+    // still in progress are mostly the longest ones.
+    EnsembleRunner runner = new EnsembleRunner(NUM_BREEDS, SIZE, false, Neighborhood.VON_NEUMANN,
+        Engine.STANDARD, 0, WORKER_COUNT);
+    EnsembleStatistics reference =
+        runner.run(REFERENCE_REPLICAS, Long.MAX_VALUE, 0, SEED).blockingLast();
+    double sum = 0;
+    int count = 0;
+    for (int run = 0; run < EARLY_STOP_RUNS; run++) {
+      EnsembleStatistics statistics =
+          runner.run(REFERENCE_REPLICAS, Long.MAX_VALUE, LOOSE_TARGET, SEED + 1 + run)
+              .blockingLast();
+      // The loose target is met as soon as the minimum number of replicas has been absorbed.
+      assertEquals(MIN_REPLICAS_FOR_EARLY_STOP, statistics.getReplicaCount());
+      sum += statistics.getMeanAbsorption() * statistics.getReplicaCount();
+      count += statistics.getReplicaCount();
+    }
+    double mean = sum / count;
+    double standardError = reference.getStandardDeviation()
+        * Math.sqrt(1.0 / count + 1.0 / reference.getReplicaCount());
+    assertEquals(reference.getMeanAbsorption(), mean, TOLERANCE_ERRORS * standardError,
+        () -> String.format("Mean absorption time %.0f with early stop, %.0f without",
+            mean, reference.getMeanAbsorption()));
+  }
+
+}
@@ -0,0 +1,151 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.cnm.deepdive.rps.model.domain.Engine;
+import edu.cnm.deepdive.rps.model.domain.Neighborhood;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SweepRunnerTest {
+
+  private static final long SEED = 0x5eed_5eedL;
+  private static final long ITERATION_CAP = 200_000;
+  private static final int PARALLELISM = 3;
+  private static final int KEPT_RESULTS = 5;
+  private static final long LOW_ITERATION_CAP = 1_000;
+  private static final long SLOW_NANOS = 1_000_000_000_000L;
+  private static final SweepSpec SPEC = new SweepSpec(
+      new int[]{3, 4}, new int[]{6, 10}, new boolean[]{false, true}, new float[]{0, 0.05f}, 2);
+
+  @TempDir
+  File directory;
+
+  private ForkJoinPool pool;
+
+  @BeforeEach
+  void setUp() {
+    pool = new ForkJoinPool(PARALLELISM);
+  }
+
+  @AfterEach
+  void tearDown() {
+    pool.shutdown();
+  }
+
+  @Test
+  void run_recordsEveryTask() throws IOException {
+    File file = new File(directory, "sweep.csv");
+    List<SweepResult> emitted = runner().run(SEED, file).toList().blockingGet();
+    List<SweepResult> recorded = SweepRunner.read(file);
+    assertEquals(SPEC.getTaskCount(), emitted.size());
+    assertEquals(records(emitted), records(recorded));
+    for (SweepResult result : recorded) {
+      assertTrue(result.getIterationCount() <= ITERATION_CAP);
+      assertEquals(result.isAbsorbed(), result.getWinner() >= 0);
+    }
+  }
+
+  @Test
+  void run_resumesInterruptedSweep() throws IOException {
+    File complete = new File(directory, "complete.csv");
+    runner().run(SEED, complete).blockingSubscribe();
+    // Simulate an interruption: keep only a few results, followed by a partially written line.
+    List<String> lines = Files.readAllLines(complete.toPath(), StandardCharsets.UTF_8);
+    File interrupted = new File(directory, "interrupted.csv");
+    String truncated = String.join("\n", lines.subList(0, 2 + KEPT_RESULTS)) + "\n"
+        + lines.get(2 + KEPT_RESULTS).substring(0, 5);
+    Files.write(interrupted.toPath(), truncated.getBytes(StandardCharsets.UTF_8));
+    List<SweepResult> resumed = runner().run(SEED, interrupted).toList().blockingGet();
+    assertEquals(SPEC.getTaskCount() - KEPT_RESULTS, resumed.size());
+    assertEquals(records(SweepRunner.read(complete)), records(SweepRunner.read(interrupted)));
+  }
+
+  @Test
+  void run_rejectsDifferentConfiguration() {
+    File file = new File(directory, "sweep.csv");
+    runner().run(SEED, file).blockingSubscribe();
+    runner().run(SEED + 1, file)
+        .test()
+        .assertError(IOException.class);
+  }
+
+  @Test
+  void run_defaultPool_avoidsCommonPool() {
+    File file = new File(directory, "sweep.csv");
+    SweepRunner runner =
+        new SweepRunner(SPEC, Neighborhood.VON_NEUMANN, Engine.STANDARD, ITERATION_CAP);
+    Set<ForkJoinPool> pools = new HashSet<>();
+    runner.run(SEED, file)
+        .doOnNext((result) ->
+            pools.add(((ForkJoinWorkerThread) Thread.currentThread()).getPool()))
+        .blockingSubscribe();
+    assertEquals(1, pools.size());
+    ForkJoinPool pool = pools.iterator().next();
+    assertNotSame(ForkJoinPool.commonPool(), pool);
+    assertTrue(pool.isShutdown());
+  }
+
+  @Test
+  void sort_ordersByMeasuredThenEstimatedCost() {
+    // With every point expected to reach the cap, larger terrains go first.
+    List<SweepTask> tasks = new ArrayList<>(SPEC.expand());
+    SweepRunner.sort(tasks, List.of(), LOW_ITERATION_CAP);
+    for (int i = 0; i < tasks.size(); i++) {
+      assertEquals(i < tasks.size() / 2, tasks.get(i).getSize() == 10);
+    }
+    // A recorded replica of a small point that ran slowly (relative to another recorded replica)
+    // puts its other replica first.
+    SweepResult slow = new SweepResult(3, 6, false, 0, 0, LOW_ITERATION_CAP, -1, SLOW_NANOS);
+    SweepResult fast = new SweepResult(4, 10, true, 0.05f, 0, LOW_ITERATION_CAP, -1, 1);
+    tasks.removeIf((task) -> task.getKey().equals(slow.getKey())
+        || task.getKey().equals(fast.getKey()));
+    SweepRunner.sort(tasks, List.of(slow, fast), LOW_ITERATION_CAP);
+    assertEquals(slow.getPointKey(), tasks.get(0).getPointKey());
+  }
+
+  private SweepRunner runner() {
+    return new SweepRunner(SPEC, Neighborhood.VON_NEUMANN, Engine.STANDARD, ITERATION_CAP, pool);
+  }
+
+  /** Returns the records of the results, excluding the (nondeterministic) elapsed time. */
+  private static Set<String> records(List<SweepResult> results) {
+    Set<String> records = new TreeSet<>();
+    for (SweepResult result : results) {
+      String record = result.toRecord();
+      records.add(record.substring(0, record.lastIndexOf(',')));
+    }
+    return records;
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.apache.commons.rng.simple.RandomSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class CheckpointTest {
+
+  private static final long SEED = 0x5eed_cafe_f00dL;
+  private static final int NUM_BREEDS = 5;
+  private static final int SIZE = 64;
+  private static final float SWAP_PROBABILITY = 0.01f;
+  private static final int ITERATIONS = 200_000;
+
+  @TempDir
+  File directory;
+
+  @ParameterizedTest
+  @EnumSource(value = Engine.class, names = {"STANDARD", "PARALLEL"})
+  void read_continuesIdentically(Engine engine) throws IOException {
+    Ecosystem original = engine.create(NUM_BREEDS, SIZE, true, Neighborhood.MOORE,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+    original.iterate(ITERATIONS, SWAP_PROBABILITY);
+    File file = new File(directory, "checkpoint");
+    Checkpoint.write(original, file);
+    Ecosystem restored = Checkpoint.read(file);
+    assertEquals(engine, restored.getEngine());
+    assertEquals(original.getIterationCount(), restored.getIterationCount());
+    assertArrayEquals(original.getPopulations(), restored.getPopulations());
+    assertArrayEquals(original.getFlatTerrain(), restored.getFlatTerrain());
+    original.iterate(ITERATIONS, SWAP_PROBABILITY);
+    restored.iterate(ITERATIONS, SWAP_PROBABILITY);
+    assertEquals(original.getIterationCount(), restored.getIterationCount());
+    assertArrayEquals(original.getFlatTerrain(), restored.getFlatTerrain());
+  }
+
+  @Test
+  void read_rejectsCorruptFile() throws IOException {
+    Ecosystem ecosystem = new Ecosystem(NUM_BREEDS, SIZE, false,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+    File file = new File(directory, "checkpoint");
+    Checkpoint.write(ecosystem, file);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      long position = raf.length() / 2;
+      raf.seek(position);
+      int b = raf.read();
+      raf.seek(position);
+      raf.write(b ^ 0x01);
+    }
+    assertThrows(IOException.class, () -> Checkpoint.read(file));
+  }
+
+}
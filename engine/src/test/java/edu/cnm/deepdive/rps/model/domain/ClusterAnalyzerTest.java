@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.cnm.deepdive.rps.model.domain.ClusterAnalyzer.Statistics;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import org.apache.commons.rng.simple.RandomSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class ClusterAnalyzerTest {
+
+  private static final long SEED = 0xc105_7e25L;
+  private static final int NUM_BREEDS = 4;
+  private static final int SIZE = 61;
+  private static final int PARALLELISM = 3;
+  private static final int ITERATIONS = 200_000;
+  private static final int BATCHES = 4;
+
+  @ParameterizedTest
+  @EnumSource(Neighborhood.class)
+  void analyze_matchesFloodFill(Neighborhood neighborhood) {
+    ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+    try {
+      for (boolean toroidal : new boolean[]{false, true}) {
+        Ecosystem ecosystem = new Ecosystem(NUM_BREEDS, SIZE, toroidal, neighborhood,
+            RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+        ClusterAnalyzer analyzer = new ClusterAnalyzer(ecosystem, pool);
+        for (int batch = 0; batch < BATCHES; batch++) {
+          ecosystem.iterate(ITERATIONS, 0);
+          assertTrue(analyzer.capture());
+          Statistics statistics = analyzer.analyze();
+          verify(ecosystem, statistics);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void capture_refusedUntilAnalyzed() {
+    Ecosystem ecosystem = new Ecosystem(NUM_BREEDS, SIZE, true, Neighborhood.VON_NEUMANN,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+    ClusterAnalyzer analyzer = new ClusterAnalyzer(ecosystem);
+    assertTrue(analyzer.capture());
+    assertFalse(analyzer.capture());
+    analyzer.analyze();
+    assertTrue(analyzer.capture());
+  }
+
+  private static void verify(Ecosystem ecosystem, Statistics statistics) {
+    NeighborTable neighbors = ecosystem.getNeighbors();
+    byte[] cells = ecosystem.getFlatTerrain();
+    boolean[] visited = new boolean[cells.length];
+    int[] clusterCounts = new int[NUM_BREEDS];
+    int[] largest = new int[NUM_BREEDS];
+    int[][] histograms = new int[NUM_BREEDS][statistics.getBinCount()];
+    Deque<Integer> pending = new ArrayDeque<>();
+    for (int start = 0; start < cells.length; start++) {
+      if (!visited[start]) {
+        int breed = cells[start];
+        int clusterSize = 0;
+        visited[start] = true;
+        pending.push(start);
+        while (!pending.isEmpty()) {
+          int cell = pending.pop();
+          clusterSize++;
+          int neighborClass = neighbors.getNeighborClass(cell / SIZE, cell % SIZE);
+          for (int slot = 0; slot < neighbors.getNeighborCount(neighborClass); slot++) {
+            int neighbor = cell + neighbors.getDelta(neighborClass, slot);
+            if (!visited[neighbor] && cells[neighbor] == breed) {
+              visited[neighbor] = true;
+              pending.push(neighbor);
+            }
+          }
+        }
+        clusterCounts[breed]++;
+        largest[breed] = Math.max(largest[breed], clusterSize);
+        histograms[breed][Integer.SIZE - 1 - Integer.numberOfLeadingZeros(clusterSize)]++;
+      }
+    }
+    assertEquals(ecosystem.getIterationCount(), statistics.getIterationCount());
+    for (int breed = 0; breed < NUM_BREEDS; breed++) {
+      assertEquals(clusterCounts[breed], statistics.getClusterCount(breed));
+      assertEquals(largest[breed], statistics.getLargestClusterSize(breed));
+      for (int bin = 0; bin < statistics.getBinCount(); bin++) {
+        assertEquals(histograms[breed][bin], statistics.getClusterCount(breed, bin));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,261 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import org.apache.commons.rng.UniformRandomProvider;
+import org.apache.commons.rng.simple.RandomSource;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class EcosystemTest {
+
+  private static final long SEED = 20240601L;
+  private static final int NUM_BREEDS = 12;
+  private static final int SIZE = 200;
+  private static final float SWAP_PROBABILITY = 0.05f;
+  private static final int WARMUP_ITERATIONS = 5_000_000;
+  private static final int MEASURED_ITERATIONS = 1_000_000;
+  private static final long MAX_BYTES_PER_MILLION_ITERATIONS = 1024;
+  private static final int ABSORPTION_BREEDS = 3;
+  private static final int ABSORPTION_SIZE = 12;
+  private static final int TILED_ABSORPTION_SIZE = 32;
+  private static final int MIN_TILES_PER_SIDE = 4;
+  private static final int ABSORPTION_REPLICATES = 400;
+  private static final double ABSORPTION_TOLERANCE_ERRORS = 4;
+
+  @ParameterizedTest
+  @EnumSource(Neighborhood.class)
+  void iterate_allocationFree(Neighborhood neighborhood) {
+    com.sun.management.ThreadMXBean bean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    Ecosystem ecosystem = new Ecosystem(NUM_BREEDS, SIZE, true, neighborhood,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+    ecosystem.iterate(WARMUP_ITERATIONS, SWAP_PROBABILITY);
+    long before = bean.getThreadAllocatedBytes(threadId);
+    ecosystem.iterate(MEASURED_ITERATIONS, SWAP_PROBABILITY);
+    long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+    assertTrue(allocated <= MAX_BYTES_PER_MILLION_ITERATIONS,
+        () -> String.format("%s: %,d bytes allocated per %,d iterations",
+            neighborhood, allocated, MEASURED_ITERATIONS));
+  }
+
+  @ParameterizedTest
+  @EnumSource(Neighborhood.class)
+  void iterate_populationsConsistent(Neighborhood neighborhood) {
+    Ecosystem ecosystem = new Ecosystem(NUM_BREEDS, SIZE, false, neighborhood,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+    ecosystem.iterate(MEASURED_ITERATIONS, SWAP_PROBABILITY);
+    int[] expected = new int[NUM_BREEDS];
+    for (byte breed : ecosystem.getFlatTerrain()) {
+      expected[breed]++;
+    }
+    assertEquals(Arrays.toString(expected), Arrays.toString(ecosystem.getPopulations()));
+  }
+
+  @ParameterizedTest
+  @EnumSource(Engine.class)
+  void reset_restoresInitialState(Engine engine) {
+    Ecosystem ecosystem = engine.create(3, 10, false, Neighborhood.VON_NEUMANN,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+    while (!ecosystem.isAbsorbed()) {
+      ecosystem.iterate(MEASURED_ITERATIONS, SWAP_PROBABILITY);
+    }
+    ecosystem.reset();
+    assertFalse(ecosystem.isAbsorbed());
+    assertEquals(0, ecosystem.getIterationCount());
+    int[] expected = new int[3];
+    for (byte breed : ecosystem.getFlatTerrain()) {
+      expected[breed]++;
+    }
+    assertEquals(Arrays.toString(expected), Arrays.toString(ecosystem.getPopulations()));
+    ecosystem.iterate(MEASURED_ITERATIONS, 0);
+    assertTrue(ecosystem.getIterationCount() > 0);
+  }
+
+  @ParameterizedTest
+  @EnumSource(Engine.class)
+  void iterate_interfacesConsistent(Engine engine) {
+    for (boolean toroidal : new boolean[]{false, true}) {
+      Ecosystem ecosystem = engine.create(NUM_BREEDS, SIZE, toroidal, Neighborhood.MOORE,
+          RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+      for (int batch = 0; batch < 5; batch++) {
+        ecosystem.iterate(MEASURED_ITERATIONS, SWAP_PROBABILITY);
+        NeighborTable neighbors = Neighborhood.MOORE.getTable(SIZE, toroidal);
+        byte[] cells = ecosystem.getFlatTerrain();
+        long edges = 0;
+        long discordant = 0;
+        long[] boundaryLengths = new long[NUM_BREEDS];
+        for (int row = 0, cell = 0; row < SIZE; row++) {
+          for (int column = 0; column < SIZE; column++, cell++) {
+            int neighborClass = neighbors.getNeighborClass(row, column);
+            for (int slot = 0; slot < neighbors.getNeighborCount(neighborClass); slot++) {
+              int neighbor = cell + neighbors.getDelta(neighborClass, slot);
+              edges++;
+              if (cells[neighbor] != cells[cell]) {
+                discordant++;
+                boundaryLengths[cells[cell]]++;
+              }
+            }
+          }
+        }
+        assertEquals(edges / 2, ecosystem.getEdgeCount());
+        assertEquals(discordant / 2, ecosystem.getDiscordantEdgeCount());
+        assertEquals(Arrays.toString(boundaryLengths),
+            Arrays.toString(ecosystem.getBoundaryLengths()));
+      }
+      if (toroidal) {
+        assertEquals(4L * SIZE * SIZE, ecosystem.getEdgeCount());
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(Neighborhood.class)
+  void iterate_activeEdgeMatchesStandard(Neighborhood neighborhood) {
+    UniformRandomProvider rng = RandomSource.XO_RO_SHI_RO_128_PP.create(SEED);
+    for (boolean toroidal : new boolean[]{false, true}) {
+      byte[] initial = randomTerrain(ABSORPTION_SIZE, ABSORPTION_BREEDS, rng);
+      Absorption standard = absorb(Engine.STANDARD, ABSORPTION_SIZE, toroidal, neighborhood,
+          initial, false, rng);
+      Absorption activeEdge = absorb(Engine.ACTIVE_EDGE, ABSORPTION_SIZE, toroidal, neighborhood,
+          initial, false, rng);
+      assertEquivalent(standard, activeEdge,
+          String.format("%s, %s", neighborhood, toroidal ? "torus" : "box"));
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(Neighborhood.class)
+  void iterate_parallelMatchesStandard(Neighborhood neighborhood) {
+    UniformRandomProvider rng = RandomSource.XO_RO_SHI_RO_128_PP.create(SEED);
+    // From a random three-breed start, a terrain this large takes ~10^8 iterations to absorb; an
+    // invasion from a single cell instead spans many rounds of the parallel decomposition.
+    byte[] initial = invasionTerrain(TILED_ABSORPTION_SIZE);
+    for (boolean toroidal : new boolean[]{false, true}) {
+      ParallelEcosystem tiled = (ParallelEcosystem) Engine.PARALLEL.create(ABSORPTION_BREEDS,
+          TILED_ABSORPTION_SIZE, toroidal, neighborhood, rng);
+      assertTrue(tiled.getTilesPerSide() >= MIN_TILES_PER_SIDE);
+      Absorption standard = absorb(Engine.STANDARD, TILED_ABSORPTION_SIZE, toroidal,
+          neighborhood, initial, false, rng);
+      Absorption parallel = absorb(Engine.PARALLEL, TILED_ABSORPTION_SIZE, toroidal,
+          neighborhood, initial, false, rng);
+      assertEquivalent(standard, parallel,
+          String.format("%s, %s", neighborhood, toroidal ? "torus" : "box"));
+    }
+  }
+
+  @ParameterizedTest
+  @EnumSource(Engine.class)
+  void iterate_fastForwardPreservesAbsorptionTime(Engine engine) {
+    UniformRandomProvider rng = RandomSource.XO_RO_SHI_RO_128_PP.create(SEED);
+    // The larger terrain is tiled by the PARALLEL engine; the smaller one is not.
+    byte[] mixed = randomTerrain(ABSORPTION_SIZE, 2, rng);
+    byte[] invaded = invasionTerrain(TILED_ABSORPTION_SIZE);
+    for (Neighborhood neighborhood : Neighborhood.values()) {
+      assertFastForwardEquivalent(engine, ABSORPTION_SIZE, neighborhood, mixed, rng);
+      assertFastForwardEquivalent(engine, TILED_ABSORPTION_SIZE, neighborhood, invaded, rng);
+    }
+  }
+
+  private static void assertFastForwardEquivalent(Engine engine, int size,
+      Neighborhood neighborhood, byte[] initial, UniformRandomProvider rng) {
+    Absorption simulated = absorb(engine, size, false, neighborhood, initial, false, rng);
+    Absorption fastForwarded = absorb(engine, size, false, neighborhood, initial, true, rng);
+    // With 3 breeds, breed 1 beats breed 0.
+    assertEquals(ABSORPTION_REPLICATES, simulated.winners[1]);
+    assertEquals(ABSORPTION_REPLICATES, fastForwarded.winners[1]);
+    assertEquivalent(simulated, fastForwarded,
+        String.format("%s, %s, %dx%d", engine, neighborhood, size, size));
+  }
+
+  private static byte[] randomTerrain(int size, int numBreeds, UniformRandomProvider rng) {
+    byte[] terrain = new byte[size * size];
+    for (int index = 0; index < terrain.length; index++) {
+      terrain[index] = (byte) rng.nextInt(numBreeds);
+    }
+    return terrain;
+  }
+
+  private static byte[] invasionTerrain(int size) {
+    byte[] terrain = new byte[size * size];
+    terrain[terrain.length / 2 + size / 2] = 1;
+    return terrain;
+  }
+
+  private static Absorption absorb(Engine engine, int size, boolean toroidal,
+      Neighborhood neighborhood, byte[] initial, boolean fastForward,
+      UniformRandomProvider rng) {
+    Ecosystem ecosystem = engine.create(ABSORPTION_BREEDS, size, toroidal, neighborhood, rng);
+    ecosystem.setFastForward(fastForward);
+    Absorption absorption = new Absorption();
+    for (int replicate = 0; replicate < ABSORPTION_REPLICATES; replicate++) {
+      ecosystem.getCells().set(0, initial, 0, initial.length);
+      ecosystem.restore(0);
+      while (!ecosystem.isAbsorbed()) {
+        ecosystem.iterate(MEASURED_ITERATIONS, 0);
+      }
+      assertEquals(0, ecosystem.getDiscordantEdgeCount());
+      int[] populations = ecosystem.getPopulations();
+      for (int breed = 0; breed < ABSORPTION_BREEDS; breed++) {
+        if (populations[breed] == initial.length) {
+          absorption.winners[breed]++;
+        }
+      }
+      double time = ecosystem.getIterationCount();
+      absorption.mean += time;
+      absorption.variance += time * time;
+    }
+    absorption.mean /= ABSORPTION_REPLICATES;
+    absorption.variance = absorption.variance / ABSORPTION_REPLICATES
+        - absorption.mean * absorption.mean;
+    return absorption;
+  }
+
+  private static void assertEquivalent(Absorption expected, Absorption actual, String label) {
+    double standardError =
+        Math.sqrt((expected.variance + actual.variance) / ABSORPTION_REPLICATES);
+    assertEquals(expected.mean, actual.mean, ABSORPTION_TOLERANCE_ERRORS * standardError,
+        () -> String.format("%s: mean absorption time %.0f expected, %.0f actual",
+            label, expected.mean, actual.mean));
+    for (int breed = 0; breed < ABSORPTION_BREEDS; breed++) {
+      double expectedFrequency = (double) expected.winners[breed] / ABSORPTION_REPLICATES;
+      double actualFrequency = (double) actual.winners[breed] / ABSORPTION_REPLICATES;
+      double frequencyError = Math.sqrt((expectedFrequency * (1 - expectedFrequency)
+          + actualFrequency * (1 - actualFrequency)) / ABSORPTION_REPLICATES);
+      int winner = breed;
+      assertEquals(expectedFrequency, actualFrequency,
+          ABSORPTION_TOLERANCE_ERRORS * frequencyError,
+          () -> String.format("%s: breed %d won %s expected, %s actual", label, winner,
+              Arrays.toString(expected.winners), Arrays.toString(actual.winners)));
+    }
+  }
+
+  private static final class Absorption {
+
+    private final int[] winners = new int[ABSORPTION_BREEDS];
+    private double mean;
+    private double variance;
+
+  }
+
+}
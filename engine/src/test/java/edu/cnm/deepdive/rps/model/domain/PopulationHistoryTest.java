@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.cnm.deepdive.rps.model.domain.PopulationHistory.Series;
+import org.apache.commons.rng.UniformRandomProvider;
+import org.apache.commons.rng.simple.RandomSource;
+import org.junit.jupiter.api.Test;
+
+class PopulationHistoryTest {
+
+  private static final long SEED = 0x5eed_cafeL;
+  private static final int NUM_BREEDS = 3;
+  private static final int CAPACITY = 8;
+  private static final int LEVEL_COUNT = 3;
+  private static final int SAMPLES = 1_000;
+  private static final long STRIDE = 7;
+
+  @Test
+  void query_summarizesSamples() {
+    int[][] samples = generate();
+    PopulationHistory history = record(samples);
+    Series series = new Series();
+    long latest = (SAMPLES - 1) * STRIDE;
+    for (int maxPoints : new int[]{1, 3, CAPACITY, 100}) {
+      verify(samples, series, history.query(0, latest, maxPoints, series), maxPoints, 0, latest);
+      long recent = latest - 20 * STRIDE;
+      verify(samples, series, history.query(recent, latest, maxPoints, series), maxPoints,
+          recent, latest);
+      long from = SAMPLES / 3 * STRIDE;
+      long to = SAMPLES / 2 * STRIDE;
+      verify(samples, series, history.query(from, to, maxPoints, series), maxPoints, from, to);
+    }
+  }
+
+  @Test
+  void query_returnsRecentSamplesAtFullResolution() {
+    PopulationHistory history = record(generate());
+    Series series = new Series();
+    long latest = (SAMPLES - 1) * STRIDE;
+    assertEquals(4, history.query(latest - 3 * STRIDE, latest, CAPACITY, series));
+    for (int point = 0; point < series.size(); point++) {
+      assertEquals(series.getFirstIteration(point), series.getLastIteration(point));
+    }
+  }
+
+  @Test
+  void record_earlierIterationClears() {
+    PopulationHistory history = record(generate());
+    history.record(5, new int[]{1, 2, 3});
+    Series series = new Series();
+    assertEquals(1, history.query(0, Long.MAX_VALUE, CAPACITY, series));
+    assertEquals(5, history.getEarliestIteration());
+    assertEquals(2, series.getPopulation(0, 1));
+  }
+
+  private static int[][] generate() {
+    UniformRandomProvider rng = RandomSource.XO_RO_SHI_RO_128_PP.create(SEED);
+    int[][] samples = new int[SAMPLES][NUM_BREEDS];
+    for (int[] sample : samples) {
+      for (int breed = 0; breed < NUM_BREEDS; breed++) {
+        sample[breed] = rng.nextInt(1_000);
+      }
+    }
+    return samples;
+  }
+
+  private static PopulationHistory record(int[][] samples) {
+    PopulationHistory history = new PopulationHistory(NUM_BREEDS, CAPACITY, LEVEL_COUNT);
+    for (int index = 0; index < samples.length; index++) {
+      history.record(index * STRIDE, samples[index]);
+    }
+    return history;
+  }
+
+  private static void verify(int[][] samples, Series series, int size, int maxPoints, long from,
+      long to) {
+    assertEquals(series.size(), size);
+    assertTrue(size > 0 && size <= maxPoints);
+    assertTrue(series.getFirstIteration(0) <= from);
+    assertTrue(series.getLastIteration(size - 1) >= to);
+    for (int point = 0; point < size; point++) {
+      long first = series.getFirstIteration(point);
+      long last = series.getLastIteration(point);
+      if (point > 0) {
+        assertEquals(series.getLastIteration(point - 1) + STRIDE, first);
+      }
+      for (int breed = 0; breed < NUM_BREEDS; breed++) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (long iteration = first; iteration <= last; iteration += STRIDE) {
+          int population = samples[(int) (iteration / STRIDE)][breed];
+          min = Math.min(min, population);
+          max = Math.max(max, population);
+        }
+        assertEquals(min, series.getMinimum(point, breed));
+        assertEquals(max, series.getMaximum(point, breed));
+        assertEquals(samples[(int) (last / STRIDE)][breed], series.getPopulation(point, breed));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.ForkJoinPool;
+import org.apache.commons.rng.simple.RandomSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class StorageTest {
+
+  private static final long SEED = 0x0ff_4ea9L;
+  private static final int NUM_BREEDS = 5;
+  private static final int SIZE = 63;
+  private static final float SWAP_PROBABILITY = 0.01f;
+  private static final int ITERATIONS = 100_000;
+  private static final int PARALLELISM = 4;
+
+  @ParameterizedTest
+  @EnumSource(Storage.class)
+  void iterate_matchesHeap(Storage storage) {
+    Ecosystem expected = new Ecosystem(NUM_BREEDS, SIZE, true, Neighborhood.MOORE,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED), Storage.HEAP);
+    Ecosystem actual = new Ecosystem(NUM_BREEDS, SIZE, true, Neighborhood.MOORE,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED), storage);
+    assertEquals(storage, actual.getStorage());
+    for (int i = 0; i < 4; i++) {
+      expected.iterate(ITERATIONS, SWAP_PROBABILITY);
+      actual.iterate(ITERATIONS, SWAP_PROBABILITY);
+      assertArrayEquals(expected.getFlatTerrain(), actual.getFlatTerrain());
+      assertArrayEquals(expected.getPopulations(), actual.getPopulations());
+    }
+  }
+
+  @Test
+  void iterate_packedParallel_keepsPopulationsConsistent() {
+    ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+    try {
+      Ecosystem ecosystem = new ParallelEcosystem(NUM_BREEDS, SIZE, true, Neighborhood.MOORE,
+          RandomSource.XO_RO_SHI_RO_128_PP.create(SEED), pool, Storage.PACKED);
+      for (int i = 0; i < 10 && !ecosystem.isAbsorbed(); i++) {
+        ecosystem.iterate(ITERATIONS, SWAP_PROBABILITY);
+        int[] counts = new int[NUM_BREEDS];
+        for (byte breed : ecosystem.getFlatTerrain()) {
+          counts[breed]++;
+        }
+        assertArrayEquals(counts, ecosystem.getPopulations());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void select_followsLimits() {
+    assertEquals(Storage.HEAP, Storage.select(4096, 12));
+    assertEquals(Storage.PACKED, Storage.select(4097, 12));
+    assertEquals(Storage.DIRECT, Storage.select(4097, 17));
+    assertEquals(Storage.DIRECT, Storage.select(16385, 3));
+  }
+
+  @Test
+  void constructor_rejectsTooManyBreedsForPacked() {
+    assertThrows(IllegalArgumentException.class, () -> new Ecosystem(17, SIZE, true,
+        Neighborhood.VON_NEUMANN, RandomSource.XO_RO_SHI_RO_128_PP.create(SEED), Storage.PACKED));
+  }
+
+}
@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.cnm.deepdive.rps.model.domain.StructureFactorAnalyzer.Spectrum;
+import org.apache.commons.rng.UniformRandomProvider;
+import org.apache.commons.rng.simple.RandomSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class StructureFactorAnalyzerTest {
+
+  private static final long SEED = 0x5f_ac70_12L;
+  private static final int NUM_BREEDS = 3;
+  private static final int ITERATIONS = 20_000;
+  private static final double TOLERANCE = 1e-9;
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 2, 12, 61, 64})
+  void transform_matchesDirectComputation(int length) {
+    UniformRandomProvider rng = RandomSource.XO_RO_SHI_RO_128_PP.create(SEED);
+    double[] re = new double[length];
+    double[] im = new double[length];
+    for (int i = 0; i < length; i++) {
+      re[i] = rng.nextDouble() - 0.5;
+      im[i] = rng.nextDouble() - 0.5;
+    }
+    double[] expectedRe = new double[length];
+    double[] expectedIm = new double[length];
+    for (int k = 0; k < length; k++) {
+      for (int j = 0; j < length; j++) {
+        double angle = -2 * Math.PI * ((long) j * k % length) / length;
+        expectedRe[k] += re[j] * Math.cos(angle) - im[j] * Math.sin(angle);
+        expectedIm[k] += re[j] * Math.sin(angle) + im[j] * Math.cos(angle);
+      }
+    }
+    new Fft(length).transform(re, im);
+    for (int k = 0; k < length; k++) {
+      assertEquals(expectedRe[k], re[k], TOLERANCE);
+      assertEquals(expectedIm[k], im[k], TOLERANCE);
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {16, 21})
+  void analyze_matchesDirectComputation(int size) {
+    Ecosystem ecosystem = new Ecosystem(NUM_BREEDS, size, true, Neighborhood.VON_NEUMANN,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+    ecosystem.iterate(ITERATIONS, 0);
+    StructureFactorAnalyzer analyzer = new StructureFactorAnalyzer(ecosystem);
+    analyzer.capture();
+    Spectrum spectrum = analyzer.analyze();
+    byte[] cells = ecosystem.getFlatTerrain();
+    int shellCount = size / 2 + 1;
+    double[][] expected = new double[NUM_BREEDS + 1][shellCount];
+    double[] weights = new double[NUM_BREEDS + 1];
+    double[] weightedWavenumbers = new double[NUM_BREEDS + 1];
+    int[] shellCounts = new int[shellCount];
+    for (int i = -(size - 1) / 2; i <= size / 2; i++) {
+      for (int j = -(size - 1) / 2; j <= size / 2; j++) {
+        double magnitude = Math.sqrt(i * i + j * j);
+        int shell = (int) Math.round(magnitude);
+        if (shell >= shellCount) {
+          continue;
+        }
+        shellCounts[shell]++;
+        if (shell == 0) {
+          continue;
+        }
+        double q = 2 * Math.PI * magnitude / size;
+        for (int breed = 0; breed < NUM_BREEDS; breed++) {
+          double density = (double) ecosystem.getPopulations()[breed] / cells.length;
+          double re = 0;
+          double im = 0;
+          for (int cell = 0; cell < cells.length; cell++) {
+            double value = ((cells[cell] == breed) ? 1 : 0) - density;
+            double angle = -2 * Math.PI * (i * (cell / size) + j * (cell % size)) / size;
+            re += value * Math.cos(angle);
+            im += value * Math.sin(angle);
+          }
+          double power = (re * re + im * im) / cells.length;
+          for (int series : new int[]{breed, NUM_BREEDS}) {
+            expected[series][shell] += power;
+            weights[series] += power;
+            weightedWavenumbers[series] += q * power;
+          }
+        }
+      }
+    }
+    assertEquals(ecosystem.getIterationCount(), spectrum.getIterationCount());
+    assertEquals(shellCount, spectrum.getShellCount());
+    for (int shell = 0; shell < shellCount; shell++) {
+      for (int breed = 0; breed < NUM_BREEDS; breed++) {
+        assertEquals(expected[breed][shell] / shellCounts[shell],
+            spectrum.getStructureFactor(breed, shell), TOLERANCE);
+      }
+      assertEquals(expected[NUM_BREEDS][shell] / shellCounts[shell],
+          spectrum.getStructureFactor(shell), TOLERANCE);
+    }
+    for (int breed = 0; breed < NUM_BREEDS; breed++) {
+      assertEquals(2 * Math.PI * weights[breed] / weightedWavenumbers[breed],
+          spectrum.getCharacteristicLength(breed), TOLERANCE);
+    }
+    assertEquals(2 * Math.PI * weights[NUM_BREEDS] / weightedWavenumbers[NUM_BREEDS],
+        spectrum.getCharacteristicLength(), TOLERANCE);
+  }
+
+  @Test
+  void analyze_coarseGrainedStripes() {
+    int size = 96;
+    int period = 24;
+    Ecosystem ecosystem = new Ecosystem(2, size, true, Neighborhood.VON_NEUMANN,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+    byte[] row = new byte[size];
+    for (int column = 0; column < size; column++) {
+      row[column] = (byte) ((column % period < period / 2) ? 0 : 1);
+    }
+    for (int rowStart = 0; rowStart < size * size; rowStart += size) {
+      ecosystem.getCells().set(rowStart, row, 0, size);
+    }
+    ecosystem.restore(0);
+    StructureFactorAnalyzer analyzer = new StructureFactorAnalyzer(ecosystem, 32);
+    analyzer.capture();
+    Spectrum spectrum = analyzer.analyze();
+    int fundamental = size / period;
+    double peak = spectrum.getStructureFactor(fundamental);
+    for (int shell = 0; shell < spectrum.getShellCount(); shell++) {
+      assertTrue(spectrum.getStructureFactor(shell) <= peak);
+    }
+    assertEquals(period, spectrum.getCharacteristicLength(), period * 0.25);
+  }
+
+}
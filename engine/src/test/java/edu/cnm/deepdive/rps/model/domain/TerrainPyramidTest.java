@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.apache.commons.rng.simple.RandomSource;
+import org.junit.jupiter.api.Test;
+
+class TerrainPyramidTest {
+
+  private static final long SEED = 0x1eaf_b10cL;
+  private static final int NUM_BREEDS = 4;
+  private static final int SIZE = 37;
+  private static final int ITERATIONS = 2_000;
+  private static final int BATCHES = 20;
+
+  @Test
+  void update_reducesToMajority() {
+    Snapshot snapshot = new Snapshot(4, NUM_BREEDS, true);
+    byte[] cells = {
+        0, 0, 1, 2,
+        1, 2, 3, 2,
+        3, 3, 0, 1,
+        3, 1, 2, 3
+    };
+    System.arraycopy(cells, 0, snapshot.getCells(), 0, cells.length);
+    TerrainPyramid pyramid = new TerrainPyramid(4);
+    pyramid.update(snapshot);
+    assertEquals(3, pyramid.getLevelCount());
+    assertArrayEquals(new byte[]{0, 2, 3, 0}, pyramid.getCells(1));
+    assertArrayEquals(new byte[]{0}, pyramid.getCells(2));
+  }
+
+  @Test
+  void update_incrementalMatchesFull() {
+    Ecosystem ecosystem = new Ecosystem(NUM_BREEDS, SIZE, true, Neighborhood.MOORE,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+    SnapshotBuffer snapshots = new SnapshotBuffer(ecosystem);
+    TerrainPyramid incremental = new TerrainPyramid(SIZE);
+    incremental.update(snapshots.acquire());
+    for (int batch = 0; batch < BATCHES; batch++) {
+      ecosystem.iterate(ITERATIONS, 0);
+      snapshots.publish();
+      Snapshot snapshot = snapshots.acquire();
+      incremental.update(snapshot);
+      TerrainPyramid full = new TerrainPyramid(SIZE);
+      full.update(snapshot);
+      for (int level = 0; level < full.getLevelCount(); level++) {
+        assertArrayEquals(full.getCells(level), incremental.getCells(level));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright 2024 CNM Ingenuity, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package edu.cnm.deepdive.rps.model.domain;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.rng.simple.RandomSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrajectoryTest {
+
+  private static final long SEED = 0x7ea_1ec7_0c1eL;
+  private static final int NUM_BREEDS = 4;
+  private static final int SIZE = 48;
+  private static final float SWAP_PROBABILITY = 0.01f;
+  private static final int BATCH_ITERATIONS = 5_000;
+  private static final int NUM_BATCHES = 200;
+  private static final int KEYFRAME_INTERVAL = 10_000;
+  private static final long[] SEEK_ORDER = {150, 20, 199, 0, 75, 76, 74, 199};
+
+  @TempDir
+  File directory;
+
+  @Test
+  void seek_reproducesRecordedStates() throws IOException {
+    File file = new File(directory, "trajectory");
+    Map<Long, byte[]> expected = record(file, true);
+    try (TrajectoryReplay replay = TrajectoryReplay.open(file)) {
+      Long[] iterations = expected.keySet().toArray(new Long[0]);
+      for (long batch : SEEK_ORDER) {
+        long iteration = iterations[(int) batch];
+        replay.seek(iteration);
+        assertEquals(iteration, replay.getEcosystem().getIterationCount());
+        assertArrayEquals(expected.get(iteration), replay.getEcosystem().getFlatTerrain());
+        assertArrayEquals(count(expected.get(iteration)), replay.getEcosystem().getPopulations());
+      }
+    }
+  }
+
+  @Test
+  void open_rebuildsMissingIndex() throws IOException {
+    File file = new File(directory, "trajectory");
+    Map<Long, byte[]> expected = record(file, false);
+    long lastIteration = 0;
+    byte[] lastTerrain = null;
+    for (Map.Entry<Long, byte[]> entry : expected.entrySet()) {
+      lastIteration = entry.getKey();
+      lastTerrain = entry.getValue();
+    }
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      // Simulate a partially written frame at the end of the file.
+      raf.seek(raf.length());
+      raf.write(new byte[]{TrajectoryFormat.DELTA, 1, 2, 3});
+    }
+    try (TrajectoryReplay replay = TrajectoryReplay.open(file)) {
+      assertEquals(lastIteration, replay.getLastIteration());
+      replay.seek(Long.MAX_VALUE);
+      assertArrayEquals(lastTerrain, replay.getEcosystem().getFlatTerrain());
+    }
+  }
+
+  private Map<Long, byte[]> record(File file, boolean close) throws IOException {
+    Ecosystem ecosystem = new Ecosystem(NUM_BREEDS, SIZE, true, Neighborhood.MOORE,
+        RandomSource.XO_RO_SHI_RO_128_PP.create(SEED));
+    // A small log forces occasional incomplete batches, and thus unscheduled keyframes.
+    CellChangeLog log = new CellChangeLog(2 * BATCH_ITERATIONS / 5);
+    ecosystem.setChangeLog(log);
+    Map<Long, byte[]> states = new LinkedHashMap<>();
+    TrajectoryRecorder recorder = new TrajectoryRecorder(ecosystem, file, KEYFRAME_INTERVAL);
+    states.put(ecosystem.getIterationCount(), ecosystem.getFlatTerrain().clone());
+    for (int i = 1; i < NUM_BATCHES; i++) {
+      ecosystem.iterate(BATCH_ITERATIONS, SWAP_PROBABILITY);
+      recorder.record(log.publish());
+      states.put(ecosystem.getIterationCount(), ecosystem.getFlatTerrain().clone());
+    }
+    if (close) {
+      recorder.close();
+    }
+    return states;
+  }
+
+  private static int[] count(byte[] terrain) {
+    int[] populations = new int[NUM_BREEDS];
+    for (byte breed : terrain) {
+      populations[breed]++;
+    }
+    return populations;
+  }
+
+}
@@ -33,3 +33,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "rps"
 include(":app")
+include(":engine")